@@ -1,6 +1,15 @@
 package com.estore.api.estoreapi;
 
+import java.util.List;
+
+import com.estore.api.estoreapi.controller.CourseController;
+import com.estore.api.estoreapi.controller.ImageLinkSerializer;
+import com.estore.api.estoreapi.model.Image;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
@@ -12,6 +21,19 @@ public class WebConfig implements WebMvcConfigurer {
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**")
-                .allowedMethods("HEAD", "GET", "PUT", "POST", "DELETE", "PATCH");
+                .allowedMethods("HEAD", "GET", "PUT", "POST", "DELETE", "PATCH")
+                .exposedHeaders(CourseController.NEXT_CURSOR_HEADER); // lets the UI read the cursor of the next page
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // stored image links are paths, responses carry them as URLs on the requested host;
+        // the mapper is copied so the one the DAOs write their files with is left alone
+        SimpleModule imageLinks = new SimpleModule().addSerializer(Image.class, new ImageLinkSerializer());
+        for (HttpMessageConverter<?> converter : converters)
+            if (converter instanceof MappingJackson2HttpMessageConverter) {
+                MappingJackson2HttpMessageConverter json = (MappingJackson2HttpMessageConverter) converter;
+                json.setObjectMapper(json.getObjectMapper().copy().registerModule(imageLinks));
+            }
     }
-}
\ No newline at end of file
+}
@@ -3,14 +3,23 @@ package com.estore.api.estoreapi.controller;
 import com.estore.api.estoreapi.controller.requests.AuthenticatedRequest;
 import com.estore.api.estoreapi.model.Course;
 import com.estore.api.estoreapi.model.User;
+import com.estore.api.estoreapi.ordering.CourseOrder;
 import com.estore.api.estoreapi.persistence.CourseDAO;
+import com.estore.api.estoreapi.persistence.Page;
 import com.estore.api.estoreapi.persistence.UserDAO;
+import com.estore.api.estoreapi.recommendation.CacheStats;
+import com.estore.api.estoreapi.search.CourseQuery;
+import com.estore.api.estoreapi.search.Facets;
+import com.estore.api.estoreapi.search.SuggestIndex;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -26,6 +35,11 @@ import java.util.logging.Logger;
 @RequestMapping("courses")
 public class CourseController {
     private static final Logger LOG = Logger.getLogger(CourseController.class.getName());
+    static final String FULL_VIEW = "full"; // view parameter asking for whole courses in a list
+    static final String RELEVANCE_SORT = "relevance"; // sort parameter ranking a search by relevance
+    static final int DEFAULT_SUGGESTIONS = 8; // suggestions sent when no limit is asked for
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor"; // header holding the cursor of the next page
+    static final int MAX_PAGE_SIZE = 1000; // largest limit a page may ask for
     private final CourseDAO courseDao;
     private final UserDAO userDAO;
 
@@ -80,22 +94,42 @@ public class CourseController {
      *
      * @param title The title parameter which contains the text used to find the
      *              {@link Course courses}
-     * @return ResponseEntity with array of {@link Course course} objects (may be
-     *         empty) and
-     *         HTTP status of OK<br>
+     * @param view  full to respond with whole {@link Course courses}, otherwise
+     *              only their {@link Course#toSummary() summaries} are sent
+     * @param limit The most {@link Course courses} to respond with, all of them
+     *              if missing
+     * @param after The {@value #NEXT_CURSOR_HEADER} of the previous page, the
+     *              first page if missing
+     * @return ResponseEntity with array of {@link Course#toSummary() summaries} (may
+     *         be empty) and
+     *         HTTP status of OK, and the cursor of the next page in the
+     *         {@value #NEXT_CURSOR_HEADER} header if there is one<br>
+     *         ResponseEntity with HTTP status of BAD_REQUEST if limit or after
+     *         is not valid<br>
      *         ResponseEntity with HTTP status of INTERNAL_SERVER_ERROR otherwise
      *         <p>
-     *         Example: Find all courses that contain the text "ma"
-     *         GET http://localhost:8080/courses/?title=ma
+     *         Example: Find the first 20 courses that contain the text "ma"
+     *         GET http://localhost:8080/courses/?title=ma&limit=20
      */
     @GetMapping("/")
-    public ResponseEntity<Course[]> searchCourses(@RequestParam String title) {
+    public ResponseEntity<Course[]> searchCourses(@RequestParam String title,
+            @RequestParam(required = false) String view, @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after) {
         LOG.info("GET /courses/?title=" + title);
+        if (!isPageRequest(limit, after)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
 
         try {
-            Course[] courses = courseDao.findCourses(title);
+            if (limit != null)
+                return pageResponse(courseDao.findCourses(title, after, limit), view);
+
+            Course[] courses = FULL_VIEW.equalsIgnoreCase(view) ? courseDao.findCourses(title)
+                    : courseDao.findCourseSummaries(title);
 
             return new ResponseEntity<Course[]>(courses, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST); // after is not a cursor of this search
         } catch (IOException e) {
             LOG.log(Level.SEVERE, e.getLocalizedMessage());
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
@@ -120,27 +154,309 @@ public class CourseController {
     }
 
     /**
-     * Responds to the GET request for all {@linkplain Course courses}
+     * Responds to the GET request for all {@linkplain Course courses}, or for
+     * those having some tags or priced within a range when given
      *
-     * @return ResponseEntity with array of {@link Course course} objects (may be
-     *         empty) and
-     *         HTTP status of OK<br>
+     * @param minPrice The lowest price to include, no lower bound if missing
+     * @param maxPrice The highest price to include, no upper bound if missing
+     * @param tag      The tags to look for, any tags if missing
+     * @param mode     all for the courses having every tag, any for those having
+     *                 any of them, all if missing
+     * @param sort     The {@link CourseOrder order} to list the courses in,
+     *                 popularity for the whole catalog and price for a price
+     *                 range if missing
+     * @param view     full to respond with whole {@link Course courses}, otherwise
+     *                 only their {@link Course#toSummary() summaries} are sent
+     * @param limit    The most {@link Course courses} to respond with, all of
+     *                 them if missing
+     * @param after    The {@value #NEXT_CURSOR_HEADER} of the previous page, the
+     *                 first page if missing
+     * @return ResponseEntity with array of {@link Course#toSummary() summaries} (may
+     *         be empty) and
+     *         HTTP status of OK, and the cursor of the next page in the
+     *         {@value #NEXT_CURSOR_HEADER} header if there is one<br>
+     *         ResponseEntity with HTTP status of BAD_REQUEST if minPrice is above
+     *         maxPrice, mode is not all or any, sort is not an order, or limit or
+     *         after is not valid<br>
      *         ResponseEntity with HTTP status of INTERNAL_SERVER_ERROR otherwise
+     *         <p>
+     *         Example: Find all courses from 5 to 10 dollars by name
+     *         GET http://localhost:8080/courses?minPrice=5&maxPrice=10&sort=name
+     *         <p>
+     *         Example: Find all courses tagged both math and beginner
+     *         GET http://localhost:8080/courses?tag=math&tag=beginner&mode=all
      */
 
     @GetMapping("")
-    public ResponseEntity<Course[]> getCourses() {
+    public ResponseEntity<Course[]> getCourses(@RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice, @RequestParam(required = false) List<String> tag,
+            @RequestParam(required = false) String mode, @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String view, @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after) {
         LOG.info("GET /courses");
+        CourseOrder order = CourseOrder.parse(sort);
+        Boolean matchAll = parseMode(mode);
+        if (order == null || matchAll == null || (minPrice != null && maxPrice != null && minPrice > maxPrice)
+                || !isPageRequest(limit, after)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
 
         try {
-            Course[] courses = courseDao.getCourses();
+            boolean byPrice = minPrice != null || maxPrice != null;
+            boolean byTags = tag != null && !tag.isEmpty();
+            if (byPrice && sort == null)
+                order = CourseOrder.PRICE;
+            if (limit != null) {
+                if (byTags)
+                    return pageResponse(
+                            courseDao.findCoursesByTags(tag, matchAll, minPrice, maxPrice, order, after, limit), view);
+                return pageResponse(byPrice ? courseDao.findCoursesByPrice(minPrice, maxPrice, order, after, limit)
+                        : courseDao.getCourses(order, after, limit), view);
+            }
+
+            Course[] courses;
+            if (byTags || byPrice) {
+                courses = byTags ? courseDao.findCoursesByTags(tag, matchAll, minPrice, maxPrice, order)
+                        : courseDao.findCoursesByPrice(minPrice, maxPrice, order);
+                if (!FULL_VIEW.equalsIgnoreCase(view))
+                    courses = Arrays.stream(courses).map(Course::toSummary).toArray(Course[]::new);
+            } else {
+                courses = FULL_VIEW.equalsIgnoreCase(view) ? courseDao.getCourses(order)
+                        : courseDao.getCourseSummaries(order);
+            }
             return new ResponseEntity<Course[]>(courses, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST); // after is not a cursor of this listing
+        } catch (IOException e) {
+            LOG.log(Level.SEVERE, e.getLocalizedMessage());
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Responds to the GET request for the {@linkplain Course courses} matching
+     * every given predicate
+     *
+     * @param text     The text to look for in the title, description or tags,
+     *                 any text if missing
+     * @param fuzzy    true to also match the words of text misspelled by a
+     *                 typo or two
+     * @param tag      The tags to look for, any tags if missing
+     * @param mode     all for the courses having every tag, any for those having
+     *                 any of them, all if missing
+     * @param minPrice The lowest price to include, no lower bound if missing
+     * @param maxPrice The highest price to include, no upper bound if missing
+     * @param sort     The {@link CourseOrder order} to list the courses in, or
+     *                 relevance to rank them by how well they match text, with
+     *                 the most popular first among equally relevant courses;
+     *                 price for a price range alone and popularity otherwise if
+     *                 missing
+     * @param view     full to respond with whole {@link Course courses}, otherwise
+     *                 only their {@link Course#toSummary() summaries} are sent
+     * @param limit    The most {@link Course courses} to respond with, all of
+     *                 them if missing
+     * @param after    The {@value #NEXT_CURSOR_HEADER} of the previous page, the
+     *                 first page if missing
+     * @return ResponseEntity with array of {@link Course#toSummary() summaries} (may
+     *         be empty) and HTTP status of OK, and the cursor of the next page in
+     *         the {@value #NEXT_CURSOR_HEADER} header if there is one<br>
+     *         ResponseEntity with HTTP status of BAD_REQUEST if minPrice is above
+     *         maxPrice, mode is not all or any, sort is not an order, or limit or
+     *         after is not valid<br>
+     *         ResponseEntity with HTTP status of INTERNAL_SERVER_ERROR otherwise
+     *         <p>
+     *         Example: Find the 10 most popular math courses about graphs under 20
+     *         dollars
+     *         GET http://localhost:8080/courses/search?text=graph&tag=math&maxPrice=20&limit=10
+     *         <p>
+     *         Example: Find the courses most relevant to "linear algebra"
+     *         GET http://localhost:8080/courses/search?text=linear+algebra&sort=relevance
+     *         <p>
+     *         Example: Find the courses about "algebra", misspelled
+     *         GET http://localhost:8080/courses/search?text=algerba&fuzzy=true
+     */
+    @GetMapping("/search")
+    public ResponseEntity<Course[]> queryCourses(@RequestParam(required = false) String text,
+            @RequestParam(defaultValue = "false") boolean fuzzy, @RequestParam(required = false) List<String> tag,
+            @RequestParam(required = false) String mode,
+            @RequestParam(required = false) Double minPrice, @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) String sort, @RequestParam(required = false) String view,
+            @RequestParam(required = false) Integer limit, @RequestParam(required = false) String after) {
+        LOG.info("GET /courses/search?text=" + text);
+        boolean ranked = RELEVANCE_SORT.equalsIgnoreCase(sort);
+        CourseOrder order = ranked ? CourseOrder.POPULARITY : CourseOrder.parse(sort);
+        Boolean matchAll = parseMode(mode);
+        if (order == null || matchAll == null || (minPrice != null && maxPrice != null && minPrice > maxPrice)
+                || !isPageRequest(limit, after)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        CourseQuery query = new CourseQuery();
+        query.setText(text);
+        query.setFuzzy(fuzzy);
+        query.setTags(tag);
+        query.setMatchAll(matchAll);
+        query.setMinPrice(minPrice);
+        query.setMaxPrice(maxPrice);
+        query.setLimit(limit);
+        query.setAfter(after);
+        query.setRanked(ranked);
+        boolean priceOnly = query.hasPriceRange() && !query.hasText() && !query.hasTags();
+        query.setOrder(sort == null && priceOnly ? CourseOrder.PRICE : order);
+
+        try {
+            return pageResponse(courseDao.search(query), view);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST); // after is not a cursor of this search
         } catch (IOException e) {
             LOG.log(Level.SEVERE, e.getLocalizedMessage());
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
+    /**
+     * Responds to the GET request for typeahead suggestions completing what was
+     * typed in the search box
+     *
+     * @param prefix The text typed so far
+     * @param limit  The most suggestions to respond with,
+     *               {@value #DEFAULT_SUGGESTIONS} if missing
+     * @return ResponseEntity with array of course titles and tags (may be empty)
+     *         and HTTP status of OK<br>
+     *         ResponseEntity with HTTP status of BAD_REQUEST if limit is not
+     *         within 1 and {@value SuggestIndex#MAX_SUGGESTIONS}
+     *         <p>
+     *         Example: Suggest completions of "lin"
+     *         GET http://localhost:8080/courses/suggest?prefix=lin
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<String[]> suggestCourses(@RequestParam String prefix,
+            @RequestParam(required = false) Integer limit) {
+        // logged at a finer level, this is called on every keystroke
+        LOG.fine("GET /courses/suggest?prefix=" + prefix);
+        if (limit == null)
+            limit = DEFAULT_SUGGESTIONS;
+        if (limit < 1 || limit > SuggestIndex.MAX_SUGGESTIONS) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(courseDao.suggest(prefix, limit), HttpStatus.OK);
+    }
+
+    /**
+     * Gets the counters of the search cache
+     *
+     * Only admins are allowed to use this endpoint.
+     *
+     * @param userName the name of the user making the request
+     * @return the hits, misses, evictions and size of the cache, or FORBIDDEN if
+     *         the user is not an admin
+     */
+    @GetMapping("/search/stats")
+    public ResponseEntity<CacheStats> getSearchStats(@RequestParam String userName) {
+        LOG.info("GET /courses/search/stats?userName=" + userName);
+        if (!userName.equalsIgnoreCase(User.ADMIN_USER_NAME)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        return new ResponseEntity<>(courseDao.getSearchCacheStats(), HttpStatus.OK);
+    }
+
+    /**
+     * Responds to the GET request for the number of {@linkplain Course courses}
+     * having each tag and in each price bucket, among those having some tags or
+     * priced within a range when given
+     *
+     * @param minPrice The lowest price to include, no lower bound if missing
+     * @param maxPrice The highest price to include, no upper bound if missing
+     * @param tag      The tags to look for, any tags if missing
+     * @param mode     all for the courses having every tag, any for those having
+     *                 any of them, all if missing
+     * @return ResponseEntity with the {@link Facets facets} and HTTP status of
+     *         OK<br>
+     *         ResponseEntity with HTTP status of BAD_REQUEST if minPrice is above
+     *         maxPrice or mode is not all or any<br>
+     *         ResponseEntity with HTTP status of INTERNAL_SERVER_ERROR otherwise
+     *         <p>
+     *         Example: Count the courses tagged math by their other tags and price
+     *         GET http://localhost:8080/courses/facets?tag=math
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<Facets> getFacets(@RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice, @RequestParam(required = false) List<String> tag,
+            @RequestParam(required = false) String mode) {
+        LOG.info("GET /courses/facets");
+        Boolean matchAll = parseMode(mode);
+        if (matchAll == null || (minPrice != null && maxPrice != null && minPrice > maxPrice)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        try {
+            return new ResponseEntity<>(courseDao.getFacets(tag, matchAll, minPrice, maxPrice), HttpStatus.OK);
+        } catch (IOException e) {
+            LOG.log(Level.SEVERE, e.getLocalizedMessage());
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Reads how several tags are matched
+     *
+     * @param mode all, any, or null
+     *
+     * @return true for all or null, false for any, and null for anything else
+     */
+    static Boolean parseMode(String mode) {
+        if (mode == null || mode.equalsIgnoreCase("all"))
+            return true;
+        if (mode.equalsIgnoreCase("any"))
+            return false;
+        return null;
+    }
+
+    /**
+     * Checks the paging parameters of a listing request
+     *
+     * @param limit The most items asked for, null for all of them
+     * @param after The cursor asked for, null for the first page
+     *
+     * @return true if limit is missing or within 1 and {@value #MAX_PAGE_SIZE},
+     *         and after is only given along with limit
+     */
+    static boolean isPageRequest(Integer limit, String after) {
+        if (limit == null)
+            return after == null;
+        return limit >= 1 && limit <= MAX_PAGE_SIZE;
+    }
+
+    /**
+     * Puts the cursor of the next page, if there is one, in the response headers
+     *
+     * @param page The page being responded with
+     *
+     * @return the headers of the response
+     */
+    static HttpHeaders pageHeaders(Page<?> page) {
+        HttpHeaders headers = new HttpHeaders();
+        if (page.getNextCursor() != null)
+            headers.set(NEXT_CURSOR_HEADER, page.getNextCursor());
+        return headers;
+    }
+
+    /**
+     * Responds with one page of {@linkplain Course courses}
+     *
+     * @param page The page of {@link Course courses}
+     * @param view full to respond with whole {@link Course courses}, otherwise
+     *             only their {@link Course#toSummary() summaries} are sent
+     *
+     * @return ResponseEntity with the page and HTTP status of OK
+     */
+    private static ResponseEntity<Course[]> pageResponse(Page<Course> page, String view) {
+        List<Course> items = page.getItems();
+        Course[] courses = FULL_VIEW.equalsIgnoreCase(view) ? items.toArray(new Course[0])
+                : items.stream().map(Course::toSummary).toArray(Course[]::new);
+        return new ResponseEntity<>(courses, pageHeaders(page), HttpStatus.OK);
+    }
+
     /**
      * Updates the {@linkplain Course course} with the provided {@linkplain Course
      * course} object, if it exists
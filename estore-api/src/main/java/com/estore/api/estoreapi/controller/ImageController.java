@@ -0,0 +1,108 @@
+package com.estore.api.estoreapi.controller;
+
+import com.estore.api.estoreapi.persistence.ImageStore;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Logger;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Handles the REST API requests for the images kept in the {@link ImageStore}
+ * <p>
+ * {@literal @}RestController Spring annotation identifies this class as a REST
+ * API
+ * method handler to the Spring framework
+ */
+@RestController
+@RequestMapping("images")
+public class ImageController {
+    private static final Logger LOG = Logger.getLogger(ImageController.class.getName());
+
+    // Request attributes Tomcat uses to send a file straight to the socket
+    static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // A stored image never changes, so clients may keep it for a year
+    static final String CACHE_FOREVER = "public, max-age=31536000, immutable";
+
+    private final ImageStore imageStore;
+
+    /**
+     * Creates a REST API controller to reponds to requests
+     *
+     * @param imageStore The {@link ImageStore store} the images are kept in
+     *                   <br>
+     *                   This dependency is injected by the Spring Framework
+     */
+    public ImageController(ImageStore imageStore) {
+        this.imageStore = imageStore;
+    }
+
+    /**
+     * Responds to the GET request for the raw bytes of an image
+     * <br>
+     * The file is handed to the container to send without copying it through
+     * the JVM when the container supports it, otherwise it is transferred
+     * channel to channel
+     *
+     * @param hash     The digest of the image
+     * @param request  The request being answered
+     * @param response The response to write the image to
+     *
+     * @throws IOException when the image file cannot be read
+     *
+     *                     Responds with HTTP status of OK and the image, NOT_MODIFIED
+     *                     if the client already has it, or NOT_FOUND if no image
+     *                     is stored under hash
+     */
+    @GetMapping("/{hash}")
+    public void getImage(@PathVariable String hash, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        LOG.info("GET /images/" + hash);
+        File file = imageStore.getFile(hash);
+        if (file == null) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_FOREVER);
+        if (new ServletWebRequest(request, response).checkNotModified("\"" + hash + "\""))
+            return; // the ETag matched and the status is already NOT_MODIFIED
+
+        long length = file.length();
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(imageStore.getContentType(file));
+        response.setContentLengthLong(length);
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.getAbsolutePath());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, length);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = 0;
+            while (position < length)
+                position += channel.transferTo(position, length - position, out);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.estore.api.estoreapi.controller;
+
+import java.io.IOException;
+
+import com.estore.api.estoreapi.model.Image;
+import com.estore.api.estoreapi.persistence.ImageStore;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+/**
+ * Writes an {@linkplain Image image} into a response, turning a link into the
+ * {@link ImageStore image store} into an absolute URL on the host the request
+ * was made to
+ * <br>
+ * Courses keep only the path of their stored images, so the host, port and
+ * scheme come from each request instead of from the stored data. Other links
+ * are written as they are
+ * <br>
+ * Only used for the JSON of responses, the files of the DAOs keep the paths
+ */
+public class ImageLinkSerializer extends StdSerializer<Image> {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates the serializer
+     */
+    public ImageLinkSerializer() {
+        super(Image.class);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void serialize(Image image, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("link", resolve(image.getLink()));
+        generator.writeStringField("hash", image.getHash());
+        generator.writeEndObject();
+    }
+
+    /**
+     * Makes a link into the image store absolute
+     *
+     * @param link The stored link, may be null
+     *
+     * @return the URL of the image on the host of the current request, or link
+     *         itself if it is not a path into the store or there is no request
+     */
+    static String resolve(String link) {
+        if (link == null || !link.startsWith(ImageStore.PATH) || RequestContextHolder.getRequestAttributes() == null)
+            return link;
+        return ServletUriComponentsBuilder.fromCurrentContextPath().path(link).toUriString();
+    }
+}
@@ -15,13 +15,16 @@ import java.util.logging.Logger;
 import com.estore.api.estoreapi.model.Course;
 import com.estore.api.estoreapi.model.User;
 import com.estore.api.estoreapi.persistence.CourseDAO;
+import com.estore.api.estoreapi.persistence.Page;
 import com.estore.api.estoreapi.persistence.UserDAO;
+import com.estore.api.estoreapi.recommendation.CacheStats;
 
 @RestController
 @RequestMapping("users")
 public class UserController {
 
     private static final Logger LOG = Logger.getLogger(UserController.class.getName());
+    static final String FULL_VIEW = "full"; // view parameter asking for whole courses in a list
     private final UserDAO userDao;
     private final CourseDAO courseDAO;
 
@@ -57,7 +60,8 @@ public class UserController {
     }
 
     @GetMapping("/{username}/recommended/{amt}")
-    public ResponseEntity<Course[]> getRecommendedCourses(@PathVariable String username, @PathVariable int amt) {
+    public ResponseEntity<Course[]> getRecommendedCourses(@PathVariable String username, @PathVariable int amt,
+            @RequestParam(required = false) String view) {
         LOG.info("GET " + username + "/recommended/" + amt);
 
         User user = userDao.getUser(username);
@@ -65,9 +69,10 @@ public class UserController {
             return new ResponseEntity<>(HttpStatus.FORBIDDEN);
         }
         if (user != null) {
-            Course[] courses = courseDAO.getRecommendedCoursesForUser(user);
-            return new ResponseEntity<Course[]>(Arrays.copyOfRange(courses, 0, Math.min(amt, courses.length)),
-                    HttpStatus.OK);
+            Course[] courses = courseDAO.getRecommendedCoursesForUser(user, amt);
+            if (!FULL_VIEW.equalsIgnoreCase(view))
+                courses = Arrays.stream(courses).map(Course::toSummary).toArray(Course[]::new);
+            return new ResponseEntity<Course[]>(courses, HttpStatus.OK);
         } else {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
@@ -83,31 +88,137 @@ public class UserController {
      * user is an admin with a request param.
      * 
      * @param userName the name of the user making the request
-     * @return a list of all registered users, or UNAUTHORIZED if the user is not an
-     *         admin
+     * @param limit    the most users to list, all of them if missing
+     * @param after    the {@value CourseController#NEXT_CURSOR_HEADER} of the
+     *                 previous page, the first page if missing
+     * @return a list of all registered users, with the cursor of the next page in
+     *         the {@value CourseController#NEXT_CURSOR_HEADER} header if there is
+     *         one, UNAUTHORIZED if the user is not an admin, or BAD_REQUEST if
+     *         limit or after is not valid
      */
     @GetMapping("")
-    public ResponseEntity<User[]> getAllUsers(@RequestParam String userName) {
+    public ResponseEntity<User[]> getAllUsers(@RequestParam String userName,
+            @RequestParam(required = false) Integer limit, @RequestParam(required = false) String after) {
         LOG.info("GET /users?userName=" + userName);
         // only admins can see all the users
         if (!userName.equalsIgnoreCase(User.ADMIN_USER_NAME)) {
             return new ResponseEntity<>(HttpStatus.FORBIDDEN);
         }
-        return new ResponseEntity<>(userDao.getAllUsers(), HttpStatus.OK);
+        if (!CourseController.isPageRequest(limit, after)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        if (limit == null) {
+            return new ResponseEntity<>(userDao.getAllUsers(), HttpStatus.OK);
+        }
+
+        try {
+            Page<User> page = userDao.getAllUsers(after, limit);
+            return new ResponseEntity<>(page.getItems().toArray(new User[0]), CourseController.pageHeaders(page),
+                    HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST); // after is not a cursor of this listing
+        }
+    }
+
+    /**
+     * Gets the counters of the recommendation cache
+     *
+     * Only admins are allowed to use this endpoint.
+     *
+     * @param userName the name of the user making the request
+     * @return the hits, misses, evictions and size of the cache, or FORBIDDEN if
+     *         the user is not an admin
+     */
+    @GetMapping("/recommended/stats")
+    public ResponseEntity<CacheStats> getRecommendationStats(@RequestParam String userName) {
+        LOG.info("GET /users/recommended/stats?userName=" + userName);
+        if (!userName.equalsIgnoreCase(User.ADMIN_USER_NAME)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        return new ResponseEntity<>(courseDAO.getRecommendationCacheStats(), HttpStatus.OK);
     }
 
     @GetMapping("/{userName}/cart")
-    public ResponseEntity<Course[]> getUserShoppingCart(@PathVariable String userName) {
+    public ResponseEntity<Course[]> getUserShoppingCart(@PathVariable String userName,
+            @RequestParam(required = false) String view) {
         LOG.info("GET /users/ " + userName + "/cart");
         User user = userDao.getUser(userName);
         if (user != null) {
-            Course[] cartCourses = user.getShoppingCart(courseDAO);
+            Course[] cartCourses = FULL_VIEW.equalsIgnoreCase(view) ? user.getShoppingCart(courseDAO)
+                    : courseDAO.getCourseSummaries(user.getShoppingCart());
             return new ResponseEntity<Course[]>(cartCourses, HttpStatus.OK);
         } else {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
     }
 
+    /**
+     * Adds a course to the cart of a user
+     * <br>
+     * Only the cart changes, so a small record of the change is written
+     * instead of the whole user
+     *
+     * @param userName the user whose cart changes
+     * @param courseId the course to add
+     * @return the updated user, NOT_FOUND if there is no such user or course,
+     *         FORBIDDEN if the user is banned, or CONFLICT if they already own
+     *         the course
+     */
+    @PostMapping("/{userName}/cart/{courseId}")
+    public ResponseEntity<User> addToCart(@PathVariable String userName, @PathVariable int courseId) {
+        LOG.info("POST /users/" + userName + "/cart/" + courseId);
+        User user = userDao.getUser(userName);
+        if (user == null || courseDAO.getCourse(courseId) == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        if (user.isBanned()) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        if (user.getCourses().contains(courseId)) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+        try {
+            User updated = userDao.addToCart(userName, courseId);
+            return updated == null ? new ResponseEntity<>(HttpStatus.NOT_FOUND)
+                    : new ResponseEntity<>(updated, HttpStatus.OK);
+        } catch (IOException e) {
+            LOG.log(Level.SEVERE, e.getLocalizedMessage());
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Takes a course out of the cart of a user
+     * <br>
+     * Only the cart changes, so a small record of the change is written
+     * instead of the whole user
+     *
+     * @param userName the user whose cart changes
+     * @param courseId the course to take out, nothing changes if it is not in
+     *                 the cart
+     * @return the updated user, NOT_FOUND if there is no such user, or
+     *         FORBIDDEN if the user is banned
+     */
+    @DeleteMapping("/{userName}/cart/{courseId}")
+    public ResponseEntity<User> removeFromCart(@PathVariable String userName, @PathVariable int courseId) {
+        LOG.info("DELETE /users/" + userName + "/cart/" + courseId);
+        User user = userDao.getUser(userName);
+        if (user == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        if (user.isBanned()) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        try {
+            User updated = userDao.removeFromCart(userName, courseId);
+            return updated == null ? new ResponseEntity<>(HttpStatus.NOT_FOUND)
+                    : new ResponseEntity<>(updated, HttpStatus.OK);
+        } catch (IOException e) {
+            LOG.log(Level.SEVERE, e.getLocalizedMessage());
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     @PostMapping("/login")
     public ResponseEntity<User> getUserAccount(@RequestBody User user) {
         LOG.info("POST users/login " + user);
@@ -198,14 +309,19 @@ public class UserController {
     }
 
     @GetMapping("/{userName}/courses")
-    public ResponseEntity<Course[]> getUserCourses(@PathVariable String userName) {
+    public ResponseEntity<Course[]> getUserCourses(@PathVariable String userName,
+            @RequestParam(required = false) String view) {
         LOG.info("Get /user/" + userName + "/courses");
         User userObj = userDao.getUser(userName);
         if (userObj != null && userObj.isBanned()) {
             return new ResponseEntity<>(HttpStatus.FORBIDDEN);
         }
-        return userObj == null ? new ResponseEntity<>(HttpStatus.NOT_FOUND)
-                : new ResponseEntity<Course[]>(userObj.getUserCourses(courseDAO), HttpStatus.OK);
+        if (userObj == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        Course[] courses = FULL_VIEW.equalsIgnoreCase(view) ? userObj.getUserCourses(courseDAO)
+                : courseDAO.getCourseSummaries(userObj.getCourses());
+        return new ResponseEntity<Course[]>(courses, HttpStatus.OK);
     }
 
     @PutMapping("/checkout")
@@ -1,10 +1,11 @@
 package com.estore.api.estoreapi.model;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 public class Course {
@@ -27,9 +28,10 @@ public class Course {
     private int studentsEnrolled;
 
     @JsonProperty("tags")
-    private Set<String> tags;
+    private TagSet tags; // a bitset over the tag dictionary, read and written as a set of strings
 
     @JsonProperty("content")
+    @JsonInclude(JsonInclude.Include.NON_NULL) // left out of summaries
     private List<Lesson> content;
 
     public Course(@JsonProperty("id") int id, @JsonProperty("image") Image image, @JsonProperty("title") String title,
@@ -42,7 +44,7 @@ public class Course {
         this.price = price;
         this.description = description;
         this.studentsEnrolled = studentsEnrolled;
-        this.tags = tags;
+        this.tags = toTagSet(tags);
         this.content = content;
     }
 
@@ -62,7 +64,7 @@ public class Course {
         this.price = price;
         this.description = description;
         this.studentsEnrolled = 0;
-        this.tags = tags;
+        this.tags = toTagSet(tags);
         this.content = new ArrayList<>();
     }
 
@@ -82,10 +84,37 @@ public class Course {
         this.price = price;
         this.description = description;
         this.studentsEnrolled = 0;
-        this.tags = new HashSet<>();
+        this.tags = new TagSet();
         this.content = new ArrayList<>();
     }
 
+    /**
+     * Copies everything a course card shows, leaving out the lessons
+     * <br>
+     * Lists of courses send these summaries so they do not carry the content of
+     * every course. The tags are copied, as every course owns its tag set, so
+     * later changes to this course do not show through
+     *
+     * @return a new course with the same fields and null content
+     */
+    public Course toSummary() {
+        return new Course(id, image, title, price, description, studentsEnrolled, tags, null);
+    }
+
+    /**
+     * Copies every field of a course
+     * <br>
+     * The tags and the list of lessons are copied, the lessons themselves are
+     * shared, so changing the fields, tags or lesson list of either course
+     * leaves the other as it was
+     *
+     * @return a new course equal to this one
+     */
+    public Course copy() {
+        return new Course(id, image, title, price, description, studentsEnrolled, tags,
+                content == null ? null : new ArrayList<>(content));
+    }
+
     public int getId() {
         return id;
     }
@@ -130,12 +159,31 @@ public class Course {
         this.studentsEnrolled = studentsEnrolled;
     }
 
+    /**
+     * The tags of the course, as a {@link TagSet} backed by the course
+     *
+     * @return the tags, may be null
+     */
     public Set<String> getTags() {
         return tags;
     }
 
+    /**
+     * The tags of the course as a bitset, for comparing with other courses
+     *
+     * @return the tags, may be null
+     */
+    public TagSet getTagSet() {
+        return tags;
+    }
+
+    /**
+     * Replaces the tags of the course with a copy of tags
+     *
+     * @param tags The new tags, may be null
+     */
     public void setTags(Set<String> tags) {
-        this.tags = tags;
+        this.tags = toTagSet(tags);
     }
 
     public List<Lesson> getContent() {
@@ -146,9 +194,14 @@ public class Course {
         this.content = content;
     }
 
+    private static TagSet toTagSet(Set<String> tags) {
+        return tags == null ? null : new TagSet(tags);
+    }
+
     @Override
     public int hashCode() {
-        return id + title.hashCode() + description.hashCode() + studentsEnrolled + tags.hashCode() + content.hashCode();
+        return id + title.hashCode() + description.hashCode() + studentsEnrolled + tags.hashCode()
+                + Objects.hashCode(content);
     }
 
     @Override
@@ -1,5 +1,6 @@
 package com.estore.api.estoreapi.model;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 public class Image {
@@ -7,8 +8,18 @@ public class Image {
     @JsonProperty("link")
     private String link;
 
-    public Image(@JsonProperty("link") String link) {
+    @JsonProperty("hash")
+    private String hash; // digest of the image in the image store, null for an inline or external link
+
+    public Image(String link) {
+        this.link = link;
+        this.hash = null;
+    }
+
+    @JsonCreator
+    public Image(@JsonProperty("link") String link, @JsonProperty("hash") String hash) {
         this.link = link;
+        this.hash = hash;
     }
 
     public String getLink() {
@@ -19,4 +30,8 @@ public class Image {
         this.link = link;
     }
 
+    public String getHash() {
+        return hash;
+    }
+
 }
@@ -0,0 +1,66 @@
+package com.estore.api.estoreapi.model;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Catalog-wide numbering of {@linkplain Course course} tags
+ * <br>
+ * Each distinct tag is stored once and gets the next free number, which a
+ * {@link TagSet} uses as a bit index. Numbers are never reused, so a tag keeps
+ * its number for as long as the application runs
+ */
+public final class TagDictionary {
+    private static final Map<String, Integer> ids = new ConcurrentHashMap<>(); // Number of each tag
+    private static final List<String> names = new CopyOnWriteArrayList<>(); // Tag of each number
+
+    private TagDictionary() {
+    }
+
+    /**
+     * Numbers a tag, adding it to the dictionary if it is new
+     *
+     * @param tag The tag
+     *
+     * @return the number of tag
+     */
+    public static int intern(String tag) {
+        Integer id = ids.get(tag);
+        if (id != null)
+            return id;
+        synchronized (TagDictionary.class) {
+            id = ids.get(tag);
+            if (id == null) {
+                names.add(tag); // named before it is numbered, so a number always has a name
+                id = names.size() - 1;
+                ids.put(tag, id);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Looks up the number of a tag without adding it
+     *
+     * @param tag The tag
+     *
+     * @return the number of tag, or -1 if no course ever had it
+     */
+    public static int find(String tag) {
+        Integer id = tag == null ? null : ids.get(tag);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Looks up the tag of a number
+     *
+     * @param id A number given by {@link #intern(String)}
+     *
+     * @return the tag
+     */
+    public static String name(int id) {
+        return names.get(id);
+    }
+}
@@ -0,0 +1,189 @@
+package com.estore.api.estoreapi.model;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Set of tags kept as a bitset over the {@linkplain TagDictionary tag
+ * dictionary}
+ * <br>
+ * A course holds a few words instead of a hash set of strings, and comparing
+ * the tags of two courses is a word-wise AND and a popcount. It is still a
+ * {@code Set<String>}, so it reads, writes and compares like the set it
+ * replaces
+ */
+public class TagSet extends AbstractSet<String> {
+    private static final long[] EMPTY = {};
+
+    private long[] words = EMPTY; // bit n is set when the tag numbered n is in the set
+
+    /**
+     * Creates an empty tag set
+     */
+    public TagSet() {
+    }
+
+    /**
+     * Creates a tag set holding some tags
+     *
+     * @param tags The tags, a {@link TagSet} is copied word by word
+     */
+    public TagSet(Collection<String> tags) {
+        if (tags instanceof TagSet) {
+            words = ((TagSet) tags).words.clone();
+        } else {
+            for (String tag : tags)
+                add(tag);
+        }
+    }
+
+    /**
+     * Checks for a tag by its number
+     *
+     * @param id The number of the tag in the {@link TagDictionary dictionary}
+     *
+     * @return true if the tag is in the set
+     */
+    public boolean containsId(int id) {
+        int word = id >>> 6;
+        return id >= 0 && word < words.length && (words[word] & (1L << id)) != 0;
+    }
+
+    /**
+     * Finds the next tag in the set by number
+     *
+     * @param from The number to start looking from
+     *
+     * @return the number of the first tag in the set at or after from, or -1 if
+     *         there is none
+     */
+    public int nextId(int from) {
+        int word = from >>> 6;
+        if (word >= words.length)
+            return -1;
+        long bits = words[word] & (-1L << from);
+        while (true) {
+            if (bits != 0)
+                return word * 64 + Long.numberOfTrailingZeros(bits);
+            if (++word == words.length)
+                return -1;
+            bits = words[word];
+        }
+    }
+
+    /**
+     * Counts the tags this set shares with another
+     *
+     * @param other The other tag set
+     *
+     * @return the size of the intersection
+     */
+    public int intersectionSize(TagSet other) {
+        int count = 0;
+        for (int i = Math.min(words.length, other.words.length) - 1; i >= 0; --i)
+            count += Long.bitCount(words[i] & other.words[i]);
+        return count;
+    }
+
+    /**
+     * Measures how alike this set is to another
+     *
+     * @param other The other tag set
+     *
+     * @return the size of the intersection over the size of the union, zero if
+     *         both sets are empty
+     */
+    public double jaccard(TagSet other) {
+        int shared = intersectionSize(other);
+        int union = size() + other.size() - shared;
+        return union == 0 ? 0 : (double) shared / union;
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> tags) {
+        if (!(tags instanceof TagSet))
+            return super.containsAll(tags);
+        long[] required = ((TagSet) tags).words;
+        for (int i = 0; i < required.length; ++i) {
+            long have = i < words.length ? words[i] : 0;
+            if ((required[i] & ~have) != 0)
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object tag) {
+        return tag instanceof String && containsId(TagDictionary.find((String) tag));
+    }
+
+    @Override
+    public boolean add(String tag) {
+        int id = TagDictionary.intern(tag);
+        if (containsId(id))
+            return false;
+        int word = id >>> 6;
+        if (word >= words.length)
+            words = Arrays.copyOf(words, word + 1);
+        words[word] |= 1L << id;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object tag) {
+        if (!contains(tag))
+            return false;
+        clearId(TagDictionary.find((String) tag));
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        words = EMPTY;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (long word : words)
+            size += Long.bitCount(word);
+        return size;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private int next = nextId(0); // number of the next tag, -1 at the end
+            private int last = -1; // number of the tag returned last, -1 if removed
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public String next() {
+                if (next < 0)
+                    throw new NoSuchElementException();
+                last = next;
+                next = nextId(next + 1);
+                return TagDictionary.name(last);
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0)
+                    throw new IllegalStateException();
+                clearId(last);
+                last = -1;
+            }
+        };
+    }
+
+    private void clearId(int id) {
+        words[id >>> 6] &= ~(1L << id);
+    }
+}
@@ -71,6 +71,21 @@ public class User {
         this.banned = banned;
     }
 
+    /**
+     * copy constructor, the copy has its own course sets
+     *
+     * @param other the user to copy
+     */
+    public User(User other) {
+        this.userName = other.userName;
+        this.courses = other.courses == null ? null : new HashSet<>(other.courses);
+        this.shoppingCart = other.shoppingCart == null ? null : new HashSet<>(other.shoppingCart);
+        this.name = other.name;
+        this.address = other.address;
+        this.email = other.email;
+        this.banned = other.banned;
+    }
+
     public String getUserName() {
         return this.userName;
     }
@@ -0,0 +1,48 @@
+package com.estore.api.estoreapi.ordering;
+
+import java.util.Comparator;
+
+import com.estore.api.estoreapi.model.Course;
+
+/**
+ * The orders a listing of courses can be sorted in
+ * <br>
+ * Each order falls back to the next comparators, and finally to the id, so no
+ * two courses ever tie
+ */
+public enum CourseOrder {
+    POPULARITY(new OrderByPopularity().thenComparing(new OrderByName())),
+    NAME(new OrderByName().thenComparing(new OrderByPopularity())),
+    PRICE(new OrderByPrice().thenComparing(new OrderByPopularity()).thenComparing(new OrderByName()));
+
+    private final Comparator<Course> comparator; // Total order of the courses
+
+    CourseOrder(Comparator<Course> comparator) {
+        this.comparator = comparator.thenComparingInt(Course::getId);
+    }
+
+    /**
+     * The comparator sorting courses in this order
+     *
+     * @return a comparator that only returns zero for courses with the same id
+     */
+    public Comparator<Course> comparator() {
+        return comparator;
+    }
+
+    /**
+     * Finds the order named by a request parameter, ignoring case
+     *
+     * @param name The name of the order, popularity when null
+     *
+     * @return the order, or null if no order has that name
+     */
+    public static CourseOrder parse(String name) {
+        if (name == null)
+            return POPULARITY;
+        for (CourseOrder order : values())
+            if (order.name().equalsIgnoreCase(name))
+                return order;
+        return null;
+    }
+}
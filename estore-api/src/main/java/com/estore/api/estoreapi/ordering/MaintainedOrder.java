@@ -0,0 +1,100 @@
+package com.estore.api.estoreapi.ordering;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import com.estore.api.estoreapi.model.Course;
+
+/**
+ * Courses kept sorted in one {@linkplain CourseOrder order} as they change
+ * <br>
+ * Each change costs O(log n), so a listing is a walk of the sorted set instead
+ * of a sort of the whole catalog. The set holds its own copy of the sorted
+ * fields of each course, so a course changed in place is found again under
+ * the key it was sorted by
+ * <br>
+ * Not thread safe, the DAO only uses it while holding the lock on its courses
+ */
+public class MaintainedOrder {
+    private final TreeSet<Course> sorted; // Copies of the courses, in order
+    private final Map<Integer, Course> keys = new HashMap<>(); // Copy each course is sorted under
+
+    /**
+     * Creates an empty order
+     *
+     * @param order The {@link CourseOrder order} to keep the courses in
+     */
+    public MaintainedOrder(CourseOrder order) {
+        this.sorted = new TreeSet<>(order.comparator());
+    }
+
+    /**
+     * Sorts a {@linkplain Course course} in, replacing whatever was sorted in for
+     * its id before
+     *
+     * @param course The {@link Course course} to add
+     */
+    public void add(Course course) {
+        remove(course.getId());
+        Course key = course.toSummary();
+        keys.put(key.getId(), key);
+        sorted.add(key);
+    }
+
+    /**
+     * Removes a {@linkplain Course course} from the order
+     *
+     * @param id The id of the {@link Course course}, nothing happens if it is
+     *           not in the order
+     */
+    public void remove(int id) {
+        Course key = keys.remove(id);
+        if (key != null)
+            sorted.remove(key);
+    }
+
+    /**
+     * Removes every {@linkplain Course course} from the order
+     */
+    public void clear() {
+        sorted.clear();
+        keys.clear();
+    }
+
+    /**
+     * Lists the ids of the {@linkplain Course courses} that come after a key, in
+     * order
+     *
+     * @param after A key holding the sorted fields of the last {@link Course
+     *              course} already listed, null to start from the first
+     * @param count The most ids to list
+     *
+     * @return The ids, may be empty
+     */
+    public List<Integer> idsAfter(Course after, int count) {
+        NavigableSet<Course> tail = after == null ? sorted : sorted.tailSet(after, false);
+        List<Integer> ids = new ArrayList<>(Math.min(count, tail.size()));
+        for (Course key : tail) {
+            if (ids.size() == count)
+                break;
+            ids.add(key.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Lists the ids of the {@linkplain Course courses} in order
+     *
+     * @return The ids, may be empty
+     */
+    public List<Integer> ids() {
+        List<Integer> ids = new ArrayList<>(sorted.size());
+        for (Course key : sorted)
+            ids.add(key.getId());
+        return ids;
+    }
+}
@@ -0,0 +1,163 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * An append-only segment file of {@linkplain LogRecord records}, one JSON
+ * object per line
+ * <br>
+ * Appending costs the size of the record rather than the size of the store,
+ * and the file is replayed on top of the snapshot when the store is loaded
+ */
+public class AppendLog {
+    private static final Logger LOG = Logger.getLogger(AppendLog.class.getName());
+
+    private final File file; // Segment file records are appended to
+    private final ObjectMapper objectMapper; // Converts records to and from JSON lines
+
+    /**
+     * Creates an append log backed by the given file
+     * <br>
+     * The file is created on the first append
+     *
+     * @param filename     Segment file to append to and replay from
+     * @param objectMapper Provides JSON Object to/from Java Object serialization
+     *                     and deserialization
+     */
+    public AppendLog(String filename, ObjectMapper objectMapper) {
+        this.file = new File(filename);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Appends a {@linkplain LogRecord record} to the end of the segment file and
+     * forces it to disk
+     *
+     * @param record The {@link LogRecord record} to append
+     *
+     * @throws IOException when the file cannot be written to
+     */
+    public void append(LogRecord record) throws IOException {
+        append(List.of(record));
+    }
+
+    /**
+     * Appends a batch of {@linkplain LogRecord records} to the end of the
+     * segment file in one write and forces them to disk together
+     *
+     * @param records The {@link LogRecord records} to append, in order
+     *
+     * @throws IOException when the file cannot be written to
+     */
+    public synchronized void append(List<LogRecord> records) throws IOException {
+        ByteArrayOutputStream lines = new ByteArrayOutputStream();
+        for (LogRecord record : records) {
+            lines.write(objectMapper.writeValueAsBytes(record));
+            lines.write('\n');
+        }
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            lines.writeTo(out);
+            out.getChannel().force(false);
+        }
+    }
+
+    /**
+     * Reads every {@linkplain LogRecord record} in the segment file in the order
+     * they were appended
+     * <br>
+     * A last record that cannot be parsed is treated as a write torn by a
+     * crash, so the file is cut back to the record before it. Anything after a
+     * bad record was committed, so a bad record in the middle is not cut off
+     * but reported
+     *
+     * @return The list of {@link LogRecord records}, empty if the file does not
+     *         exist yet
+     *
+     * @throws IOException when the file cannot be read from, or a record
+     *                     other than the last cannot be parsed
+     */
+    public synchronized List<LogRecord> replay() throws IOException {
+        List<LogRecord> records = new ArrayList<>();
+        if (!file.exists())
+            return records;
+
+        long validLength = 0; // bytes up to the end of the last whole record
+        JsonProcessingException torn = null; // why the record after validLength could not be parsed
+        int lineNumber = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                ++lineNumber;
+                if (line.isBlank()) {
+                    if (torn == null)
+                        validLength += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                    continue;
+                }
+                if (torn != null)
+                    throw new IOException("Corrupt record before line " + lineNumber + " of " + file, torn);
+                try {
+                    records.add(objectMapper.readValue(line, LogRecord.class));
+                } catch (JsonProcessingException e) {
+                    torn = e; // torn only if no record follows
+                    continue;
+                }
+                validLength += line.getBytes(StandardCharsets.UTF_8).length + 1;
+            }
+        }
+
+        if (torn != null) {
+            LOG.warning("Dropping torn record at the end of " + file);
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(validLength);
+            }
+        } else if (validLength > file.length()) {
+            // the last record is whole but lost its newline, so end it before
+            // anything else is appended
+            try (FileOutputStream out = new FileOutputStream(file, true)) {
+                out.write('\n');
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Checks whether any records have been appended since the log was last
+     * truncated
+     *
+     * @return true if the log holds no records
+     */
+    public synchronized boolean isEmpty() {
+        return file.length() == 0; // also true when the file does not exist
+    }
+
+    /**
+     * Discards every record in the log
+     * <br>
+     * Only safe once a snapshot containing all of their changes has been
+     * written
+     *
+     * @throws IOException when the file cannot be written to
+     */
+    public synchronized void truncate() throws IOException {
+        if (!file.exists())
+            return;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(0);
+            channel.force(true);
+        }
+    }
+}
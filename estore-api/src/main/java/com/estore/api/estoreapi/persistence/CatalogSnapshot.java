@@ -0,0 +1,359 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.estore.api.estoreapi.model.Course;
+import com.estore.api.estoreapi.ordering.CourseOrder;
+
+/**
+ * Immutable view of every {@linkplain Course course} at one version of the
+ * catalog
+ * <br>
+ * The DAO publishes a new snapshot after each committed change, so readers
+ * work against a consistent catalog without taking any lock, and writers only
+ * wait for each other. The courses are spread over a fixed number of shards
+ * by id, and a change copies only the shards it touches, so every other shard
+ * is shared between versions and a write costs a small fraction of the
+ * catalog rather than all of it
+ * <br>
+ * The courses held here are private copies that nobody changes. A listing
+ * is sorted the first time its order is asked for, and from then on each
+ * derived snapshot merges the changed courses into the listing of the one
+ * before, so a change costs one pass over the listing rather than a sort, and
+ * no reader ever waits for the DAO's lock to look at its maintained orders
+ * <br>
+ * Thread safe
+ */
+public class CatalogSnapshot {
+    private static final int SHARDS = 64; // Number of shards, a power of two
+
+    private final long version; // Version of the catalog this is a view of
+    private final Map<Integer, Course>[] shards; // Copies of the courses by id, by shard, never changed
+    private final int size; // Number of courses in every shard together
+    // Courses in each order, by ordinal, filled in the first time the order is read
+    private final AtomicReferenceArray<Course[]> listings = new AtomicReferenceArray<>(CourseOrder.values().length);
+
+    /**
+     * Creates a snapshot of some {@linkplain Course courses}
+     *
+     * @param version The version of the catalog
+     * @param courses The {@link Course courses}, copied so later changes to
+     *                them do not show through
+     */
+    public CatalogSnapshot(long version, Collection<Course> courses) {
+        this(version, split(courses));
+    }
+
+    private CatalogSnapshot(long version, Map<Integer, Course>[] shards) {
+        this.version = version;
+        this.shards = shards;
+        int size = 0;
+        for (Map<Integer, Course> shard : shards)
+            size += shard.size();
+        this.size = size;
+    }
+
+    /**
+     * Derives the snapshot following a change to one {@linkplain Course course}
+     *
+     * @param version The version of the catalog after the change
+     * @param course  The new value of the {@link Course course}, copied
+     *
+     * @return a new snapshot, this one is left as it was
+     */
+    public CatalogSnapshot with(long version, Course course) {
+        return with(version, List.of(course));
+    }
+
+    /**
+     * Derives the snapshot following a change to several
+     * {@linkplain Course courses} made together
+     *
+     * @param version The version of the catalog after the change
+     * @param changed The new values of the {@link Course courses}, copied
+     *
+     * @return a new snapshot, this one is left as it was
+     */
+    public CatalogSnapshot with(long version, Collection<Course> changed) {
+        Map<Integer, Course> copies = new HashMap<>();
+        for (Course course : changed)
+            copies.put(course.getId(), course.copy());
+
+        Map<Integer, Course>[] next = shards.clone();
+        boolean[] copied = new boolean[SHARDS];
+        for (Course copy : copies.values()) {
+            int shard = shard(copy.getId());
+            if (!copied[shard]) {
+                next[shard] = new HashMap<>(shards[shard]);
+                copied[shard] = true;
+            }
+            next[shard].put(copy.getId(), copy);
+        }
+        CatalogSnapshot snapshot = new CatalogSnapshot(version, next);
+        snapshot.mergeListings(this, copies.keySet(), copies.values());
+        return snapshot;
+    }
+
+    /**
+     * Derives the snapshot following the deletion of a {@linkplain Course
+     * course}
+     *
+     * @param version The version of the catalog after the deletion
+     * @param id      The id of the deleted {@link Course course}
+     *
+     * @return a new snapshot, this one is left as it was
+     */
+    public CatalogSnapshot without(long version, int id) {
+        Map<Integer, Course>[] next = shards.clone();
+        next[shard(id)] = new HashMap<>(shards[shard(id)]);
+        next[shard(id)].remove(id);
+        CatalogSnapshot snapshot = new CatalogSnapshot(version, next);
+        snapshot.mergeListings(this, Set.of(id), List.of());
+        return snapshot;
+    }
+
+    /**
+     * The version of the catalog this is a view of
+     *
+     * @return the version, greater for later snapshots
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Looks up a {@linkplain Course course}
+     *
+     * @param id The id of the {@link Course course}
+     *
+     * @return a copy of the {@link Course course} the caller may change, or
+     *         null if there is none with that id
+     */
+    public Course get(int id) {
+        Course course = shards[shard(id)].get(id);
+        return course == null ? null : course.copy();
+    }
+
+    /**
+     * Copies some {@linkplain Course courses}
+     *
+     * @param ids The ids of the {@link Course courses}, missing ones are
+     *            skipped
+     *
+     * @return copies of the {@link Course courses} the caller may change, in
+     *         the order of ids
+     */
+    public Course[] get(Collection<Integer> ids) {
+        Course[] copies = new Course[ids.size()];
+        int found = 0;
+        for (int id : ids) {
+            Course course = shards[shard(id)].get(id);
+            if (course != null)
+                copies[found++] = course.copy();
+        }
+        return Arrays.copyOf(copies, found);
+    }
+
+    /**
+     * Lists every {@linkplain Course course} in an order
+     *
+     * @param order The {@link CourseOrder order} of the listing
+     *
+     * @return copies of the {@link Course courses} the caller may change, may
+     *         be empty
+     */
+    public Course[] list(CourseOrder order) {
+        Course[] listing = listing(order);
+        Course[] copies = new Course[listing.length];
+        for (int i = 0; i < listing.length; ++i)
+            copies[i] = listing[i].copy();
+        return copies;
+    }
+
+    /**
+     * Lists the summaries of every {@linkplain Course course} in an order
+     *
+     * @param order The {@link CourseOrder order} of the listing
+     *
+     * @return the {@link Course#toSummary() summaries}, may be empty
+     */
+    public Course[] summaries(CourseOrder order) {
+        Course[] listing = listing(order);
+        Course[] summaries = new Course[listing.length];
+        for (int i = 0; i < listing.length; ++i)
+            summaries[i] = listing[i].toSummary();
+        return summaries;
+    }
+
+    /**
+     * Finds the {@linkplain Course courses} priced within a range, by cutting
+     * the listing by price down to the range
+     * <br>
+     * For the DAO only, which copies whatever it hands out
+     *
+     * @param minPrice The lowest price included, null for no lower bound
+     * @param maxPrice The highest price included, null for no upper bound
+     *
+     * @return the {@link Course courses} in the range, dearest first, shared
+     *         with the snapshot and must not be changed
+     */
+    List<Course> priced(Double minPrice, Double maxPrice) {
+        Course[] byPrice = listing(CourseOrder.PRICE);
+        // the listing is dearest first, so the range starts after the courses
+        // dearer than maxPrice and ends before the first cheaper than minPrice
+        int start = maxPrice == null ? 0 : firstAtMost(byPrice, maxPrice, false);
+        int end = minPrice == null ? byPrice.length : firstAtMost(byPrice, minPrice, true);
+        return start < end ? Collections.unmodifiableList(Arrays.asList(byPrice).subList(start, end)) : List.of();
+    }
+
+    /**
+     * Finds the first course of a listing by price at most a price, or below
+     * it if strictly
+     */
+    private static int firstAtMost(Course[] byPrice, double price, boolean strictly) {
+        int low = 0;
+        int high = byPrice.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            double at = byPrice[middle].getPrice();
+            if (strictly ? at >= price : at > price)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * Takes the {@linkplain Course courses} following a sort key in an order
+     *
+     * @param order The {@link CourseOrder order} of the listing
+     * @param after The sort key to start after, null to start from the first
+     * @param count The most {@link Course courses} to take
+     *
+     * @return copies of the {@link Course courses} the caller may change, in
+     *         order
+     */
+    public List<Course> page(CourseOrder order, Course after, int count) {
+        Course[] listing = listing(order);
+        int start = 0;
+        if (after != null) {
+            int found = Arrays.binarySearch(listing, after, order.comparator());
+            start = found >= 0 ? found + 1 : -found - 1;
+        }
+        int end = (int) Math.min(listing.length, (long) start + count);
+        List<Course> page = new ArrayList<>(Math.max(0, end - start));
+        for (int i = start; i < end; ++i)
+            page.add(listing[i].copy());
+        return page;
+    }
+
+    /**
+     * Copies the summaries of some {@linkplain Course courses}
+     *
+     * @param ids The ids of the {@link Course courses}, missing ones are
+     *            skipped
+     *
+     * @return the {@link Course#toSummary() summaries}, in the order of ids
+     */
+    public Course[] summaries(Collection<Integer> ids) {
+        Course[] summaries = new Course[ids.size()];
+        int found = 0;
+        for (int id : ids) {
+            Course course = shards[shard(id)].get(id);
+            if (course != null)
+                summaries[found++] = course.toSummary();
+        }
+        return Arrays.copyOf(summaries, found);
+    }
+
+    /**
+     * The number of {@linkplain Course courses} in the snapshot
+     *
+     * @return the number of {@link Course courses}
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The {@linkplain Course courses} in an order, shared by every reader
+     */
+    private Course[] listing(CourseOrder order) {
+        Course[] listing = listings.get(order.ordinal());
+        if (listing == null) {
+            // two readers may both sort, and either result is the same
+            listing = sort(order.comparator());
+            listings.compareAndSet(order.ordinal(), null, listing);
+        }
+        return listing;
+    }
+
+    /**
+     * Carries every listing the previous snapshot had worked out over to this
+     * one, with the changed courses moved to their new places
+     * <br>
+     * Called only while this snapshot is not yet published
+     *
+     * @param previous The snapshot this one was derived from
+     * @param removed  The ids of every changed or deleted course
+     * @param inserted The new values of the changed courses
+     */
+    private void mergeListings(CatalogSnapshot previous, Set<Integer> removed, Collection<Course> inserted) {
+        for (CourseOrder order : CourseOrder.values()) {
+            Course[] old = previous.listings.get(order.ordinal());
+            if (old == null)
+                continue; // sorted if it is ever asked for
+            Comparator<Course> comparator = order.comparator();
+            List<Course> moved = new ArrayList<>(inserted);
+            moved.sort(comparator);
+
+            Course[] merged = new Course[size];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < old.length || j < moved.size()) {
+                if (i < old.length && removed.contains(old[i].getId()))
+                    ++i;
+                else if (j == moved.size() || i < old.length && comparator.compare(old[i], moved.get(j)) <= 0)
+                    merged[k++] = old[i++];
+                else
+                    merged[k++] = moved.get(j++);
+            }
+            listings.set(order.ordinal(), merged);
+        }
+    }
+
+    private Course[] sort(Comparator<Course> comparator) {
+        Course[] listing = new Course[size];
+        int i = 0;
+        for (Map<Integer, Course> shard : shards)
+            for (Course course : shard.values())
+                listing[i++] = course;
+        Arrays.sort(listing, comparator);
+        return listing;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Integer, Course>[] split(Collection<Course> courses) {
+        Map<Integer, Course>[] shards = new Map[SHARDS];
+        for (int i = 0; i < SHARDS; ++i)
+            shards[i] = new HashMap<>();
+        for (Course course : courses)
+            shards[shard(course.getId())].put(course.getId(), course.copy());
+        return shards;
+    }
+
+    private static int shard(int id) {
+        return id & (SHARDS - 1);
+    }
+}
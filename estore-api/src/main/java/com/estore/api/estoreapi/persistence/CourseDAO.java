@@ -1,8 +1,15 @@
 package com.estore.api.estoreapi.persistence;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.Set;
+
 import com.estore.api.estoreapi.model.Course;
 import com.estore.api.estoreapi.model.User;
+import com.estore.api.estoreapi.ordering.CourseOrder;
+import com.estore.api.estoreapi.recommendation.CacheStats;
+import com.estore.api.estoreapi.search.CourseQuery;
+import com.estore.api.estoreapi.search.Facets;
 
 public interface CourseDAO {
     /**
@@ -14,6 +21,17 @@ public interface CourseDAO {
      */
     Course[] getCourses() throws IOException;
 
+    /**
+     * Retrieves all {@linkplain Course courses} sorted in an order
+     *
+     * @param order The {@link CourseOrder order} to list the courses in
+     *
+     * @return An array of {@link Course course} objects, may be empty
+     *
+     * @throws IOException if an issue with underlying storage
+     */
+    Course[] getCourses(CourseOrder order) throws IOException;
+
     /**
      * Finds all {@linkplain Course courses} whose name contains the given text
      *
@@ -26,12 +44,212 @@ public interface CourseDAO {
      */
     Course[] findCourses(String containsText) throws IOException;
 
+    /**
+     * Finds all {@linkplain Course courses} priced within a range
+     *
+     * @param minPrice The lowest price included, null for no lower bound
+     * @param maxPrice The highest price included, null for no upper bound
+     * @param order    The {@link CourseOrder order} to list the courses in
+     *
+     * @return An array of {@link Course courses} in the range, may be empty
+     *
+     * @throws IOException if an issue with underlying storage
+     */
+    Course[] findCoursesByPrice(Double minPrice, Double maxPrice, CourseOrder order) throws IOException;
+
+    /**
+     * Retrieves one page of all {@linkplain Course courses} sorted in an order
+     *
+     * @param order The {@link CourseOrder order} to list the courses in
+     * @param after The {@link Page#getNextCursor() cursor} of the previous page,
+     *              null for the first page
+     * @param limit The most {@link Course courses} on the page
+     *
+     * @return The page of {@link Course courses}
+     *
+     * @throws IllegalArgumentException if after is not a cursor of this listing
+     * @throws IOException              if an issue with underlying storage
+     */
+    Page<Course> getCourses(CourseOrder order, String after, int limit) throws IOException;
+
+    /**
+     * Finds one page of the {@linkplain Course courses} whose name contains the
+     * given text, in the same order as {@link #findCourses(String)}
+     *
+     * @param containsText The text to match against
+     * @param after        The {@link Page#getNextCursor() cursor} of the
+     *                     previous page, null for the first page
+     * @param limit        The most {@link Course courses} on the page
+     *
+     * @return The page of {@link Course courses}
+     *
+     * @throws IllegalArgumentException if after is not a cursor of this listing
+     * @throws IOException              if an issue with underlying storage
+     */
+    Page<Course> findCourses(String containsText, String after, int limit) throws IOException;
+
+    /**
+     * Finds one page of the {@linkplain Course courses} priced within a range
+     *
+     * @param minPrice The lowest price included, null for no lower bound
+     * @param maxPrice The highest price included, null for no upper bound
+     * @param order    The {@link CourseOrder order} to list the courses in
+     * @param after    The {@link Page#getNextCursor() cursor} of the previous
+     *                 page, null for the first page
+     * @param limit    The most {@link Course courses} on the page
+     *
+     * @return The page of {@link Course courses}
+     *
+     * @throws IllegalArgumentException if after is not a cursor of this listing
+     * @throws IOException              if an issue with underlying storage
+     */
+    Page<Course> findCoursesByPrice(Double minPrice, Double maxPrice, CourseOrder order, String after, int limit)
+            throws IOException;
+
+    /**
+     * Finds all {@linkplain Course courses} having some tags, optionally priced
+     * within a range
+     *
+     * @param tags     The tags to look for, every course if empty
+     * @param matchAll true for the courses having every tag, false for those
+     *                 having any of them
+     * @param minPrice The lowest price included, null for no lower bound
+     * @param maxPrice The highest price included, null for no upper bound
+     * @param order    The {@link CourseOrder order} to list the courses in
+     *
+     * @return An array of the matching {@link Course courses}, may be empty
+     *
+     * @throws IOException if an issue with underlying storage
+     */
+    Course[] findCoursesByTags(Collection<String> tags, boolean matchAll, Double minPrice, Double maxPrice,
+            CourseOrder order) throws IOException;
+
+    /**
+     * Finds one page of the {@linkplain Course courses} having some tags,
+     * optionally priced within a range
+     *
+     * @param tags     The tags to look for, every course if empty
+     * @param matchAll true for the courses having every tag, false for those
+     *                 having any of them
+     * @param minPrice The lowest price included, null for no lower bound
+     * @param maxPrice The highest price included, null for no upper bound
+     * @param order    The {@link CourseOrder order} to list the courses in
+     * @param after    The {@link Page#getNextCursor() cursor} of the previous
+     *                 page, null for the first page
+     * @param limit    The most {@link Course courses} on the page
+     *
+     * @return The page of {@link Course courses}
+     *
+     * @throws IllegalArgumentException if after is not a cursor of this listing
+     * @throws IOException              if an issue with underlying storage
+     */
+    Page<Course> findCoursesByTags(Collection<String> tags, boolean matchAll, Double minPrice, Double maxPrice,
+            CourseOrder order, String after, int limit) throws IOException;
+
+    /**
+     * Finds the {@linkplain Course courses} matching a structured query
+     * <br>
+     * The query is looked up in the index of its most selective predicate, and
+     * only the page asked for is sorted. A {@link CourseQuery#isRanked() ranked}
+     * query is scored with BM25F instead and listed most relevant first
+     *
+     * @param query The {@link CourseQuery query}, its limit and cursor pick the
+     *              page
+     *
+     * @return The page of matching {@link Course courses}, all of them if the
+     *         query has no limit
+     *
+     * @throws IllegalArgumentException if the cursor of query is not a cursor of
+     *                                  this listing
+     * @throws IOException              if an issue with underlying storage
+     */
+    Page<Course> search(CourseQuery query) throws IOException;
+
+    /**
+     * Suggests course titles and tags completing what was typed in the search
+     * box
+     * <br>
+     * Answered from an immutable snapshot without taking the lock on the
+     * catalog, which is only rebuilt after a title or tag changed
+     *
+     * @param prefix The text typed so far, ignoring case
+     * @param limit  The most suggestions wanted
+     *
+     * @return the suggestions, most popular first, may be empty
+     */
+    String[] suggest(String prefix, int limit);
+
+    /**
+     * Counts the {@linkplain Course courses} having some tags, optionally priced
+     * within a range, by tag and by price bucket
+     *
+     * @param tags     The tags to look for, every course if empty
+     * @param matchAll true for the courses having every tag, false for those
+     *                 having any of them
+     * @param minPrice The lowest price included, null for no lower bound
+     * @param maxPrice The highest price included, null for no upper bound
+     *
+     * @return The {@link Facets facets} of the matching {@link Course courses}
+     *
+     * @throws IOException if an issue with underlying storage
+     */
+    Facets getFacets(Collection<String> tags, boolean matchAll, Double minPrice, Double maxPrice)
+            throws IOException;
+
+    /**
+     * Retrieves the {@linkplain Course#toSummary() summaries} of all
+     * {@linkplain Course courses}, in the same order as {@link #getCourses()}
+     *
+     * @return An array of {@link Course#toSummary() summaries}, may be empty
+     *
+     * @throws IOException if an issue with underlying storage
+     */
+    Course[] getCourseSummaries() throws IOException;
+
+    /**
+     * Retrieves the {@linkplain Course#toSummary() summaries} of all
+     * {@linkplain Course courses} sorted in an order
+     *
+     * @param order The {@link CourseOrder order} to list the courses in
+     *
+     * @return An array of {@link Course#toSummary() summaries}, may be empty
+     *
+     * @throws IOException if an issue with underlying storage
+     */
+    Course[] getCourseSummaries(CourseOrder order) throws IOException;
+
+    /**
+     * Finds the {@linkplain Course#toSummary() summaries} of the {@linkplain Course
+     * courses} {@link #findCourses(String)} would find
+     *
+     * @param containsText The text to match against
+     *
+     * @return An array of {@link Course#toSummary() summaries}, may be empty
+     *
+     * @throws IOException if an issue with underlying storage
+     */
+    Course[] findCourseSummaries(String containsText) throws IOException;
+
+    /**
+     * Retrieves the {@linkplain Course#toSummary() summaries} of the
+     * {@linkplain Course courses} with the given ids
+     *
+     * @param ids The ids of the {@link Course courses}, ids of courses that do
+     *            not exist are skipped
+     *
+     * @return An array of {@link Course#toSummary() summaries} in the order of ids,
+     *         may be empty
+     */
+    Course[] getCourseSummaries(Collection<Integer> ids);
+
     /**
      * Retrieves a {@linkplain Course course} with the given id
      *
      * @param id The id of the {@link Course course} to get
      *
-     * @return a {@link Course course} object with the matching id
+     * @return a copy of the {@link Course course} with the matching id, changes
+     *         to it only reach the catalog through
+     *         {@link #updateCourse(Course)}
      *         <br>
      *         null if no {@link Course course} with a matching id is found
      *
@@ -87,5 +305,83 @@ public interface CourseDAO {
      */
     public Course[] getRecommendedCoursesForUser(User user);
 
+    /**
+     * Gets the {@link Course courses} most recommended to the user, without
+     * ranking the rest of the catalog
+     *
+     * @param user {@link User user} user object of user currently loged in.
+     * @param amt  the most courses to recommend
+     * @return an array of up to amt recommended {@linkplain Course courses}, in
+     *         the same order as {@link #getRecommendedCoursesForUser(User)},
+     *         may be empty.
+     */
+    Course[] getRecommendedCoursesForUser(User user, int amt);
+
+    /**
+     * Records that a {@linkplain User user} enrolled in {@linkplain Course
+     * courses}, so that courses taken together are recommended together
+     *
+     * @param userName The name of the {@link User user}
+     * @param owned    The ids of the {@link Course courses} the user had before
+     * @param added    The ids of the {@link Course courses} the user just
+     *                 enrolled in, none of them in owned
+     */
+    void recordEnrollment(String userName, Set<Integer> owned, Set<Integer> added);
+
+    /**
+     * Enrolls a {@linkplain User user} in {@linkplain Course courses} as one
+     * unit of work
+     * <br>
+     * Every course the user newly enrolled in counts one more student, and the
+     * enrollment is {@link #recordEnrollment(String, Set, Set) recorded}. The
+     * counts are kept apart from the courses and saved from time to time, so
+     * the user record is what makes the purchase durable
+     *
+     * @param userName The name of the {@link User user}
+     * @param owned    The ids of the {@link Course courses} the user had before
+     * @param added    The ids of the {@link Course courses} the user is
+     *                 enrolling in, none of them in owned
+     *
+     * @return the ids in added that are {@link Course courses}, the ones the
+     *         user is now enrolled in
+     *
+     * @throws IOException if underlying storage cannot be accessed, in which
+     *                     case no count changed
+     */
+    Set<Integer> enroll(String userName, Set<Integer> owned, Set<Integer> added) throws IOException;
+
+    /**
+     * Takes back an {@link #enroll(String, Set, Set) enrollment} whose
+     * {@linkplain User user} could not be saved, so that the counts of the
+     * {@linkplain Course courses} match the users again
+     *
+     * @param ids The ids of the {@link Course courses} enrolled in
+     *
+     * @throws IOException if underlying storage cannot be accessed
+     */
+    void unenroll(Set<Integer> ids) throws IOException;
+
+    /**
+     * Counts how often recommendations were answered from the cache
+     *
+     * @return the {@link CacheStats counters} of the recommendation cache
+     */
+    CacheStats getRecommendationCacheStats();
+
+    /**
+     * Counts how often text searches were answered from the cache
+     *
+     * @return the {@link CacheStats counters} of the search cache
+     */
+    CacheStats getSearchCacheStats();
+
+    /**
+     * Writes any {@linkplain Course course} changes still buffered in memory to
+     * storage before returning
+     *
+     * @throws IOException if underlying storage cannot be accessed
+     */
+    void flush() throws IOException;
+
     void setUserDAO(UserDAO userDAO);
 }
@@ -1,27 +1,51 @@
 package com.estore.api.estoreapi.persistence;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
+
+import javax.annotation.PreDestroy;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.estore.api.estoreapi.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import com.estore.api.estoreapi.model.Course;
-import com.estore.api.estoreapi.ordering.OrderByName;
-import com.estore.api.estoreapi.ordering.OrderByPopularity;
-import com.estore.api.estoreapi.ordering.OrderByPrice;
+import com.estore.api.estoreapi.model.Image;
+import com.estore.api.estoreapi.ordering.CourseOrder;
+import com.estore.api.estoreapi.ordering.MaintainedOrder;
+import com.estore.api.estoreapi.recommendation.CacheStats;
+import com.estore.api.estoreapi.recommendation.CoEnrollment;
+import com.estore.api.estoreapi.recommendation.RecommendationCache;
+import com.estore.api.estoreapi.recommendation.SimilarityGraph;
+import com.estore.api.estoreapi.recommendation.WeightedGraph;
+import com.estore.api.estoreapi.search.CourseQuery;
+import com.estore.api.estoreapi.search.FacetIndex;
+import com.estore.api.estoreapi.search.FuzzyIndex;
+import com.estore.api.estoreapi.search.Facets;
+import com.estore.api.estoreapi.search.PriceIndex;
+import com.estore.api.estoreapi.search.QueryPlanner;
+import com.estore.api.estoreapi.search.RelevanceIndex;
+import com.estore.api.estoreapi.search.SearchCache;
+import com.estore.api.estoreapi.search.SuggestIndex;
+import com.estore.api.estoreapi.search.TextIndex;
 
 /**
  * Implements the functionality for JSON file-based peristance for courses
@@ -35,6 +59,7 @@ import com.estore.api.estoreapi.ordering.OrderByPrice;
 @Component
 public class CourseFileDAO implements CourseDAO {
     private static final Logger LOG = Logger.getLogger(Course.class.getName());
+    private static final String RANKED_CURSOR = "RELEVANCE"; // First field of the cursor of a ranked search
     Map<Integer, Course> courses; // Provides a local cache of the Course objects
     // so that we don't need to read from the file
     // each time
@@ -42,7 +67,50 @@ public class CourseFileDAO implements CourseDAO {
                                        // objects and JSON text format written
                                        // to the file
     private static int nextId; // The next Id to assign to a new Course
-    private String filename; // Filename to read from and write to
+    private SnapshotFile snapshot; // Snapshot file to read from and write to
+    private AppendLog log; // Log of mutations since the snapshot in filename,
+                           // null when every mutation rewrites the whole file
+    private Map<Integer, Course> pending = new LinkedHashMap<>(); // Changes not yet appended to the log,
+                                                                 // null for a deleted course
+    private WriteBehind writeBehind; // Decides when changes reach the files
+    private ImageStore imageStore; // Holds the course images, null to keep them inline
+    private final TextIndex textIndex = new TextIndex(); // Finds courses by text, guarded by the lock on courses
+    private final PriceIndex priceIndex = new PriceIndex(); // Finds courses by price, guarded by the lock on courses
+    private final FacetIndex facetIndex = new FacetIndex(); // Finds and counts courses by tag and price bucket,
+                                                            // guarded by the lock on courses
+    // Scores courses against the words of a search, guarded by the lock on courses
+    private final RelevanceIndex relevanceIndex = new RelevanceIndex();
+    // Finds courses by words close to those searched, guarded by the lock on courses
+    private final FuzzyIndex fuzzyIndex = new FuzzyIndex();
+    // Titles and tags to complete the search box from, guarded by the lock on courses
+    private final SuggestIndex suggestIndex = new SuggestIndex();
+    // Suggestions read without the lock, published with the catalog snapshot
+    private volatile SuggestIndex.Snapshot suggestions;
+    private boolean suggestionsChanged; // Whether a title or tag changed since the last publish, guarded by the lock
+
+    // Bumped by every change to the courses, written only while holding the lock on courses
+    private volatile long catalogVersion;
+    // Immutable view of the courses at the last committed change, read without the lock,
+    // replaced only while holding the lock on courses
+    private volatile CatalogSnapshot catalog;
+    private SearchCache searchCache; // Results of text searches by catalog version, null to always search
+    // Number of students of each course, folded into the courses from time to time
+    private EnrollmentCounters counters;
+    // Answers structured queries from the indexes above, guarded by the lock on courses
+    private final QueryPlanner planner = new QueryPlanner(textIndex, priceIndex, facetIndex, relevanceIndex,
+            fuzzyIndex);
+    // Links courses sharing tags, guarded by the lock on courses
+    private final SimilarityGraph similarity = new SimilarityGraph();
+    // Links courses taken by the same users, guarded by the lock on courses
+    private CoEnrollment coEnrollment = new CoEnrollment();
+    private double coEnrollmentWeight; // Worth of one shared user next to one shared tag
+    // Recommendations already made, null to always recompute them, guarded by the lock on courses
+    private RecommendationCache recommendationCache;
+    // Enrollments recorded while the co-enrollment is rebuilt, null when it is not,
+    // guarded by the lock on courses
+    private List<Enrollment> enrollmentJournal;
+    // Sorted listings of the courses, guarded by the lock on courses
+    private final Map<CourseOrder, MaintainedOrder> orders = new EnumMap<>(CourseOrder.class);
     private CourseDAO courseDAO;
     private UserDAO userDAO;
 
@@ -55,10 +123,56 @@ public class CourseFileDAO implements CourseDAO {
      *
      * @throws IOException when file cannot be accessed or read from
      */
-    public CourseFileDAO(@Value("${courses.file}") String filename, ObjectMapper objectMapper) throws IOException {
-        this.filename = filename;
+    public CourseFileDAO(String filename, ObjectMapper objectMapper) throws IOException {
+        this(filename, objectMapper, null, 0, null, 1, null, null, null);
+    }
+
+    /**
+     * Creates a Course File Data Access Object that can append each mutation to
+     * a log instead of rewriting the whole file, and can buffer mutations so
+     * that many of them are written together
+     *
+     * @param filename            Filename of the snapshot to read from
+     * @param objectMapper        Provides JSON Object to/from Java Object
+     *                            serialization and deserialization
+     * @param logFilename         Filename of the log to append mutations to, or
+     *                            empty to rewrite filename on every mutation
+     * @param flushDelay          Longest a mutation may wait to be written, in
+     *                            milliseconds, or zero to write every mutation
+     *                            through
+     * @param imageStore          Store to move inline course images into, or
+     *                            null to keep them in the course file
+     * @param coEnrollmentWeight  Worth of one user taking two courses, next to
+     *                            the two courses sharing one tag, when
+     *                            recommending
+     * @param recommendationCache Cache of the recommendations made to each
+     *                            user, or null to compute them on every request
+     * @param searchCache         Cache of the results of text searches, or null
+     *                            to search on every request
+     * @param counters            Counts of the students of each course, or
+     *                            null to count them in memory only
+     *
+     * @throws IOException when a file cannot be accessed or read from
+     */
+    @Autowired
+    public CourseFileDAO(@Value("${courses.file}") String filename, ObjectMapper objectMapper,
+            @Value("${courses.log:}") String logFilename,
+            @Value("${courses.flush-delay-ms:0}") long flushDelay, ImageStore imageStore,
+            @Value("${recommendations.co-enrollment-weight:1}") double coEnrollmentWeight,
+            RecommendationCache recommendationCache, SearchCache searchCache, EnrollmentCounters counters)
+            throws IOException {
+        this.snapshot = new SnapshotFile(filename, objectMapper);
         this.objectMapper = objectMapper;
+        if (logFilename != null && !logFilename.isEmpty())
+            this.log = new AppendLog(logFilename, objectMapper);
+        this.writeBehind = new WriteBehind("courses-flusher", flushDelay, this::flushChanges);
+        this.imageStore = imageStore;
+        this.coEnrollmentWeight = coEnrollmentWeight;
+        this.recommendationCache = recommendationCache;
+        this.searchCache = searchCache;
+        this.counters = counters != null ? counters : new EnrollmentCounters("", objectMapper);
         load(); // load the courses from the file
+        migrateImages();
     }
 
     /**
@@ -72,141 +186,709 @@ public class CourseFileDAO implements CourseDAO {
         return id;
     }
 
-    public ArrayList<Course> getCoursesByPrice(Double price) {
-        ArrayList<Course> courseArrayList = new ArrayList<>();
-
-        for (Course course : courses.values()) {
-            if (course.getPrice() <= price) {
-                courseArrayList.add(course);
-            }
-        }
-        return courseArrayList;
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Course[] getRecommendedCoursesForUser(User user) {
+        return getRecommendedCoursesForUser(user, Integer.MAX_VALUE);
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public Course[] getRecommendedCoursesForUser(User user) {
+    public Course[] getRecommendedCoursesForUser(User user, int amt) {
         if (user == null) {
             return new Course[0];
         }
 
-        Course[] allCourses = getCoursesArray(null);
-        Set<Course> userCoursesSet = user.getCourses().stream().map(this::getCourse).collect(Collectors.toSet());
-        HashMap<Course, Integer> courseTagHits = new HashMap<>();
-
-        for (Course siteCourse : allCourses) {
-            for (Course userCourse : userCoursesSet) {
-                if (siteCourse != userCourse) {
-                    for (String userCourseTag : userCourse.getTags()) {
-                        if (siteCourse.getTags().contains(userCourseTag) && !userCoursesSet.contains(siteCourse)) {
-                            Integer temp = courseTagHits.computeIfPresent(siteCourse, (c, i) -> i + 1);
-                            courseTagHits.putIfAbsent(siteCourse, temp == null ? 0 : temp); // the most unreadable code
-                                                                                            // i've ever written
-                        }
-                    }
-                }
+        // a cached answer is read without the lock, only working one out needs the graphs
+        List<Integer> ids = recommendationCache == null ? null : recommendationCache.get(user.getUserName(), amt);
+        if (ids == null) {
+            synchronized (courses) {
+                // among courses sharing as many tags, the less enrolled and then
+                // the newer come first
+                Comparator<Integer> tieBreak = Comparator
+                        .<Integer>comparingInt(id -> courses.get(id).getStudentsEnrolled())
+                        .thenComparing(Comparator.reverseOrder());
+                ids = WeightedGraph.recommend(List.of(similarity, coEnrollment),
+                        new double[] { 1, coEnrollmentWeight }, user.getCourses(), amt, tieBreak);
+                if (recommendationCache != null)
+                    recommendationCache.put(user.getUserName(), amt, ids);
             }
         }
+        return catalog.get(ids);
+    }
 
-        // sort my how many tag hits there are
-        List<Map.Entry<Course, Integer>> entryList = new ArrayList<>(courseTagHits.entrySet());
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void recordEnrollment(String userName, Set<Integer> owned, Set<Integer> added) {
+        Enrollment enrollment = new Enrollment(userName, owned, added);
+        synchronized (courses) {
+            record(enrollment);
+        }
+    }
+
+    /**
+     * Links the courses of an enrollment and drops the recommendations of its
+     * user
+     * <br>
+     * Must be called while holding the lock on the map
+     *
+     * @param enrollment The enrollment
+     */
+    private void record(Enrollment enrollment) {
+        enrollment.addTo(coEnrollment);
+        if (enrollmentJournal != null)
+            enrollmentJournal.add(enrollment);
+        if (recommendationCache != null)
+            recommendationCache.invalidate(enrollment.userName);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br>
+     * Only the enrollment counters are changed, so no course is copied or
+     * written; the counts reach the listings at the next
+     * {@link #applyEnrollmentCounts() fold}
+     */
+    @Override
+    public Set<Integer> enroll(String userName, Set<Integer> owned, Set<Integer> added) {
+        Set<Integer> enrolled = new HashSet<>();
+        for (int id : added)
+            if (counters.add(id, 1))
+                enrolled.add(id); // deleted since it was put in the cart otherwise
+        synchronized (courses) {
+            record(new Enrollment(userName, owned, enrolled));
+        }
+        return enrolled;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void unenroll(Set<Integer> ids) {
+        for (int id : ids)
+            counters.add(id, -1);
+    }
 
-        Collections.sort(entryList, new Comparator<Map.Entry<Course, Integer>>() {
-            public int compare(Map.Entry<Course, Integer> o1,
-                    Map.Entry<Course, Integer> o2) {
-                return (o2.getValue()).compareTo(o1.getValue());
+    /**
+     * Folds the enrollment counters into the {@linkplain Course courses} they
+     * changed since the last fold, so the popularity order and the listings
+     * catch up with them, publishing one catalog snapshot for all of them
+     * <br>
+     * Courses are replaced by changed copies rather than changed in place, so
+     * readers of an older snapshot are not affected. The counts are not
+     * written with the courses, the counters save them to their own file
+     * <br>
+     * Only the popularity order compares counts, so it is the only index
+     * updated. The catalog version stays as it is, so cached searches and
+     * recommendations are kept, at the cost of listing matches by counts up
+     * to one fold older until the next real change to the catalog
+     */
+    public void applyEnrollmentCounts() {
+        synchronized (courses) {
+            List<Course> changed = new ArrayList<>();
+            MaintainedOrder byPopularity = orders.get(CourseOrder.POPULARITY);
+            for (int id : counters.drainChanged()) {
+                Course course = courses.get(id);
+                int count = counters.get(id);
+                if (course == null || course.getStudentsEnrolled() == count)
+                    continue;
+                Course counted = course.copy();
+                counted.setStudentsEnrolled(count);
+                courses.put(id, counted);
+                byPopularity.add(counted);
+                changed.add(counted);
             }
-        }.thenComparing((c1, c2) -> {
-            return c1.getKey().getStudentsEnrolled() - c2.getKey().getStudentsEnrolled();
-        }));
+            if (!changed.isEmpty())
+                publish(catalog.with(catalogVersion, changed));
+        }
+    }
+
+    /**
+     * Folds the enrollment counters into the courses every
+     * courses.counters-refresh-interval-ms milliseconds
+     */
+    @Scheduled(initialDelayString = "${courses.counters-refresh-interval-ms:1000}",
+            fixedDelayString = "${courses.counters-refresh-interval-ms:1000}")
+    public void applyEnrollmentCountsInBackground() {
+        applyEnrollmentCounts();
+    }
+
+    /**
+     * Rebuilds the co-enrollment of the courses from the enrollments of every
+     * user, dropping whatever drifted from them
+     * <br>
+     * The matrix is built outside the lock; enrollments recorded meanwhile are
+     * kept aside and added to it unless the users read already had them
+     */
+    public void rebuildCoEnrollment() {
+        synchronized (courses) {
+            enrollmentJournal = new ArrayList<>();
+        }
+        Map<String, Set<Integer>> enrollments = userDAO.getEnrollments();
+        CoEnrollment rebuilt = new CoEnrollment();
+        for (Set<Integer> enrolled : enrollments.values())
+            rebuilt.addUser(enrolled);
+
+        synchronized (courses) {
+            for (Enrollment enrollment : enrollmentJournal)
+                if (!enrollments.getOrDefault(enrollment.userName, Set.of()).containsAll(enrollment.added))
+                    enrollment.addTo(rebuilt);
+            enrollmentJournal = null;
+            for (int id : rebuilt.ids())
+                if (!courses.containsKey(id))
+                    rebuilt.remove(id); // deleted while rebuilding, or left enrolled by a deletion
+            coEnrollment = rebuilt;
+            invalidateRecommendations();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CacheStats getRecommendationCacheStats() {
+        return recommendationCache == null ? new CacheStats(0, 0, 0, 0) : recommendationCache.stats();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CacheStats getSearchCacheStats() {
+        return searchCache == null ? new CacheStats(0, 0, 0, 0) : searchCache.stats();
+    }
+
+    /**
+     * Drops every cached recommendation, since a course or the links between
+     * courses changed
+     * <br>
+     * Must be called while holding the lock on the map
+     */
+    private void invalidateRecommendations() {
+        if (recommendationCache != null)
+            recommendationCache.invalidateAll();
+    }
 
-        Course[] retArr = new Course[entryList.size()];
-        for (int i = 0; i < entryList.size(); ++i) {
-            retArr[i] = entryList.get(i).getKey();
+    /**
+     * Rebuilds the co-enrollment on start and then every
+     * recommendations.rebuild-interval-ms milliseconds
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${recommendations.rebuild-interval-ms:3600000}")
+    public void rebuildCoEnrollmentInBackground() {
+        if (userDAO != null)
+            rebuildCoEnrollment();
+    }
+
+    /**
+     * Courses a user just enrolled in, next to the courses they had before
+     */
+    private static class Enrollment {
+        final String userName; // name of the user
+        final Set<Integer> owned; // ids of the courses the user had
+        final Set<Integer> added; // ids of the courses the user enrolled in
+
+        Enrollment(String userName, Set<Integer> owned, Set<Integer> added) {
+            this.userName = userName;
+            this.owned = new HashSet<>(owned);
+            this.added = new HashSet<>(added);
+        }
+
+        void addTo(CoEnrollment coEnrollment) {
+            coEnrollment.addEnrollment(owned, added);
         }
-        return retArr;
     }
 
     /**
-     * Generates an array of {@linkplain Course courses} from the tree map
+     * The {@linkplain Course courses} matching a search text and the order they
+     * are listed in
+     */
+    private static class SearchResult {
+        final Collection<Integer> ids; // ids of the matching courses, unsorted
+        final CourseOrder order; // order the matches are listed in
+
+        SearchResult(Collection<Integer> ids, CourseOrder order) {
+            this.ids = ids;
+            this.order = order;
+        }
+    }
+
+    /**
+     * A {@linkplain Course course} and how relevant it is to a search
+     */
+    private static class ScoredCourse {
+        final Course course; // the matching course
+        final double score; // its relevance, higher is more relevant
+
+        ScoredCourse(Course course, double score) {
+            this.course = course;
+            this.score = score;
+        }
+    }
+
+    /**
+     * Finds the {@linkplain Course courses} that contain the text specified by
+     * containsText
+     * <br>
+     * Must be called while holding the lock on the map
+     *
+     * @param containsText The text to match against
      *
-     * @return The array of {@link Course courses}, may be empty
+     * @return The matching {@link Course courses}, by popularity, or by price if
+     *         containsText asked for the courses up to a price
      */
-    private Course[] getCoursesArray() {
-        return getCoursesArray(null);
+    private SearchResult search(String containsText) {
+        Set<Integer> ids = textIndex.search(containsText);
+        Double price = parsePrice(containsText);
+        if (price != null && ids.size() < courses.size()) {
+            // a number that is not in every course asks for the courses up to
+            // that price instead
+            return new SearchResult(priceIndex.range(null, price), CourseOrder.PRICE);
+        }
+        return new SearchResult(ids, CourseOrder.POPULARITY);
     }
 
     /**
-     * Generates an array of {@linkplain Course courses} from the tree map for any
-     * {@linkplain Course courses} that contains the text specified by containsText
+     * Lists the ids of the {@linkplain Course courses} that contain the text
+     * specified by containsText, in the order they are listed in
      * <br>
-     * If containsText is null, the array contains all of the {@linkplain Course
-     * courses}
-     * in the tree map
+     * If containsText is null, the list holds every {@linkplain Course course},
+     * by popularity
      *
-     * @return The array of {@link Course courses}, may be empty
+     * @param containsText The text to match against, null for no filter
+     *
+     * @return The ids of the {@link Course courses}, may be empty
      */
-    private Course[] getCoursesArray(String containsText) { // if containsText == null, no filter
-        ArrayList<Course> courseArrayList = new ArrayList<>();
-        Boolean byPrice = false;
+    private List<Integer> findIds(String containsText) {
+        synchronized (courses) {
+            if (containsText == null)
+                return orders.get(CourseOrder.POPULARITY).ids(); // already in order, no sorting
 
-        for (Course course : courses.values()) {
-            if (containsText == null || course.getTitle().toLowerCase().contains(containsText.toLowerCase())
-                    || course.getDescription().toLowerCase().contains(containsText.toLowerCase())
-                    || course.getTags().contains(containsText.toLowerCase())) {
-                courseArrayList.add(course);
-            } else {
-                boolean numeric = true;
-                Double num = 0.00;
-                try {
-                    num = Double.parseDouble(containsText);
-                } catch (NumberFormatException e) {
-                    numeric = false;
-                }
-
-                if (numeric) {
-                    courseArrayList = getCoursesByPrice(num);
-                    byPrice = true;
-                    break;
-                }
-            }
+            SearchResult result = search(containsText);
+            ArrayList<Course> courseArrayList = new ArrayList<>(result.ids.size());
+            for (int id : result.ids)
+                courseArrayList.add(courses.get(id));
+
+            Collections.sort(courseArrayList, result.order.comparator());
+            List<Integer> ids = new ArrayList<>(courseArrayList.size());
+            for (Course course : courseArrayList)
+                ids.add(course.getId());
+            return ids;
         }
+    }
 
-        if (byPrice) {
-            Collections.sort(courseArrayList,
-                    new OrderByPrice().thenComparing(new OrderByPopularity().thenComparing(new OrderByName())));
-        } else {
-            Collections.sort(courseArrayList, new OrderByPopularity().thenComparing(new OrderByName()));
+    /**
+     * Finds the {@linkplain Course courses} having some tags and priced within a
+     * range
+     * <br>
+     * Must be called while holding the lock on the map
+     *
+     * @param tags     The tags to look for, every course if null or empty
+     * @param matchAll true for the courses having every tag, false for those
+     *                 having any of them
+     * @param minPrice The lowest price included, null for no lower bound
+     * @param maxPrice The highest price included, null for no upper bound
+     *
+     * @return a bitmap of the ids of the matching {@link Course courses}
+     */
+    private BitSet filterByTags(Collection<String> tags, boolean matchAll, Double minPrice, Double maxPrice) {
+        BitSet result = tags == null || tags.isEmpty() ? facetIndex.all() : facetIndex.withTags(tags, matchAll);
+        if (minPrice != null || maxPrice != null) {
+            BitSet inRange = new BitSet();
+            for (int id : priceIndex.range(minPrice, maxPrice))
+                inRange.set(id);
+            result.and(inRange);
+        }
+        return result;
+    }
+
+    /**
+     * Builds the {@linkplain CourseQuery query} of a tag listing
+     *
+     * @return the query
+     */
+    private static CourseQuery tagQuery(Collection<String> tags, boolean matchAll, Double minPrice, Double maxPrice,
+            CourseOrder order, String after, Integer limit) {
+        CourseQuery query = new CourseQuery();
+        query.setTags(tags);
+        query.setMatchAll(matchAll);
+        query.setMinPrice(minPrice);
+        query.setMaxPrice(maxPrice);
+        query.setOrder(order);
+        query.setAfter(after);
+        query.setLimit(limit);
+        return query;
+    }
+
+    /**
+     * Takes one page of {@linkplain Course courses} from a maintained order
+     * <br>
+     * Must be called while holding the lock on the map
+     *
+     * @param order The {@link CourseOrder order} to list the courses in
+     * @param after The cursor of the page, null for the first page
+     * @param limit The most courses on the page
+     *
+     * @return The page of {@link Course courses}
+     *
+     * @throws IllegalArgumentException if after is not a cursor of order
+     */
+    private Page<Course> getCoursesPage(CourseOrder order, String after, int limit) {
+        // one more than the page to know if another page follows
+        List<Integer> ids = orders.get(order).idsAfter(decodeCursor(order, after), limit + 1);
+        List<Course> page = new ArrayList<>(ids.size());
+        for (int id : ids)
+            page.add(courses.get(id));
+        return toPage(page, order, limit);
+    }
+
+    /**
+     * Takes one page of {@linkplain Course courses} from an unsorted set of ids
+     * <br>
+     * Only the courses after the cursor are considered, and only the first limit
+     * of those are kept while going through them, so nothing but the page is
+     * ever sorted
+     * <br>
+     * Must be called while holding the lock on the map
+     *
+     * @param ids   The ids of the {@link Course courses} to list
+     * @param order The {@link CourseOrder order} to list the courses in
+     * @param after The cursor of the page, null for the first page
+     * @param limit The most courses on the page
+     *
+     * @return The page of {@link Course courses}
+     *
+     * @throws IllegalArgumentException if after is not a cursor of order
+     */
+    private Page<Course> getCoursesPage(Collection<Integer> ids, CourseOrder order, String after, int limit) {
+        List<Course> matches = new ArrayList<>(ids.size());
+        for (int id : ids)
+            matches.add(courses.get(id));
+        return pageOf(matches, order, after, limit);
+    }
+
+    /**
+     * Takes one page of an unsorted collection of {@linkplain Course courses},
+     * as {@link #getCoursesPage(Collection, CourseOrder, String, int)} does
+     *
+     * @param matches The {@link Course courses} to list
+     * @param order   The {@link CourseOrder order} to list the courses in
+     * @param after   The cursor of the page, null for the first page
+     * @param limit   The most courses on the page
+     *
+     * @return The page of the {@link Course courses} themselves, not copies
+     *
+     * @throws IllegalArgumentException if after is not a cursor of order
+     */
+    private static Page<Course> pageOf(Collection<Course> matches, CourseOrder order, String after, int limit) {
+        Course afterKey = decodeCursor(order, after);
+        Comparator<Course> comparator = order.comparator();
+        // the last course of the page so far is on top, ready to be replaced
+        PriorityQueue<Course> first = new PriorityQueue<>(comparator.reversed());
+        for (Course course : matches) {
+            if (afterKey != null && comparator.compare(course, afterKey) <= 0)
+                continue;
+            first.add(course);
+            if (first.size() > limit + 1)
+                first.poll();
+        }
+
+        List<Course> page = new ArrayList<>(first);
+        page.sort(comparator);
+        return toPage(page, order, limit);
+    }
+
+    /**
+     * Takes one page of {@linkplain Course courses} from a set of relevance
+     * scores, most relevant first
+     * <br>
+     * Like {@link #getCoursesPage(Collection, CourseOrder, String, int)}, only
+     * the first limit courses after the cursor are kept while going through the
+     * scores, so nothing but the page is ever sorted. Scores move a little as
+     * the catalog changes, so a later page is placed by the score the cursor
+     * was made with
+     * <br>
+     * Must be called while holding the lock on the map
+     *
+     * @param scores The relevance of each matching {@link Course course}
+     * @param order  The {@link CourseOrder order} of courses equally relevant
+     * @param after  The cursor of the page, null for the first page
+     * @param limit  The most courses on the page
+     *
+     * @return The page of {@link Course courses}
+     *
+     * @throws IllegalArgumentException if after is not a ranked cursor of order
+     */
+    private Page<Course> getRankedPage(Map<Integer, Double> scores, CourseOrder order, String after, int limit) {
+        Comparator<ScoredCourse> comparator = Comparator.<ScoredCourse>comparingDouble(scored -> -scored.score)
+                .thenComparing(scored -> scored.course, order.comparator());
+        ScoredCourse afterKey = decodeRankedCursor(order, after);
+        // the last course of the page so far is on top, ready to be replaced
+        PriorityQueue<ScoredCourse> first = new PriorityQueue<>(comparator.reversed());
+        for (Map.Entry<Integer, Double> score : scores.entrySet()) {
+            ScoredCourse scored = new ScoredCourse(courses.get(score.getKey()), score.getValue());
+            if (afterKey != null && comparator.compare(scored, afterKey) <= 0)
+                continue;
+            first.add(scored);
+            if (first.size() > limit + 1)
+                first.poll();
+        }
+
+        List<ScoredCourse> page = new ArrayList<>(first);
+        page.sort(comparator);
+        List<Course> items = new ArrayList<>(Math.min(limit, page.size()));
+        for (ScoredCourse scored : page.subList(0, Math.min(limit, page.size())))
+            items.add(scored.course);
+        if (page.size() <= limit)
+            return new Page<>(items, null);
+        ScoredCourse last = page.get(limit - 1);
+        return new Page<>(items,
+                Cursor.encode(RANKED_CURSOR, Double.toString(last.score), encodeCursor(order, last.course)));
+    }
+
+    /**
+     * Decodes a cursor made by {@link #getRankedPage(Map, CourseOrder, String, int)}
+     *
+     * @param order  The {@link CourseOrder order} of courses equally relevant
+     * @param cursor The cursor, may be null
+     *
+     * @return the score and sort key the cursor was made from, or null if cursor
+     *         is null
+     *
+     * @throws IllegalArgumentException if cursor is not a ranked cursor of order
+     */
+    private static ScoredCourse decodeRankedCursor(CourseOrder order, String cursor) {
+        if (cursor == null)
+            return null;
+        String[] fields = Cursor.decode(cursor, 3);
+        if (!RANKED_CURSOR.equals(fields[0]))
+            throw new IllegalArgumentException("Cursor is not for a ranked search");
+        return new ScoredCourse(decodeCursor(order, fields[2]), Double.parseDouble(fields[1]));
+    }
+
+    /**
+     * Cuts a sorted list of {@linkplain Course courses} down to a page
+     *
+     * @param courseList Up to limit + 1 {@link Course courses}, sorted in order
+     * @param order      The {@link CourseOrder order} of courseList
+     * @param limit      The most courses on the page
+     *
+     * @return The page, with a cursor if courseList had more than limit courses
+     */
+    private static Page<Course> toPage(List<Course> courseList, CourseOrder order, int limit) {
+        if (courseList.size() <= limit)
+            return new Page<>(courseList, null);
+        List<Course> items = new ArrayList<>(courseList.subList(0, limit));
+        return new Page<>(items, encodeCursor(order, items.get(limit - 1)));
+    }
+
+    /**
+     * Encodes the sort key of a {@linkplain Course course} as a cursor
+     * <br>
+     * The cursor holds every field any {@link CourseOrder order} compares, so
+     * the next page starts at the right place even if the course is changed or
+     * deleted meanwhile
+     *
+     * @param order  The {@link CourseOrder order} of the listing
+     * @param course The last {@link Course course} of a page
+     *
+     * @return the cursor
+     */
+    private static String encodeCursor(CourseOrder order, Course course) {
+        return Cursor.encode(order.name(), Integer.toString(course.getId()), course.getTitle(),
+                Double.toString(course.getPrice()), Integer.toString(course.getStudentsEnrolled()));
+    }
+
+    /**
+     * Decodes a cursor made by {@link #encodeCursor(CourseOrder, Course)}
+     *
+     * @param order  The {@link CourseOrder order} of the listing
+     * @param cursor The cursor, may be null
+     *
+     * @return a {@link Course course} holding the sort key, or null if cursor is
+     *         null
+     *
+     * @throws IllegalArgumentException if cursor is not a cursor of order
+     */
+    private static Course decodeCursor(CourseOrder order, String cursor) {
+        if (cursor == null)
+            return null;
+        String[] fields = Cursor.decode(cursor, 5);
+        if (!order.name().equals(fields[0]))
+            throw new IllegalArgumentException("Cursor is for another order");
+        // NumberFormatException is an IllegalArgumentException
+        return new Course(Integer.parseInt(fields[1]), null, fields[2], Double.parseDouble(fields[3]), "",
+                Integer.parseInt(fields[4]), null, null);
+    }
+
+    /**
+     * Publishes the catalog snapshot following a change, along with fresh
+     * suggestions if the change touched a title or tag, so readers of either
+     * never take the lock
+     * <br>
+     * Must be called while holding the lock on the map
+     *
+     * @param snapshot The {@link CatalogSnapshot snapshot} of the catalog after
+     *                 the change
+     */
+    private void publish(CatalogSnapshot snapshot) {
+        if (suggestionsChanged) {
+            suggestions = suggestIndex.snapshot();
+            suggestionsChanged = false;
+        }
+        catalog = snapshot;
+    }
+
+    /**
+     * Adds a {@linkplain Course course} to every index, replacing what was
+     * indexed for its id before
+     * <br>
+     * Must be called while holding the lock on the map
+     *
+     * @param course The {@link Course course} that was put in the map
+     */
+    private void index(Course course) {
+        ++catalogVersion;
+        textIndex.add(course);
+        priceIndex.add(course);
+        facetIndex.add(course);
+        relevanceIndex.add(course);
+        fuzzyIndex.add(course);
+        if (suggestIndex.add(course))
+            suggestionsChanged = true;
+        similarity.add(course);
+        invalidateRecommendations();
+        for (MaintainedOrder order : orders.values())
+            order.add(course);
+    }
+
+    /**
+     * Removes a {@linkplain Course course} from every index
+     * <br>
+     * Must be called while holding the lock on the map
+     *
+     * @param id The id of the {@link Course course} that was removed from the map
+     */
+    private void unindex(int id) {
+        ++catalogVersion;
+        textIndex.remove(id);
+        priceIndex.remove(id);
+        facetIndex.remove(id);
+        relevanceIndex.remove(id);
+        fuzzyIndex.remove(id);
+        if (suggestIndex.remove(id))
+            suggestionsChanged = true;
+        similarity.remove(id);
+        coEnrollment.remove(id);
+        invalidateRecommendations();
+        for (MaintainedOrder order : orders.values())
+            order.remove(id);
+    }
+
+    /**
+     * Reads a search text as a price
+     *
+     * @param text The search text
+     *
+     * @return the price, or null if text is not a number
+     */
+    private static Double parsePrice(String text) {
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            return null;
         }
-        Course[] courseArray = new Course[courseArrayList.size()];
-        courseArrayList.toArray(courseArray);
-        return courseArray;
     }
 
     /**
      * Saves the {@linkplain Course courses} from the map into the file as an array
      * of JSON objects
+     * <br>
+     * The courses are taken from the published catalog snapshot, so neither
+     * readers nor writers wait for the file, and the file is replaced
+     * atomically
      *
      * @return true if the {@link Course courses} were written successfully
      *
      * @throws IOException when file cannot be accessed or written to
      */
     private boolean save() throws IOException {
-        Course[] courseArray = getCoursesArray();
+        Course[] courseArray = catalog.list(CourseOrder.POPULARITY);
 
         // Serializes the Java Objects to JSON objects into the file
         // writeValue will thrown an IOException if there is an issue
         // with the file or reading from the file
-        objectMapper.writeValue(new File(filename), courseArray);
+        snapshot.write(courseArray);
         return true;
     }
 
     /**
-     * Loads {@linkplain Course courses} from the JSON file into the map
+     * Records a change to a single {@linkplain Course course} in the map so that
+     * the next flush writes it
      * <br>
-     * Also sets next id to one more than the greatest id found in the file
+     * Must be called while holding the lock on the map
+     *
+     * @param id     The id of the changed {@link Course course}
+     * @param course The new value of the {@link Course course}, null if it was
+     *               deleted
+     */
+    private void markChanged(int id, Course course) {
+        if (log != null)
+            pending.put(id, course); // a later change to the same course replaces this one
+    }
+
+    /**
+     * Writes every change made since the last flush
+     * <br>
+     * With a log the pending changes are appended as one batch of records,
+     * otherwise the whole map is saved
+     *
+     * @throws IOException when a file cannot be accessed or written to
+     */
+    private void flushChanges() throws IOException {
+        if (log == null) {
+            save();
+            return;
+        }
+
+        Map<Integer, Course> batch;
+        synchronized (courses) {
+            if (pending.isEmpty())
+                return;
+            batch = pending;
+            pending = new LinkedHashMap<>();
+        }
+
+        List<LogRecord> records = new ArrayList<>(batch.size());
+        for (Map.Entry<Integer, Course> change : batch.entrySet()) {
+            Course course = change.getValue();
+            records.add(course == null ? LogRecord.delete(change.getKey())
+                    : LogRecord.put(change.getKey(), objectMapper.valueToTree(course)));
+        }
+
+        try {
+            log.append(records);
+        } catch (IOException e) {
+            // keep the batch for the next flush, letting newer changes win
+            synchronized (courses) {
+                batch.putAll(pending);
+                pending = batch;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Loads {@linkplain Course courses} from the JSON file into the map, then
+     * replays the log on top of them if there is one
+     * <br>
+     * Also sets next id to one more than the greatest id found in the files
      *
      * @return true if the file was read successfully
      *
@@ -214,12 +896,23 @@ public class CourseFileDAO implements CourseDAO {
      */
     private boolean load() throws IOException {
         courses = new TreeMap<>();
+        textIndex.clear();
+        priceIndex.clear();
+        facetIndex.clear();
+        relevanceIndex.clear();
+        fuzzyIndex.clear();
+        suggestIndex.clear();
+        suggestionsChanged = true;
+        ++catalogVersion;
+        similarity.clear();
+        for (CourseOrder order : CourseOrder.values())
+            orders.put(order, new MaintainedOrder(order));
         nextId = 0;
 
         // Deserializes the JSON objects from the file into an array of courses
         // readValue will throw an IOException if there's an issue with the file
         // or reading from the file
-        Course[] courseArray = objectMapper.readValue(new File(filename), Course[].class);
+        Course[] courseArray = snapshot.read(Course[].class);
 
         // Add each Course to the tree map and keep track of the greatest id
         for (Course course : courseArray) {
@@ -227,18 +920,129 @@ public class CourseFileDAO implements CourseDAO {
             if (course.getId() > nextId)
                 nextId = course.getId();
         }
+
+        // Redo every mutation made since the snapshot was written
+        if (log != null) {
+            for (LogRecord record : log.replay()) {
+                int id = Integer.parseInt(record.getKey());
+                if (record.getOp() == LogRecord.Operation.PUT)
+                    courses.put(id, objectMapper.treeToValue(record.getValue(), Course.class));
+                else
+                    courses.remove(id);
+                if (id > nextId)
+                    nextId = id;
+            }
+        }
+        counters.load(courses.values()); // the counts of the documents, until the users are attached
+        for (Course course : courses.values())
+            index(course);
+        publish(new CatalogSnapshot(catalogVersion, courses.values()));
+
         // Make the next id one greater than the maximum from the file
         ++nextId;
         return true;
     }
 
+    /**
+     * Moves every image still inlined in a loaded {@linkplain Course course} into
+     * the image store, then saves the much smaller file once
+     *
+     * @throws IOException when a file cannot be accessed or written to
+     */
+    private void migrateImages() throws IOException {
+        if (imageStore == null)
+            return;
+
+        boolean migrated = false;
+        for (Course course : courses.values()) {
+            Image image = imageStore.store(course.getImage());
+            if (image != course.getImage()) {
+                course.setImage(image);
+                migrated = true;
+            }
+        }
+
+        if (migrated) {
+            LOG.info("Moved inline course images into the image store");
+            publish(new CatalogSnapshot(++catalogVersion, courses.values()));
+            save();
+            if (log != null)
+                log.truncate(); // the snapshot now holds everything the log did
+        }
+    }
+
+    /**
+     * Moves the image of a {@linkplain Course course} into the image store if it
+     * is inline
+     *
+     * @param course The {@link Course course} about to be saved
+     *
+     * @throws IOException when the image cannot be written
+     */
+    private void storeImage(Course course) throws IOException {
+        if (imageStore != null)
+            course.setImage(imageStore.store(course.getImage()));
+    }
+
     /**
      ** {@inheritDoc}
      */
     @Override
     public Course[] getCourses() {
+        return catalog.list(CourseOrder.POPULARITY);
+    }
+
+    /**
+     ** {@inheritDoc}
+     */
+    @Override
+    public Course[] getCourses(CourseOrder order) {
+        return catalog.list(order);
+    }
+
+    /**
+     ** {@inheritDoc}
+     */
+    @Override
+    public Course[] findCourses(String containsText) {
+        Course[] courseArray = catalog.get(cachedSearch(containsText));
+        for (Course course : courseArray)
+            course.setStudentsEnrolled(counters.get(course.getId()));
+        return courseArray;
+    }
+
+    /**
+     ** {@inheritDoc}
+     */
+    @Override
+    public Course[] findCoursesByPrice(Double minPrice, Double maxPrice, CourseOrder order) {
+        if (minPrice != null && maxPrice != null && minPrice > maxPrice)
+            return new Course[0];
+        List<Course> priced = catalog.priced(minPrice, maxPrice);
+        Course[] courseArray = new Course[priced.size()];
+        for (int i = 0; i < courseArray.length; ++i)
+            courseArray[i] = priced.get(i).copy();
+        Arrays.sort(courseArray, order.comparator());
+        return courseArray;
+    }
+
+    /**
+     ** {@inheritDoc}
+     */
+    @Override
+    public Page<Course> getCourses(CourseOrder order, String after, int limit) {
+        // one more than the page to know if another page follows
+        return toPage(catalog.page(order, decodeCursor(order, after), limit + 1), order, limit);
+    }
+
+    /**
+     ** {@inheritDoc}
+     */
+    @Override
+    public Page<Course> findCourses(String containsText, String after, int limit) {
         synchronized (courses) {
-            return getCoursesArray();
+            SearchResult result = search(containsText);
+            return getCoursesPage(result.ids, result.order, after, limit);
         }
     }
 
@@ -246,9 +1050,50 @@ public class CourseFileDAO implements CourseDAO {
      ** {@inheritDoc}
      */
     @Override
-    public Course[] findCourses(String containsText) {
+    public Page<Course> findCoursesByPrice(Double minPrice, Double maxPrice, CourseOrder order, String after,
+            int limit) {
+        if (minPrice != null && maxPrice != null && minPrice > maxPrice)
+            return new Page<>(List.of(), null);
+        Page<Course> page = pageOf(catalog.priced(minPrice, maxPrice), order, after, limit);
+        List<Course> copies = new ArrayList<>(page.getItems().size());
+        for (Course course : page.getItems())
+            copies.add(course.copy()); // the courses of the snapshot are shared
+        return new Page<>(copies, page.getNextCursor());
+    }
+
+    /**
+     ** {@inheritDoc}
+     */
+    @Override
+    public Course[] findCoursesByTags(Collection<String> tags, boolean matchAll, Double minPrice, Double maxPrice,
+            CourseOrder order) {
+        return search(tagQuery(tags, matchAll, minPrice, maxPrice, order, null, null)).getItems()
+                .toArray(new Course[0]);
+    }
+
+    /**
+     ** {@inheritDoc}
+     */
+    @Override
+    public Page<Course> findCoursesByTags(Collection<String> tags, boolean matchAll, Double minPrice, Double maxPrice,
+            CourseOrder order, String after, int limit) {
+        return search(tagQuery(tags, matchAll, minPrice, maxPrice, order, after, limit));
+    }
+
+    /**
+     ** {@inheritDoc}
+     */
+    @Override
+    public Page<Course> search(CourseQuery query) {
         synchronized (courses) {
-            return getCoursesArray(containsText);
+            // with no limit the page is the whole result, there is always room for it
+            int limit = query.getLimit() != null ? query.getLimit() : Math.max(1, courses.size());
+            if (query.isRanked() && query.hasText())
+                return getRankedPage(planner.rank(query), query.getOrder(), query.getAfter(), limit);
+            Collection<Integer> ids = planner.search(query);
+            if (ids == null)
+                return getCoursesPage(query.getOrder(), query.getAfter(), limit);
+            return getCoursesPage(ids, query.getOrder(), query.getAfter(), limit);
         }
     }
 
@@ -256,27 +1101,112 @@ public class CourseFileDAO implements CourseDAO {
      ** {@inheritDoc}
      */
     @Override
-    public Course getCourse(int id) {
+    public String[] suggest(String prefix, int limit) {
+        return suggestions.suggest(prefix, limit);
+    }
+
+    /**
+     ** {@inheritDoc}
+     */
+    @Override
+    public Facets getFacets(Collection<String> tags, boolean matchAll, Double minPrice, Double maxPrice) {
         synchronized (courses) {
-            return courses.get(id);
+            BitSet ids = filterByTags(tags, matchAll, minPrice, maxPrice);
+            return new Facets(ids.cardinality(), facetIndex.countTags(ids), facetIndex.countPrices(ids));
         }
     }
 
+    /**
+     ** {@inheritDoc}
+     */
+    @Override
+    public Course[] getCourseSummaries() {
+        return catalog.summaries(CourseOrder.POPULARITY);
+    }
+
+    /**
+     ** {@inheritDoc}
+     */
+    @Override
+    public Course[] getCourseSummaries(CourseOrder order) {
+        return catalog.summaries(order);
+    }
+
+    /**
+     ** {@inheritDoc}
+     */
+    @Override
+    public Course[] findCourseSummaries(String containsText) {
+        return getCourseSummaries(cachedSearch(containsText));
+    }
+
+    /**
+     * Answers a text search from the search cache, searching only when the
+     * result is not cached for the current catalog and no other request is
+     * already searching for it
+     * <br>
+     * Only the ids are cached, each request copies the
+     * {@linkplain Course courses} it returns from the current snapshot, so the
+     * full courses and their summaries share one result
+     *
+     * @param containsText The search text, null for every course
+     *
+     * @return the ids of the {@link Course courses} found, in order, may be
+     *         empty
+     */
+    private List<Integer> cachedSearch(String containsText) {
+        if (searchCache == null || containsText == null)
+            return findIds(containsText);
+        // the text index ignores case, but a price is read as typed
+        String text = parsePrice(containsText) != null ? containsText : containsText.toLowerCase();
+        // the version is read before searching, so a result is never cached as
+        // newer than the catalog it was found in
+        return searchCache.get(text, catalogVersion, () -> findIds(containsText));
+    }
+
+    /**
+     ** {@inheritDoc}
+     */
+    @Override
+    public Course[] getCourseSummaries(Collection<Integer> ids) {
+        Course[] summaries = catalog.summaries(ids);
+        for (Course summary : summaries)
+            summary.setStudentsEnrolled(counters.get(summary.getId()));
+        return summaries;
+    }
+
+    /**
+     ** {@inheritDoc}
+     */
+    @Override
+    public Course getCourse(int id) {
+        Course course = catalog.get(id);
+        if (course != null)
+            course.setStudentsEnrolled(counters.get(id)); // may be ahead of the catalog
+        return course;
+    }
+
     /**
      ** {@inheritDoc}
      */
     @Override
     public Course createCourse(Course course) throws IOException {
+        storeImage(course); // may throw an IOException
+        Course newCourse;
         synchronized (courses) {
             // We create a new Course object because the id field is immutable
             // and we need to assign the next unique id
-            Course newCourse = new Course(nextId(), course.getImage(), course.getTitle(), course.getPrice(),
+            newCourse = new Course(nextId(), course.getImage(), course.getTitle(), course.getPrice(),
                     course.getDescription(),
                     course.getStudentsEnrolled(), course.getTags(), course.getContent());
             courses.put(newCourse.getId(), newCourse);
-            save(); // may throw an IOException
-            return newCourse;
+            counters.start(newCourse.getId(), newCourse.getStudentsEnrolled());
+            index(newCourse);
+            publish(catalog.with(catalogVersion, newCourse));
+            markChanged(newCourse.getId(), newCourse);
         }
+        writeBehind.write(Durability.DEFERRED); // may throw an IOException
+        return newCourse;
     }
 
     /**
@@ -284,19 +1214,45 @@ public class CourseFileDAO implements CourseDAO {
      */
     @Override
     public Course updateCourse(Course course) throws IOException {
+        // checked before storing, so an update of no course leaves no image behind
+        if (catalog.get(course.getId()) == null)
+            return null; // Course does not exist
+        storeImage(course); // may throw an IOException
         synchronized (courses) {
             if (!courses.containsKey(course.getId()))
                 return null; // Course does not exist
 
+            // the count belongs to the counters, not to whoever edited the course
+            course.setStudentsEnrolled(counters.get(course.getId()));
             courses.put(course.getId(), course);
-            save(); // may throw an IOException
-            return course;
+            index(course);
+            publish(catalog.with(catalogVersion, course));
+            markChanged(course.getId(), course);
         }
+        writeBehind.write(Durability.DEFERRED); // may throw an IOException
+        return course;
     }
 
     @Override
     public void setUserDAO(UserDAO userDAO) {
         this.userDAO = userDAO;
+        countEnrollments();
+    }
+
+    /**
+     * Reconciles the enrollment counters with the courses of every user, then
+     * folds them into the {@linkplain Course courses}
+     * <br>
+     * A checkout is acknowledged once its user is on disk, so the counts are
+     * worked out from the users rather than kept in a file that could fall
+     * behind them. Called when the user DAO is attached, before any checkout
+     * is taken
+     */
+    private void countEnrollments() {
+        if (userDAO == null)
+            return;
+        counters.reconcile(userDAO.getEnrollments().values());
+        applyEnrollmentCounts();
     }
 
     /**
@@ -304,20 +1260,73 @@ public class CourseFileDAO implements CourseDAO {
      */
     @Override
     public boolean deleteCourse(int id) throws IOException {
-        User[] users = (User[]) userDAO.getAllUsers();
         synchronized (courses) {
             if (courses.containsKey(id)) {
-                for (User user : users) {
-                    Set<Integer> cart = user.getShoppingCart();
-                    Set<Integer> registerdCourses = user.getCoursesBy();
-                    cart.remove(id);
-                    registerdCourses.remove(id);
-                    userDAO.updateUser(user);
-                }
                 courses.remove(id);
-                return save();
+                counters.remove(id);
+                unindex(id);
+                publish(catalog.without(catalogVersion, id));
+                markChanged(id, null);
             } else
                 return false;
         }
+        // the users are changed after the lock on the courses is released, since
+        // a checkout takes the lock of its user first and the courses second
+        userDAO.removeCourse(id);
+        writeBehind.write(Durability.DEFERRED); // may throw an IOException
+        return true;
+    }
+
+    /**
+     ** {@inheritDoc}
+     */
+    @Override
+    public void flush() throws IOException {
+        writeBehind.flush();
+    }
+
+    /**
+     * Writes a fresh snapshot of the map and empties the log, so that the next
+     * load only has to read the snapshot
+     * <br>
+     * Readers and writers of the map are only held up while the courses are
+     * copied out of it, not while the snapshot is written
+     *
+     * @throws IOException when a file cannot be accessed or written to
+     */
+    public void compact() throws IOException {
+        if (log == null || log.isEmpty())
+            return;
+
+        writeBehind.checkpoint(() -> {
+            // every change so far is in the log, so the snapshot may replace it
+            save();
+            log.truncate();
+        });
+    }
+
+    /**
+     * Compacts the files every courses.compact-interval-ms milliseconds
+     */
+    @Scheduled(initialDelayString = "${courses.compact-interval-ms:600000}",
+            fixedDelayString = "${courses.compact-interval-ms:600000}")
+    public void compactInBackground() {
+        try {
+            compact();
+        } catch (IOException e) {
+            LOG.log(Level.SEVERE, "Compaction failed: " + e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Writes any buffered changes and compacts the files when the application
+     * shuts down
+     *
+     * @throws IOException when a file cannot be accessed or written to
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        writeBehind.close();
+        compact();
     }
 }
@@ -0,0 +1,56 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes the sort key of the last item of a page as an opaque cursor
+ * <br>
+ * The next page starts right after that key, so items added or removed
+ * meanwhile neither repeat nor skip the items that stay
+ */
+public final class Cursor {
+    private static final String SEPARATOR = "."; // not in the URL-safe base64 alphabet
+
+    private Cursor() {
+    }
+
+    /**
+     * Encodes the fields of a sort key as a cursor
+     *
+     * @param fields The fields of the key, none may be null
+     *
+     * @return the cursor, safe to use in a URL without escaping
+     */
+    public static String encode(String... fields) {
+        StringBuilder cursor = new StringBuilder();
+        for (String field : fields) {
+            if (cursor.length() > 0)
+                cursor.append(SEPARATOR);
+            cursor.append(Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(field.getBytes(StandardCharsets.UTF_8)));
+        }
+        return cursor.toString();
+    }
+
+    /**
+     * Decodes a cursor made by {@link #encode(String...)}
+     *
+     * @param cursor The cursor
+     * @param count  The number of fields the cursor must have
+     *
+     * @return the fields of the sort key
+     *
+     * @throws IllegalArgumentException if cursor was not made by
+     *                                  {@link #encode(String...)} with count
+     *                                  fields
+     */
+    public static String[] decode(String cursor, int count) {
+        String[] fields = cursor.split("\\" + SEPARATOR, -1);
+        if (fields.length != count)
+            throw new IllegalArgumentException("Malformed cursor");
+        for (int i = 0; i < count; ++i)
+            fields[i] = new String(Base64.getUrlDecoder().decode(fields[i]), StandardCharsets.UTF_8);
+        return fields;
+    }
+}
@@ -0,0 +1,17 @@
+package com.estore.api.estoreapi.persistence;
+
+/**
+ * How soon a change made through a file DAO must reach the disk
+ */
+public enum Durability {
+    /**
+     * The change is written before the DAO call returns
+     */
+    SYNC,
+
+    /**
+     * The change may be buffered and written together with other changes by a
+     * background flush, at most the configured flush delay later
+     */
+    DEFERRED
+}
@@ -0,0 +1,253 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.PreDestroy;
+
+import com.estore.api.estoreapi.model.Course;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Number of students enrolled in each {@linkplain Course course}, kept apart
+ * from the course documents
+ * <br>
+ * Each count is a {@link LongAdder}, so checkouts adding to the same course
+ * from many threads spread over its cells instead of contending on one value,
+ * and no course is copied or written for an enrollment. The DAO folds the
+ * counts into its courses from time to time
+ * <br>
+ * A count is the number of users enrolled in the course plus an offset, the
+ * students counted before there were users to enroll them, as in the seeded
+ * documents. A checkout adds one to both the count and the users enrolled, so
+ * only the offsets are saved, to a small file of their own, and only when a
+ * course is created or deleted. On startup the counts are
+ * {@linkplain #reconcile(Collection) reconciled} as the users enrolled plus
+ * the saved offsets, so a checkout that reached the users file before a crash
+ * is counted, and one that did not is not. A course missing from the file
+ * takes its offset from its document
+ * <br>
+ * Thread safe
+ *
+ * {@literal @}Component Spring annotation instantiates a single instance of
+ * this class and injects the instance into other classes as needed
+ */
+@Component
+public class EnrollmentCounters {
+    private static final Logger LOG = Logger.getLogger(EnrollmentCounters.class.getName());
+
+    private final Map<Integer, LongAdder> counts = new ConcurrentHashMap<>(); // Count of each course, by id
+    private final Set<Integer> changed = ConcurrentHashMap.newKeySet(); // Ids counted since the last drain
+    // Students of each course not enrolled as users, by id
+    private final Map<Integer, Long> offsets = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean(); // Whether an offset changed since the last save
+    private final SnapshotFile file; // File the offsets are saved to, null to keep them in memory only
+
+    /**
+     * Creates the enrollment counters
+     *
+     * @param filename     Filename to save the offsets to, or empty to keep
+     *                     them in memory only
+     * @param objectMapper Provides JSON Object to/from Java Object serialization
+     *                     and deserialization
+     */
+    public EnrollmentCounters(@Value("${courses.counters-file:}") String filename, ObjectMapper objectMapper) {
+        this.file = filename == null || filename.isEmpty() ? null : new SnapshotFile(filename, objectMapper);
+    }
+
+    /**
+     * Starts every count from the document of its {@linkplain Course course}
+     * and reads the saved offsets, until the counts are
+     * {@linkplain #reconcile(Collection) reconciled} with the users
+     * <br>
+     * Offsets of courses that are gone are dropped
+     *
+     * @param courses The loaded {@link Course courses}
+     *
+     * @throws IOException when the file exists but cannot be read
+     */
+    public void load(Collection<Course> courses) throws IOException {
+        Map<Integer, Long> saved = file != null && file.exists()
+                ? file.read(new TypeReference<Map<Integer, Long>>() {})
+                : Map.of();
+        counts.clear();
+        changed.clear();
+        offsets.clear();
+        for (Course course : courses) {
+            LongAdder count = new LongAdder();
+            count.add(course.getStudentsEnrolled());
+            counts.put(course.getId(), count);
+            if (saved.containsKey(course.getId()))
+                offsets.put(course.getId(), saved.get(course.getId()));
+        }
+        dirty.set(offsets.size() != saved.size());
+    }
+
+    /**
+     * Sets every count to the number of users enrolled in the
+     * {@linkplain Course course} plus its offset, marking the counts that were
+     * off as changed
+     * <br>
+     * A course with no saved offset keeps the count of its document, which
+     * gives its offset. Must be called before any checkout is counted, a
+     * checkout counted during the reconciling may be lost or counted twice
+     *
+     * @param enrollments The ids of the {@link Course courses} of each user,
+     *                    ids of courses not counted are ignored
+     */
+    public void reconcile(Collection<Set<Integer>> enrollments) {
+        Map<Integer, Long> enrolled = new HashMap<>();
+        for (Set<Integer> ids : enrollments)
+            for (int id : ids)
+                enrolled.merge(id, 1L, Long::sum);
+        for (Map.Entry<Integer, LongAdder> count : counts.entrySet()) {
+            int id = count.getKey();
+            long users = enrolled.getOrDefault(id, 0L);
+            if (!offsets.containsKey(id)) {
+                offsets.put(id, count.getValue().sum() - users);
+                dirty.set(true);
+            }
+            long off = users + offsets.get(id) - count.getValue().sum();
+            if (off == 0)
+                continue;
+            count.getValue().add(off);
+            changed.add(id);
+        }
+    }
+
+    /**
+     * Starts counting a new {@linkplain Course course}
+     *
+     * @param id    The id of the {@link Course course}
+     * @param count The number of students it starts with
+     */
+    public void start(int id, int count) {
+        LongAdder adder = new LongAdder();
+        adder.add(count);
+        counts.put(id, adder);
+        offsets.put(id, (long) count); // no user is enrolled in a new course yet
+        dirty.set(true);
+    }
+
+    /**
+     * Stops counting a deleted {@linkplain Course course}
+     *
+     * @param id The id of the {@link Course course}
+     */
+    public void remove(int id) {
+        counts.remove(id);
+        changed.remove(id);
+        offsets.remove(id);
+        dirty.set(true);
+    }
+
+    /**
+     * Adds to the count of a {@linkplain Course course}
+     *
+     * @param id    The id of the {@link Course course}
+     * @param delta The number of students to add, negative to remove
+     *
+     * @return true if the course is counted, false if there is no course with
+     *         that id
+     */
+    public boolean add(int id, int delta) {
+        LongAdder count = counts.get(id);
+        if (count == null)
+            return false;
+        count.add(delta);
+        // marked after adding, so whoever drains the id sees this delta. The
+        // offset stays as it is, the users file records the enrollment
+        changed.add(id);
+        return true;
+    }
+
+    /**
+     * The number of students enrolled in a {@linkplain Course course}
+     *
+     * @param id The id of the {@link Course course}
+     *
+     * @return the count, 0 if the course is not counted
+     */
+    public int get(int id) {
+        LongAdder count = counts.get(id);
+        return count == null ? 0 : clamp(count.sum());
+    }
+
+    /**
+     * Takes the ids of the {@linkplain Course courses} counted since the last
+     * call
+     *
+     * @return the ids, which are no longer reported until counted again
+     */
+    public Set<Integer> drainChanged() {
+        Set<Integer> drained = new HashSet<>();
+        for (Iterator<Integer> ids = changed.iterator(); ids.hasNext();) {
+            drained.add(ids.next());
+            ids.remove();
+        }
+        return drained;
+    }
+
+    /**
+     * Writes every offset to the file, if one changed since the last save
+     *
+     * @throws IOException when the file cannot be accessed or written to, in
+     *                     which case the next save tries again
+     */
+    public void save() throws IOException {
+        if (file == null || !dirty.getAndSet(false))
+            return;
+
+        Map<Integer, Long> snapshot = new TreeMap<>(offsets);
+        try {
+            file.write(snapshot);
+        } catch (IOException e) {
+            dirty.set(true);
+            throw e;
+        }
+    }
+
+    /**
+     * Saves the offsets every courses.counters-save-interval-ms milliseconds,
+     * if one changed
+     */
+    @Scheduled(initialDelayString = "${courses.counters-save-interval-ms:10000}",
+            fixedDelayString = "${courses.counters-save-interval-ms:10000}")
+    public void saveInBackground() {
+        try {
+            save();
+        } catch (IOException e) {
+            LOG.log(Level.SEVERE, "Saving enrollment offsets failed: " + e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Saves the offsets when the application shuts down
+     *
+     * @throws IOException when the file cannot be accessed or written to
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        save();
+    }
+
+    private static int clamp(long count) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, count));
+    }
+}
@@ -0,0 +1,165 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.estore.api.estoreapi.model.Image;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Content-addressed on-disk store for {@linkplain Image images}
+ * <br>
+ * Each image is kept once, in a file named by the SHA-256 digest of its bytes,
+ * so identical uploads share a file and a stored file never changes. Courses
+ * then only carry a link to the image instead of the whole base64 data URI
+ * <br>
+ * The stored link is the path of the image on this server, /images/ followed
+ * by the digest, with no host in it, so moving the server to another host,
+ * port or scheme keeps every link working. The host is added when a course is
+ * sent to a client
+ *
+ * {@literal @}Component Spring annotation instantiates a single instance of
+ * this class and injects the instance into other classes as needed
+ */
+@Component
+public class ImageStore {
+    private static final Logger LOG = Logger.getLogger(ImageStore.class.getName());
+    public static final String PATH = "/images/"; // Path images are served from, followed by the hash
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}"); // a hex SHA-256 digest
+    // A link into the store, with or without the scheme and host it was once served from
+    private static final Pattern STORE_LINK = Pattern.compile("(?:[a-zA-Z][a-zA-Z0-9+.-]*://[^/]*)?"
+            + Pattern.quote(PATH) + "(" + HASH.pattern() + ")");
+
+    private final File directory; // Directory holding one file per image
+
+    /**
+     * Creates an image store
+     *
+     * @param directory Directory to keep the image files in
+     */
+    public ImageStore(@Value("${images.dir}") String directory) {
+        this.directory = new File(directory);
+    }
+
+    /**
+     * Moves an inline {@linkplain Image image} into the store
+     * <br>
+     * A base64 data URI is decoded and written under its digest unless an
+     * identical image is already stored. A link into the store, including one
+     * holding the host it was served from, is cut back to the path of the
+     * image with its hash filled in, and any other link is left as it is
+     *
+     * @param image The {@link Image image} to store, may be null
+     *
+     * @return an {@link Image image} linking to the store, or image itself if it
+     *         is not inline
+     *
+     * @throws IOException when the image file cannot be written
+     */
+    public Image store(Image image) throws IOException {
+        if (image == null || image.getLink() == null)
+            return image;
+
+        String link = image.getLink();
+        Matcher storeLink = STORE_LINK.matcher(link);
+        if (storeLink.matches()) {
+            String hash = storeLink.group(1);
+            if (link.equals(PATH + hash) && hash.equals(image.getHash()))
+                return image;
+            return new Image(PATH + hash, hash);
+        }
+
+        int comma = link.indexOf(',');
+        if (!link.startsWith("data:") || comma < 0 || !link.substring(0, comma).endsWith(";base64"))
+            return image;
+
+        byte[] bytes;
+        try {
+            bytes = Base64.getDecoder().decode(link.substring(comma + 1));
+        } catch (IllegalArgumentException e) {
+            LOG.warning("Leaving malformed data URI inline: " + e.getLocalizedMessage());
+            return image;
+        }
+
+        String hash = digest(bytes);
+        File file = new File(directory, hash);
+        if (!file.exists()) {
+            directory.mkdirs();
+            // written beside the final name and renamed, so a reader never sees
+            // half an image
+            File tempFile = new File(directory, hash + ".tmp");
+            try (FileOutputStream out = new FileOutputStream(tempFile)) {
+                out.write(bytes);
+                out.getChannel().force(false);
+            }
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+        return new Image(PATH + hash, hash);
+    }
+
+    /**
+     * Finds the file of a stored image
+     *
+     * @param hash The digest of the image
+     *
+     * @return the image file, or null if hash is not a digest or no image is
+     *         stored under it
+     */
+    public File getFile(String hash) {
+        if (hash == null || !HASH.matcher(hash).matches())
+            return null;
+        File file = new File(directory, hash);
+        return file.isFile() ? file : null;
+    }
+
+    /**
+     * Works out the media type of a stored image from its first bytes
+     *
+     * @param file The image file
+     *
+     * @return the media type, application/octet-stream if it is not recognized
+     *
+     * @throws IOException when the file cannot be read
+     */
+    public String getContentType(File file) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            String contentType = URLConnection.guessContentTypeFromStream(in);
+            return contentType == null ? "application/octet-stream" : contentType;
+        }
+    }
+
+    /**
+     * Computes the hex SHA-256 digest of bytes
+     *
+     * @param bytes The bytes to digest
+     *
+     * @return the lowercase hex digest
+     */
+    private static String digest(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest)
+                hex.append(String.format("%02x", b));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // every JVM has to provide it
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of locks that keys are spread over by hash
+ * <br>
+ * Work on one key locks only that key's stripe, so work on keys in different
+ * stripes runs in parallel while the number of locks stays bounded. Work on
+ * several keys locks their stripes in ascending order, which is the only
+ * order stripes are ever taken in together, so two such callers can never
+ * deadlock
+ * <br>
+ * A caller holding a stripe must not lock a set of stripes, since the set may
+ * need a lower stripe than the one already held
+ */
+public class LockStripes {
+    private final ReentrantLock[] locks; // The stripes
+
+    /**
+     * Creates a set of lock stripes
+     *
+     * @param count The number of stripes, more lets more keys be worked on at
+     *              once
+     */
+    public LockStripes(int count) {
+        this.locks = new ReentrantLock[count];
+        for (int i = 0; i < count; ++i)
+            locks[i] = new ReentrantLock();
+    }
+
+    /**
+     * Finds the lock of a key
+     *
+     * @param key The key
+     *
+     * @return the lock of the stripe key falls in, not yet locked
+     */
+    public Lock of(Object key) {
+        return locks[stripe(key)];
+    }
+
+    /**
+     * Locks the stripes of several keys, in ascending order
+     *
+     * @param keys The keys, several may fall in the same stripe
+     *
+     * @return the stripes locked, to pass to {@link #unlock(BitSet)}
+     */
+    public BitSet lockAll(Collection<?> keys) {
+        BitSet stripes = new BitSet(locks.length);
+        for (Object key : keys)
+            stripes.set(stripe(key));
+        lock(stripes);
+        return stripes;
+    }
+
+    /**
+     * Unlocks stripes locked together
+     *
+     * @param stripes The stripes returned when they were locked
+     */
+    public void unlock(BitSet stripes) {
+        for (int i = stripes.previousSetBit(locks.length - 1); i >= 0; i = stripes.previousSetBit(i - 1))
+            locks[i].unlock();
+    }
+
+    private void lock(BitSet stripes) {
+        for (int i = stripes.nextSetBit(0); i >= 0; i = stripes.nextSetBit(i + 1))
+            locks[i].lock();
+    }
+
+    private int stripe(Object key) {
+        int hash = key.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), locks.length);
+    }
+}
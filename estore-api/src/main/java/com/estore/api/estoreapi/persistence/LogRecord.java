@@ -0,0 +1,101 @@
+package com.estore.api.estoreapi.persistence;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+
+/**
+ * A single mutation written to an {@link AppendLog}
+ * <br>
+ * Records are replayed in order on top of the last snapshot, so each record
+ * carries everything needed to redo the change on its own
+ */
+public class LogRecord {
+    /**
+     * The kind of change a {@link LogRecord record} describes
+     */
+    public enum Operation {
+        PUT, // the value replaces whatever is stored under the key
+        DELETE, // the key is removed
+        CART_ADD, // the value, a course id, is added to the cart of the user under the key
+        CART_REMOVE // the value, a course id, is taken out of the cart of the user under the key
+    }
+
+    @JsonProperty("op")
+    private final Operation op;
+
+    @JsonProperty("key")
+    private final String key;
+
+    @JsonProperty("value")
+    private final JsonNode value;
+
+    public LogRecord(@JsonProperty("op") Operation op, @JsonProperty("key") String key,
+            @JsonProperty("value") JsonNode value) {
+        this.op = op;
+        this.key = key;
+        this.value = value;
+    }
+
+    /**
+     * Creates a record that stores value under key
+     *
+     * @param key   The key of the stored object
+     * @param value The JSON form of the stored object
+     * @return the new {@link LogRecord record}
+     */
+    public static LogRecord put(Object key, JsonNode value) {
+        return new LogRecord(Operation.PUT, String.valueOf(key), value);
+    }
+
+    /**
+     * Creates a record that removes the object stored under key
+     *
+     * @param key The key of the removed object
+     * @return the new {@link LogRecord record}
+     */
+    public static LogRecord delete(Object key) {
+        return new LogRecord(Operation.DELETE, String.valueOf(key), null);
+    }
+
+    /**
+     * Creates a record that adds a course to the cart of a user, without
+     * carrying the rest of the user
+     *
+     * @param key The key of the user
+     * @param id  The id of the course
+     * @return the new {@link LogRecord record}
+     */
+    public static LogRecord cartAdd(Object key, int id) {
+        return new LogRecord(Operation.CART_ADD, String.valueOf(key), IntNode.valueOf(id));
+    }
+
+    /**
+     * Creates a record that takes a course out of the cart of a user, without
+     * carrying the rest of the user
+     *
+     * @param key The key of the user
+     * @param id  The id of the course
+     * @return the new {@link LogRecord record}
+     */
+    public static LogRecord cartRemove(Object key, int id) {
+        return new LogRecord(Operation.CART_REMOVE, String.valueOf(key), IntNode.valueOf(id));
+    }
+
+    public Operation getOp() {
+        return op;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public JsonNode getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "LogRecord(op=" + op + ",key=" + key + ")";
+    }
+}
@@ -0,0 +1,30 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.util.List;
+
+/**
+ * One page of a listing, with the cursor to continue it from
+ */
+public class Page<T> {
+    private final List<T> items; // The items on this page, in order
+    private final String nextCursor; // Resumes the listing after items, null on the last page
+
+    /**
+     * Creates a page
+     *
+     * @param items      The items on the page
+     * @param nextCursor The cursor of the next page, null if this is the last
+     */
+    public Page(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,90 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The JSON snapshot file of a file DAO
+ * <br>
+ * A new snapshot is written to a temporary file next to the old one and then
+ * renamed over it, so a crash mid-write leaves either the old or the new
+ * snapshot on disk but never half of one
+ */
+public class SnapshotFile {
+    private final File file; // The snapshot
+    private final File tempFile; // Where the next snapshot is written before the rename
+    private final ObjectMapper objectMapper; // Provides conversion between objects
+                                             // and JSON text format
+
+    /**
+     * Creates a snapshot file
+     *
+     * @param filename     Filename of the snapshot
+     * @param objectMapper Provides JSON Object to/from Java Object serialization
+     *                     and deserialization
+     */
+    public SnapshotFile(String filename, ObjectMapper objectMapper) {
+        this.file = new File(filename);
+        this.tempFile = new File(filename + ".tmp");
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Reads the snapshot
+     *
+     * @param type The class of the value stored in the snapshot
+     *
+     * @return the value stored in the snapshot
+     *
+     * @throws IOException when the file cannot be accessed or read from
+     */
+    public <T> T read(Class<T> type) throws IOException {
+        return objectMapper.readValue(file, type);
+    }
+
+    /**
+     * Reads the snapshot of a generic value
+     *
+     * @param type The type of the value stored in the snapshot
+     *
+     * @return the value stored in the snapshot
+     *
+     * @throws IOException when the file cannot be accessed or read from
+     */
+    public <T> T read(TypeReference<T> type) throws IOException {
+        return objectMapper.readValue(file, type);
+    }
+
+    /**
+     * Tells whether a snapshot was ever written
+     *
+     * @return true if the file exists
+     */
+    public boolean exists() {
+        return file.exists();
+    }
+
+    /**
+     * Replaces the snapshot with value
+     *
+     * @param value The value to store in the snapshot
+     *
+     * @throws IOException when the file cannot be accessed or written to, in
+     *                     which case the old snapshot is left in place
+     */
+    public void write(Object value) throws IOException {
+        objectMapper.writeValue(tempFile, value);
+        try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,95 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.estore.api.estoreapi.model.Course;
+import com.estore.api.estoreapi.model.User;
+
+/**
+ * Reverse index from each {@linkplain Course course} to the
+ * {@linkplain User users} enrolled in it and the users having it in their cart
+ * <br>
+ * A change to a course that concerns users, such as deleting it, looks up the
+ * users it touches here instead of going through every user, so its cost
+ * follows the number of users affected. The index keeps what it last saw of
+ * each user and only moves the ids that changed
+ * <br>
+ * Thread safe, but the updates of one user must not run at the same time, so
+ * the DAO only updates a user while holding the lock of their name
+ */
+public class UserCourseIndex {
+    private final Map<Integer, Set<String>> enrolled = new ConcurrentHashMap<>(); // Users enrolled, by course id
+    private final Map<Integer, Set<String>> inCart = new ConcurrentHashMap<>(); // Users with it in cart, by course id
+    // Course ids last indexed for each user, by user name
+    private final Map<String, Set<Integer>> indexedCourses = new ConcurrentHashMap<>();
+    // Cart ids last indexed for each user, by user name
+    private final Map<String, Set<Integer>> indexedCart = new ConcurrentHashMap<>();
+
+    /**
+     * Indexes the courses and cart of a {@linkplain User user}, replacing what
+     * was indexed for their name before
+     *
+     * @param user The {@link User user}
+     */
+    public void update(User user) {
+        String userName = user.getUserName();
+        Set<Integer> courses = copyOf(user.getCoursesBy());
+        Set<Integer> cart = copyOf(user.getShoppingCart());
+        move(userName, indexedCourses.put(userName, courses), courses, enrolled);
+        move(userName, indexedCart.put(userName, cart), cart, inCart);
+    }
+
+    /**
+     * Removes every {@linkplain User user} from the index
+     */
+    public void clear() {
+        enrolled.clear();
+        inCart.clear();
+        indexedCourses.clear();
+        indexedCart.clear();
+    }
+
+    /**
+     * Finds the {@linkplain User users} enrolled in a {@linkplain Course course}
+     * or having it in their cart
+     *
+     * @param id The id of the {@link Course course}
+     *
+     * @return a copy of the names of the {@link User users}, may be empty
+     */
+    public Set<String> holders(int id) {
+        Set<String> holders = new HashSet<>(enrolled.getOrDefault(id, Set.of()));
+        holders.addAll(inCart.getOrDefault(id, Set.of()));
+        return holders;
+    }
+
+    /**
+     * Moves a user from the courses they had to the courses they have, leaving
+     * the ids in both alone
+     */
+    private static void move(String userName, Set<Integer> before, Set<Integer> after,
+            Map<Integer, Set<String>> index) {
+        if (before != null)
+            for (int id : before)
+                if (!after.contains(id))
+                    index.computeIfPresent(id, (key, names) -> {
+                        names.remove(userName);
+                        return names.isEmpty() ? null : names;
+                    });
+        for (int id : after)
+            if (before == null || !before.contains(id))
+                index.compute(id, (key, names) -> {
+                    if (names == null)
+                        names = ConcurrentHashMap.newKeySet();
+                    names.add(userName);
+                    return names;
+                });
+    }
+
+    private static Set<Integer> copyOf(Set<Integer> ids) {
+        return ids == null ? Set.of() : new HashSet<>(ids);
+    }
+}
@@ -1,6 +1,7 @@
 package com.estore.api.estoreapi.persistence;
 
 import java.io.IOException;
+import java.util.Map;
 import java.util.Set;
 
 import com.estore.api.estoreapi.model.Course;
@@ -15,7 +16,9 @@ public interface UserDAO {
      *
      * @param userName The id of the {@link User userName} to get
      *
-     * @return a {@link User userName} object with the matching userName
+     * @return a copy of the {@link User userName} object with the matching
+     *         userName, changes to it are only kept through
+     *         {@link #updateUser(User)}
      *         <br>
      *         null if no {@link User userName} with a matching userName is found
      *
@@ -50,8 +53,8 @@ public interface UserDAO {
      * Gets list of users registered course ids
      * 
      * @param userName The id of the {@link User userName} to get
-     * @return A set of {@link Integers} that represent courses ids of courses the
-     *         user bought.
+     * @return A copy of the set of {@link Integers} that represent courses ids
+     *         of courses the user bought.
      * @throws IOException
      */
 
@@ -59,11 +62,15 @@ public interface UserDAO {
 
     /**
      * Updates user registered courses
+     * <br>
+     * The counts of the courses and the courses of the user are written as one
+     * checkout: if either write fails, neither change is kept
      * 
      * @param userName The id of the {@link User userName} to get
      * @param courses  The list of courses bought that need to be added to the user
      *                 courses array
-     * @return the updated {@link User user} if successful, false otherwise
+     * @return a copy of the updated {@link User user} if successful, null if
+     *         there is no user with that name
      * @throws IOException
      */
     User updateUserCourses(String userName, Set<Integer> courses) throws IOException;
@@ -91,10 +98,39 @@ public interface UserDAO {
 
     boolean updateUserShoppingCart(String userName, Set<Integer> courses) throws IOException;
 
+    /**
+     * Adds one {@linkplain Course course} to the cart of a {@linkplain User user}
+     * <br>
+     * Only the cart changes, so only the change is written, not the whole user
+     *
+     * @param userName The name of the {@link User user}
+     * @param id       The id of the {@link Course course}, left out if the user
+     *                 already owns it
+     * @return a copy of the updated {@link User user}, null if there is no user
+     *         with that name
+     * @throws IOException if underlying storage cannot be accessed
+     */
+    User addToCart(String userName, int id) throws IOException;
+
+    /**
+     * Takes one {@linkplain Course course} out of the cart of a
+     * {@linkplain User user}
+     * <br>
+     * Only the cart changes, so only the change is written, not the whole user
+     *
+     * @param userName The name of the {@link User user}
+     * @param id       The id of the {@link Course course}
+     * @return a copy of the updated {@link User user}, null if there is no user
+     *         with that name
+     * @throws IOException if underlying storage cannot be accessed
+     */
+    User removeFromCart(String userName, int id) throws IOException;
+
     /**
      * Updates and saves a {@linkplain User user}
      *
-     * @param {@link User user} object to be updated and saved
+     * @param {@link User user} object to be updated and saved, copied so later
+     *        changes to it are not saved
      * @return updated {@link User user} if successful, null if
      *         {@link User user} could not be found
      *
@@ -105,8 +141,40 @@ public interface UserDAO {
     /**
      * Gets all {@linkplain User users}
      * 
-     * @return An array of {@link User user} objects, may be empty
+     * @return An array of copies of the {@link User user} objects, may be empty
      */
     User[] getAllUsers();
 
+    /**
+     * Gets one page of all {@linkplain User users}, by user name
+     *
+     * @param after The {@link Page#getNextCursor() cursor} of the previous page,
+     *              null for the first page
+     * @param limit The most {@link User users} on the page
+     *
+     * @return The page of copies of the {@link User users}
+     *
+     * @throws IllegalArgumentException if after is not a cursor of this listing
+     */
+    Page<User> getAllUsers(String after, int limit);
+
+    /**
+     * Gets the {@linkplain Course courses} every {@linkplain User user} is
+     * enrolled in
+     *
+     * @return A copy of the ids of the {@link Course courses} of each user, by
+     *         user name
+     */
+    Map<String, Set<Integer>> getEnrollments();
+
+    /**
+     * Takes a deleted {@linkplain Course course} out of the cart and courses
+     * of every {@linkplain User user}
+     *
+     * @param id The id of the deleted {@link Course course}
+     *
+     * @throws IOException if underlying storage cannot be accessed
+     */
+    void removeCourse(int id) throws IOException;
+
 }
@@ -1,69 +1,273 @@
 package com.estore.api.estoreapi.persistence;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Lock;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.annotation.PreDestroy;
+
 import com.estore.api.estoreapi.model.Course;
 import com.estore.api.estoreapi.model.User;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 @Component
 public class UserFileDAO implements UserDAO {
 
     private static final Logger LOG = Logger.getLogger(User.class.getName());
+    private static final int LOCK_STRIPES = 64; // Users that can be changed at once, at most
 
-    private Map<String, User> users;
+    // Users by name, in name order, read without locking; a user is changed in
+    // place only while holding the stripe of their name
+    private NavigableMap<String, User> users;
+    final LockStripes locks = new LockStripes(LOCK_STRIPES); // Locks of the users, by name
+    // Users having each course, each user updated under their lock
+    private final UserCourseIndex courseIndex = new UserCourseIndex();
     private ObjectMapper objectMapper;
-    private String filename;
+    private SnapshotFile snapshot; // Snapshot file to read from and write to
+    private AppendLog log; // Log of changes since the snapshot, null when every
+                           // change rewrites the whole file
+    // Changes since the last flush, by user name: the cart records to append, or null to
+    // write the whole user; guarded by itself
+    private final Map<String, List<LogRecord>> pending = new LinkedHashMap<>();
+    private WriteBehind writeBehind; // Decides when changes reach the files
 
     private CourseDAO courseDAO;
 
-    public UserFileDAO(@Value("${users.file}") String filename, ObjectMapper objectMapper) throws IOException {
-        this.filename = filename;
+    public UserFileDAO(String filename, ObjectMapper objectMapper) throws IOException {
+        this(filename, objectMapper, null, 0);
+    }
+
+    /**
+     * Creates a User File Data Access Object that can append each change to a
+     * log instead of rewriting the whole file, and can buffer changes so that
+     * many of them are written together
+     *
+     * @param filename     Filename of the snapshot to read from
+     * @param objectMapper Provides JSON Object to/from Java Object serialization
+     *                     and deserialization
+     * @param logFilename  Filename of the log to append changes to, or empty to
+     *                     rewrite filename on every change
+     * @param flushDelay   Longest a change may wait to be written, in
+     *                     milliseconds, or zero to write every change through
+     *
+     * @throws IOException when a file cannot be accessed or read from
+     */
+    @Autowired
+    public UserFileDAO(@Value("${users.file}") String filename, ObjectMapper objectMapper,
+            @Value("${users.log:}") String logFilename,
+            @Value("${users.flush-delay-ms:0}") long flushDelay) throws IOException {
+        this.snapshot = new SnapshotFile(filename, objectMapper);
         this.objectMapper = objectMapper;
+        if (logFilename != null && !logFilename.isEmpty())
+            this.log = new AppendLog(logFilename, objectMapper);
+        this.writeBehind = new WriteBehind("users-flusher", flushDelay, this::flushChanges);
         load();
     }
 
+    /**
+     * Saves the {@linkplain User users} from the map into the file as an array
+     * of JSON objects
+     * <br>
+     * Each user is copied under the lock of their name, since their course sets
+     * change in place, and the copies are written outside it
+     *
+     * @return true if the {@link User users} were written successfully
+     *
+     * @throws IOException when file cannot be accessed or written to
+     */
     private boolean save() throws IOException {
         User[] usersArray = getUsersArray();
+        for (int i = 0; i < usersArray.length; ++i)
+            usersArray[i] = copy(usersArray[i]);
 
         // Serializes the Java Objects to JSON objects into the file
         // writeValue will thrown an IOException if there is an issue
         // with the file or reading from the file
-        objectMapper.writeValue(new File(filename), usersArray);
+        snapshot.write(usersArray);
         return true;
     }
 
     /**
-     * Loads {@linkplain Course courses} from the JSON file into the map
+     * Records that a {@linkplain User user} in the map changed so that the next
+     * flush writes it
+     * <br>
+     * Must be called while holding the lock of the user
+     *
+     * @param userName The userName of the changed {@link User user}
+     */
+    private void markChanged(String userName) {
+        if (log == null)
+            return;
+        synchronized (pending) {
+            addPending(pending, userName, null);
+        }
+    }
+
+    /**
+     * Records a change to the cart of a {@linkplain User user} in the map so
+     * that the next flush appends it, unless the whole user is written anyway
+     * <br>
+     * Must be called while holding the lock of the user
+     *
+     * @param userName The userName of the changed {@link User user}
+     * @param change   The {@link LogRecord record} of the change
+     */
+    private void markCartChanged(String userName, LogRecord change) {
+        if (log == null)
+            return;
+        synchronized (pending) {
+            addPending(pending, userName, List.of(change));
+        }
+    }
+
+    /**
+     * Adds the changes of a user to a set of pending changes, after the ones
+     * already there
+     * <br>
+     * Writing the whole user covers every cart record of theirs, before or
+     * after, since the user is read when the batch is written
+     *
+     * @param into     The pending changes
+     * @param userName The userName of the changed {@link User user}
+     * @param changes  The cart records, or null to write the whole user
+     */
+    private static void addPending(Map<String, List<LogRecord>> into, String userName, List<LogRecord> changes) {
+        if (!into.containsKey(userName))
+            into.put(userName, changes == null ? null : new ArrayList<>(changes));
+        else if (changes == null)
+            into.put(userName, null);
+        else if (into.get(userName) != null)
+            into.get(userName).addAll(changes);
+    }
+
+    /**
+     * Copies a {@linkplain User user} under the lock of their name, so the copy
+     * is not caught halfway through a change
+     *
+     * @param user The {@link User user}
+     *
+     * @return the copy
+     */
+    private User copy(User user) {
+        Lock lock = locks.of(user.getUserName());
+        lock.lock();
+        try {
+            return new User(user);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes every change made since the last flush
      * <br>
-     * Also sets next id to one more than the greatest id found in the file
+     * With a log the changes are appended as one batch of records, a whole
+     * user for most changes but only the change for a cart, otherwise the
+     * whole map is saved
+     *
+     * @throws IOException when a file cannot be accessed or written to
+     */
+    private void flushChanges() throws IOException {
+        if (log == null) {
+            save();
+            return;
+        }
+
+        Map<String, List<LogRecord>> batch;
+        synchronized (pending) {
+            if (pending.isEmpty())
+                return;
+            batch = new LinkedHashMap<>(pending);
+            pending.clear();
+        }
+        List<LogRecord> records = new ArrayList<>(batch.size());
+        for (Map.Entry<String, List<LogRecord>> change : batch.entrySet()) {
+            String userName = change.getKey();
+            if (change.getValue() != null) {
+                records.addAll(change.getValue());
+                continue;
+            }
+            User user = users.get(userName);
+            records.add(user == null ? LogRecord.delete(userName)
+                    : LogRecord.put(userName, objectMapper.valueToTree(copy(user))));
+        }
+
+        try {
+            log.append(records);
+        } catch (IOException e) {
+            // keep the changes for the next flush, ahead of newer ones
+            synchronized (pending) {
+                for (Map.Entry<String, List<LogRecord>> change : pending.entrySet())
+                    addPending(batch, change.getKey(), change.getValue());
+                pending.clear();
+                pending.putAll(batch);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Loads {@linkplain User users} from the JSON file into the map, then replays
+     * the log on top of them if there is one
      *
      * @return true if the file was read successfully
      *
      * @throws IOException when file cannot be accessed or read from
      */
     private boolean load() throws IOException {
-        users = new TreeMap<>();
+        users = new ConcurrentSkipListMap<>();
+        courseIndex.clear();
 
         // Deserializes the JSON objects from the file into an array of users
         // readValue will throw an IOException if there's an issue with the file
         // or reading from the file
-        User[] userArray = objectMapper.readValue(new File(filename), User[].class);
+        User[] userArray = snapshot.read(User[].class);
 
         // Add each Course to the tree map and keep track of the greatest id
         for (User user : userArray) {
             users.put(user.getUserName(), user);
         }
-        // Make the next id one greater than the maximum from the file
+
+        // Redo every change made since the snapshot was written
+        if (log != null) {
+            for (LogRecord record : log.replay()) {
+                User user = users.get(record.getKey());
+                switch (record.getOp()) {
+                    case PUT:
+                        users.put(record.getKey(), objectMapper.treeToValue(record.getValue(), User.class));
+                        break;
+                    case DELETE:
+                        users.remove(record.getKey());
+                        break;
+                    case CART_ADD:
+                        if (user != null)
+                            user.getShoppingCart().add(record.getValue().asInt());
+                        break;
+                    case CART_REMOVE:
+                        if (user != null)
+                            user.getShoppingCart().remove(record.getValue().asInt());
+                        break;
+                }
+            }
+        }
+        for (User user : users.values())
+            courseIndex.update(user);
         return true;
     }
 
@@ -89,9 +293,8 @@ public class UserFileDAO implements UserDAO {
      */
     @Override
     public User getUser(String userName) {
-        synchronized (users) {
-            return users.get(userName);
-        }
+        User user = users.get(userName);
+        return user == null ? null : copy(user);
     }
 
     /**
@@ -99,14 +302,19 @@ public class UserFileDAO implements UserDAO {
      */
     @Override
     public User createUser(User user) throws IOException {
-        synchronized (users) {
-            if (!users.containsKey(user.getUserName())) {
-                users.put(user.getUserName(), user);
-                save();
-                return user;
-            }
+        Lock lock = locks.of(user.getUserName());
+        lock.lock();
+        try {
+            // the map keeps its own copy, the caller's may go on changing
+            if (users.putIfAbsent(user.getUserName(), new User(user)) != null)
+                return null;
+            courseIndex.update(user);
+            markChanged(user.getUserName());
+        } finally {
+            lock.unlock();
         }
-        return null;
+        writeBehind.write(Durability.DEFERRED);
+        return user;
     }
 
     /**
@@ -114,13 +322,14 @@ public class UserFileDAO implements UserDAO {
      */
     @Override
     public Set<Integer> getUserCourse(String userName) {
-
-        synchronized (users) {
-            if (users.containsKey(userName)) {
-                return users.get(userName).getCourses();
-            }
+        Lock lock = locks.of(userName);
+        lock.lock();
+        try {
+            User user = users.get(userName);
+            return user == null ? null : new HashSet<>(user.getCourses());
+        } finally {
+            lock.unlock();
         }
-        return null;
     }
 
     /**
@@ -128,22 +337,56 @@ public class UserFileDAO implements UserDAO {
      */
     @Override
     public User updateUserCourses(String userName, Set<Integer> courses) throws IOException {
+        User updated;
+        Set<Integer> enrolled;
+        Set<Integer> cart;
+        // the lock of the user is taken before the lock on the courses, never after
+        Lock lock = locks.of(userName);
+        lock.lock();
+        try {
+            User user = users.get(userName);
+            if (user == null)
+                return null;
+            Set<Integer> owned = new HashSet<>(user.getCourses());
+            Set<Integer> added = new HashSet<>(courses);
+            added.removeAll(owned);
+            // each course newly enrolled in counts one more student
+            enrolled = this.courseDAO.enroll(userName, owned, added);
+            cart = new HashSet<>(user.getShoppingCart());
+            user.updateUserCourse(enrolled);
+            courseIndex.update(user);
+            markChanged(userName);
+            updated = new User(user);
+        } finally {
+            lock.unlock();
+        }
 
-        synchronized (users) {
-            if (users.containsKey(userName)) {
-                for (Integer id : courses) {
-                    Course course = this.courseDAO.getCourse(id);
-                    int enrolled = course.getStudentsEnrolled();
-                    enrolled += 1;
-                    course.setStudentsEnrolled(enrolled);
-                    this.courseDAO.updateCourse(course);
+        // a purchase must be on disk before the checkout is acknowledged
+        try {
+            writeBehind.write(Durability.SYNC);
+        } catch (IOException e) {
+            // the user was not saved, so the purchase is taken back rather than
+            // leaving the counts ahead of the enrollments. The user is looked up
+            // again, since an update may have replaced it while unlocked, and
+            // only what the checkout changed is undone
+            lock.lock();
+            try {
+                User current = users.get(userName);
+                if (current != null) {
+                    current.getCoursesBy().removeAll(enrolled);
+                    for (int id : cart)
+                        if (!current.getCourses().contains(id))
+                            current.getShoppingCart().add(id);
+                    courseIndex.update(current);
+                    markChanged(userName);
                 }
-                users.get(userName).updateUserCourse(courses);
-                save();
-                return users.get(userName);
+            } finally {
+                lock.unlock();
             }
+            this.courseDAO.unenroll(enrolled);
+            throw e;
         }
-        return null;
+        return updated;
     }
 
     /**
@@ -151,23 +394,64 @@ public class UserFileDAO implements UserDAO {
      */
     @Override
     public User[] getAllUsers() {
-        synchronized (users) {
-            return getUsersArray();
-        }
+        User[] usersArray = getUsersArray();
+        for (int i = 0; i < usersArray.length; ++i)
+            usersArray[i] = copy(usersArray[i]);
+        return usersArray;
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public Course[] getUserShoppingCart(String userName) {
+    public Page<User> getAllUsers(String after, int limit) {
+        // user names are unique and the map is sorted by them, so the name is
+        // the whole sort key
+        String afterName = after == null ? null : Cursor.decode(after, 1)[0];
+        List<User> page = new ArrayList<>(limit);
+        String nextCursor = null;
+        Map<String, User> tail = afterName == null ? users : users.tailMap(afterName, false);
+        for (User user : tail.values()) {
+            if (page.size() == limit) {
+                nextCursor = Cursor.encode(page.get(limit - 1).getUserName());
+                break;
+            }
+            page.add(copy(user));
+        }
+        return new Page<>(page, nextCursor);
+    }
 
-        synchronized (users) {
-            if (users.containsKey(userName)) {
-                return users.get(userName).getShoppingCart(courseDAO);
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Set<Integer>> getEnrollments() {
+        Map<String, Set<Integer>> enrollments = new HashMap<>();
+        for (User user : users.values()) {
+            Lock lock = locks.of(user.getUserName());
+            lock.lock();
+            try {
+                enrollments.put(user.getUserName(), new HashSet<>(user.getCourses()));
+            } finally {
+                lock.unlock();
             }
         }
-        return null;
+        return enrollments;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Course[] getUserShoppingCart(String userName) {
+        Lock lock = locks.of(userName);
+        lock.lock();
+        try {
+            User user = users.get(userName);
+            return user == null ? null : user.getShoppingCart(courseDAO);
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -175,15 +459,75 @@ public class UserFileDAO implements UserDAO {
      */
     @Override
     public boolean updateUserShoppingCart(String userName, Set<Integer> courses) throws IOException {
+        Lock lock = locks.of(userName);
+        lock.lock();
+        try {
+            User user = users.get(userName);
+            if (user == null)
+                return false;
+            user.updateShoppingCart(courses);
+            courseIndex.update(user);
+            markChanged(userName);
+        } finally {
+            lock.unlock();
+        }
+        writeBehind.write(Durability.DEFERRED);
+        return true;
+    }
 
-        synchronized (users) {
-            if (users.containsKey(userName)) {
-                users.get(userName).updateShoppingCart(courses);
-                save();
-                return true;
-            }
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public User addToCart(String userName, int id) throws IOException {
+        User updated;
+        Lock lock = locks.of(userName);
+        lock.lock();
+        try {
+            User user = users.get(userName);
+            if (user == null)
+                return null;
+            // the change is made to a copy that then replaces the user, so the
+            // cart of the user in the map is never changed in place
+            updated = new User(user);
+            if (updated.getCourses().contains(id) || !updated.getShoppingCart().add(id))
+                return updated; // owned or already in the cart, nothing to write
+            users.replace(userName, updated);
+            courseIndex.update(updated);
+            markCartChanged(userName, LogRecord.cartAdd(userName, id));
+            updated = new User(updated);
+        } finally {
+            lock.unlock();
         }
-        return false;
+        writeBehind.write(Durability.DEFERRED);
+        return updated;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public User removeFromCart(String userName, int id) throws IOException {
+        User updated;
+        Lock lock = locks.of(userName);
+        lock.lock();
+        try {
+            User user = users.get(userName);
+            if (user == null)
+                return null;
+            // changed as a copy, like addToCart
+            updated = new User(user);
+            if (!updated.getShoppingCart().remove(id))
+                return updated; // not in the cart, nothing to write
+            users.replace(userName, updated);
+            courseIndex.update(updated);
+            markCartChanged(userName, LogRecord.cartRemove(userName, id));
+            updated = new User(updated);
+        } finally {
+            lock.unlock();
+        }
+        writeBehind.write(Durability.DEFERRED);
+        return updated;
     }
 
     /**
@@ -199,14 +543,98 @@ public class UserFileDAO implements UserDAO {
      */
     @Override
     public User updateUser(User user) throws IOException {
-        synchronized (users) {
-            if (users.containsKey(user.getUserName()) == false)
+        Lock lock = locks.of(user.getUserName());
+        lock.lock();
+        try {
+            // the map keeps its own copy, the caller's may go on changing
+            if (users.replace(user.getUserName(), new User(user)) == null)
                 return null; // User does not exist
+            courseIndex.update(user);
+            markChanged(user.getUserName());
+        } finally {
+            lock.unlock();
+        }
+        writeBehind.write(Durability.DEFERRED); // may throw an IOException
+        return user;
+    }
 
-            users.put(user.getUserName(), user);
-            save(); // may throw an IOException
-            return user;
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeCourse(int id) throws IOException {
+        // only the users having the course are locked, in order, and written
+        // together
+        Set<String> affected = courseIndex.holders(id);
+        if (affected.isEmpty())
+            return;
+        while (true) {
+            BitSet held = locks.lockAll(affected);
+            try {
+                Set<String> holders = courseIndex.holders(id);
+                if (!affected.containsAll(holders)) {
+                    // someone took the course before their lock was held
+                    affected.addAll(holders);
+                    continue;
+                }
+                for (String userName : holders) {
+                    User user = users.get(userName);
+                    user.getShoppingCart().remove(id);
+                    user.getCoursesBy().remove(id);
+                    courseIndex.update(user);
+                    markChanged(userName);
+                }
+                break;
+            } finally {
+                locks.unlock(held);
+            }
+        }
+        writeBehind.write(Durability.DEFERRED);
+    }
+
+    /**
+     * Writes a fresh snapshot of the map and empties the log, so that the next
+     * load only has to read the snapshot
+     * <br>
+     * Readers and writers of the map are only held up while the users are
+     * copied out of it, not while the snapshot is written
+     *
+     * @throws IOException when a file cannot be accessed or written to
+     */
+    public void compact() throws IOException {
+        if (log == null || log.isEmpty())
+            return;
+
+        writeBehind.checkpoint(() -> {
+            // every change so far is in the log, so the snapshot may replace it
+            save();
+            log.truncate();
+        });
+    }
+
+    /**
+     * Compacts the files every users.compact-interval-ms milliseconds
+     */
+    @Scheduled(initialDelayString = "${users.compact-interval-ms:600000}",
+            fixedDelayString = "${users.compact-interval-ms:600000}")
+    public void compactInBackground() {
+        try {
+            compact();
+        } catch (IOException e) {
+            LOG.log(Level.SEVERE, "Compaction failed: " + e.getLocalizedMessage());
         }
     }
 
+    /**
+     * Writes any buffered changes and compacts the files when the application
+     * shuts down
+     *
+     * @throws IOException when a file cannot be accessed or written to
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        writeBehind.close();
+        compact();
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,167 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Coalesces the writes of a file DAO so that many changes reach the disk in a
+ * single flush
+ * <br>
+ * The first deferred change after a flush schedules the next one at most
+ * maxDelay milliseconds later, and every change made until then is written by
+ * that same flush. With a max delay of zero every change is written through
+ * before the DAO call returns, which is how the DAOs behaved before
+ */
+public class WriteBehind {
+    private static final Logger LOG = Logger.getLogger(WriteBehind.class.getName());
+
+    /**
+     * Writes everything that changed since the previous flush
+     */
+    public interface Flush {
+        void flush() throws IOException;
+    }
+
+    private final long maxDelay; // Longest a deferred change waits, in milliseconds
+    private final Flush flush; // Writes the pending changes of the DAO
+    private final ScheduledExecutorService flusher; // Runs deferred flushes, null when writing through
+    private final Object flushLock = new Object(); // Keeps flushes from overlapping
+    private boolean dirty; // True when changes are waiting for a flush
+    private boolean scheduled; // True when a background flush is due
+
+    /**
+     * Creates a write-behind buffer for a file DAO
+     *
+     * @param name     Name of the background flush thread
+     * @param maxDelay Longest a deferred change may wait to be written, in
+     *                 milliseconds, or zero to write every change through
+     * @param flush    Writes the pending changes of the DAO
+     */
+    public WriteBehind(String name, long maxDelay, Flush flush) {
+        this.maxDelay = maxDelay;
+        this.flush = flush;
+        if (maxDelay > 0) {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    /**
+     * Records that the DAO changed and writes the change with the requested
+     * {@linkplain Durability durability}
+     * <br>
+     * Must not be called while holding the lock the {@link Flush flush} takes
+     *
+     * @param durability Whether the change must be on disk before returning
+     *
+     * @throws IOException when a synchronous flush cannot write to the file
+     */
+    public void write(Durability durability) throws IOException {
+        if (durability == Durability.SYNC || flusher == null) {
+            flush();
+            return;
+        }
+
+        synchronized (this) {
+            dirty = true;
+            schedule();
+        }
+    }
+
+    /**
+     * Writes every pending change before returning
+     *
+     * @throws IOException when the file cannot be written to, in which case the
+     *                     changes stay pending and a background flush retries
+     *                     them
+     */
+    public void flush() throws IOException {
+        synchronized (flushLock) {
+            synchronized (this) {
+                dirty = false;
+            }
+            try {
+                flush.flush();
+            } catch (IOException e) {
+                synchronized (this) {
+                    dirty = true;
+                    // later deferred writes find the changes already pending,
+                    // so the retry must not wait for them
+                    schedule();
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Writes every pending change and then runs action before any other flush
+     * can start
+     * <br>
+     * Changes made while action runs stay pending for the next flush
+     *
+     * @param action Work that needs every earlier change to be on disk, such as
+     *               compacting the files
+     *
+     * @throws IOException when the flush or the action fails
+     */
+    public void checkpoint(Flush action) throws IOException {
+        synchronized (flushLock) {
+            flush();
+            action.flush();
+        }
+    }
+
+    /**
+     * Stops the background flushes and writes whatever is still pending
+     *
+     * @throws IOException when the file cannot be written to
+     */
+    public void close() throws IOException {
+        if (flusher != null)
+            flusher.shutdownNow();
+
+        boolean pending;
+        synchronized (this) {
+            pending = dirty;
+        }
+        if (pending)
+            flush();
+    }
+
+    /**
+     * Schedules a background flush maxDelay milliseconds from now, unless one
+     * is already due or there is no background thread
+     * <br>
+     * Must be called while holding the lock on this
+     */
+    private void schedule() {
+        if (flusher == null || scheduled || flusher.isShutdown())
+            return;
+        scheduled = true;
+        flusher.schedule(this::flushInBackground, maxDelay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs a scheduled flush; a failed flush schedules its own retry
+     */
+    private void flushInBackground() {
+        synchronized (this) {
+            scheduled = false;
+        }
+        try {
+            flush();
+        } catch (IOException e) {
+            LOG.log(Level.SEVERE, "Background flush failed, retrying: " + e.getLocalizedMessage());
+        }
+    }
+}
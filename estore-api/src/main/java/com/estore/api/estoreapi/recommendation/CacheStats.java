@@ -0,0 +1,48 @@
+package com.estore.api.estoreapi.recommendation;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Counters of a cache at one point in time
+ */
+public class CacheStats {
+    @JsonProperty("hits")
+    private final long hits; // Lookups answered from the cache
+    @JsonProperty("misses")
+    private final long misses; // Lookups that were not
+    @JsonProperty("evictions")
+    private final long evictions; // Entries dropped to make room
+    @JsonProperty("size")
+    private final int size; // Entries in the cache
+
+    /**
+     * Creates the counters of a cache
+     *
+     * @param hits      Lookups answered from the cache
+     * @param misses    Lookups that were not
+     * @param evictions Entries dropped to make room
+     * @param size      Entries in the cache
+     */
+    public CacheStats(long hits, long misses, long evictions, int size) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public int getSize() {
+        return size;
+    }
+}
@@ -0,0 +1,49 @@
+package com.estore.api.estoreapi.recommendation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.estore.api.estoreapi.model.Course;
+import com.estore.api.estoreapi.model.User;
+
+/**
+ * Sparse co-occurrence matrix of enrollments: links every two
+ * {@linkplain Course courses} some {@linkplain User user} is enrolled in both
+ * of, weighted by the number of such users
+ * <br>
+ * Only pairs that were ever taken together are stored, so the matrix grows
+ * with the enrollments rather than with the square of the catalog
+ * <br>
+ * Not thread safe, the DAO only uses it while holding the lock on its courses
+ */
+public class CoEnrollment extends WeightedGraph {
+    /**
+     * Counts the courses of one {@linkplain User user}
+     *
+     * @param enrolled The ids of the {@link Course courses} the user is
+     *                 enrolled in
+     */
+    public void addUser(Collection<Integer> enrolled) {
+        addEnrollment(List.of(), enrolled);
+    }
+
+    /**
+     * Counts {@linkplain Course courses} a {@linkplain User user} has just
+     * enrolled in, pairing them with each other and with the courses the user
+     * already had
+     *
+     * @param owned The ids of the {@link Course courses} the user had before
+     * @param added The ids of the {@link Course courses} the user just
+     *              enrolled in, none of them in owned
+     */
+    public void addEnrollment(Collection<Integer> owned, Collection<Integer> added) {
+        List<Integer> addedIds = new ArrayList<>(added);
+        for (int i = 0; i < addedIds.size(); ++i) {
+            for (int ownedId : owned)
+                addWeight(addedIds.get(i), ownedId, 1);
+            for (int j = i + 1; j < addedIds.size(); ++j)
+                addWeight(addedIds.get(i), addedIds.get(j), 1);
+        }
+    }
+}
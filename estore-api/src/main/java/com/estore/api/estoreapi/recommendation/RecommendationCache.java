@@ -0,0 +1,151 @@
+package com.estore.api.estoreapi.recommendation;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import com.estore.api.estoreapi.model.Course;
+import com.estore.api.estoreapi.model.User;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded cache of the {@linkplain Course courses} recommended to each
+ * {@linkplain User user}
+ * <br>
+ * Holds at most a set number of users, evicting the least recently used, and
+ * drops an entry once it is older than a set time. The DAO invalidates a user
+ * when they check out and every user when a course changes
+ * <br>
+ * Thread safe, so the DAO answers from it without taking the lock on its
+ * courses
+ *
+ * {@literal @}Component Spring annotation instantiates a single instance of
+ * this class and injects the instance into other classes as needed
+ */
+@Component
+public class RecommendationCache {
+    /**
+     * The recommendations made to one user
+     */
+    private static class Entry {
+        final List<Integer> ids; // ids of the recommended courses, best first
+        final int count; // the most courses that were asked for
+        final long expires; // time the entry is dropped at, in milliseconds
+
+        Entry(List<Integer> ids, int count, long expires) {
+            this.ids = ids;
+            this.count = count;
+            this.expires = expires;
+        }
+
+        boolean answers(int asked) {
+            // fewer ids than asked for means there were no more to recommend
+            return asked <= count || ids.size() < count;
+        }
+    }
+
+    private final Map<String, Entry> entries; // Entries by user name, least recently used first
+    private final long ttl; // Longest an entry is kept, in milliseconds
+    private final LongSupplier clock; // Current time in milliseconds
+    private long hits; // Recommendations answered from the cache
+    private long misses; // Recommendations that had to be computed
+    private long evictions; // Entries dropped to make room
+
+    /**
+     * Creates a recommendation cache
+     *
+     * @param maxSize The most users to keep recommendations for
+     * @param ttl     Longest recommendations are kept, in milliseconds
+     */
+    @Autowired
+    public RecommendationCache(@Value("${recommendations.cache-size:1000}") int maxSize,
+            @Value("${recommendations.cache-ttl-ms:300000}") long ttl) {
+        this(maxSize, ttl, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a recommendation cache reading the time from a clock
+     *
+     * @param maxSize The most users to keep recommendations for
+     * @param ttl     Longest recommendations are kept, in milliseconds
+     * @param clock   Current time in milliseconds
+     */
+    RecommendationCache(int maxSize, long ttl, LongSupplier clock) {
+        this.ttl = ttl;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= maxSize)
+                    return false;
+                ++evictions;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Looks up the recommendations made to a {@linkplain User user}
+     *
+     * @param userName The name of the {@link User user}
+     * @param count    The most {@link Course courses} asked for
+     *
+     * @return The ids of up to count recommended {@link Course courses}, best
+     *         first, or null if they are not cached
+     */
+    public synchronized List<Integer> get(String userName, int count) {
+        Entry entry = entries.get(userName);
+        if (entry != null && entry.expires <= clock.getAsLong()) {
+            entries.remove(userName);
+            entry = null;
+        }
+        if (entry == null || !entry.answers(count)) {
+            ++misses;
+            return null;
+        }
+        ++hits;
+        return new ArrayList<>(entry.ids.subList(0, Math.min(count, entry.ids.size())));
+    }
+
+    /**
+     * Caches the recommendations made to a {@linkplain User user}
+     *
+     * @param userName The name of the {@link User user}
+     * @param count    The most {@link Course courses} that were asked for
+     * @param ids      The ids of the recommended {@link Course courses}, best
+     *                 first
+     */
+    public synchronized void put(String userName, int count, List<Integer> ids) {
+        entries.put(userName, new Entry(new ArrayList<>(ids), count, clock.getAsLong() + ttl));
+    }
+
+    /**
+     * Drops the recommendations made to a {@linkplain User user}
+     *
+     * @param userName The name of the {@link User user}
+     */
+    public synchronized void invalidate(String userName) {
+        entries.remove(userName);
+    }
+
+    /**
+     * Drops the recommendations made to every {@linkplain User user}
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * Counts how well the cache is doing
+     *
+     * @return the {@link CacheStats counters} of the cache
+     */
+    public synchronized CacheStats stats() {
+        return new CacheStats(hits, misses, evictions, entries.size());
+    }
+}
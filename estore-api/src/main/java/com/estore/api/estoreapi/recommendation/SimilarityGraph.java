@@ -0,0 +1,75 @@
+package com.estore.api.estoreapi.recommendation;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.estore.api.estoreapi.model.Course;
+import com.estore.api.estoreapi.model.TagSet;
+
+/**
+ * Graph linking every two {@linkplain Course courses} that share a tag,
+ * weighted by the number of tags they share
+ * <br>
+ * A course change only touches the courses sharing one of its tags, and the
+ * weight of each link is a popcount over the {@linkplain TagSet tag bitsets}
+ * <br>
+ * Not thread safe, the DAO only uses it while holding the lock on its courses
+ */
+public class SimilarityGraph extends WeightedGraph {
+    private final Map<Integer, TagSet> tags = new HashMap<>(); // Tags each course was linked by
+    private final Map<Integer, Set<Integer>> tagged = new HashMap<>(); // Ids of the courses having each tag,
+                                                                     // by tag number
+
+    /**
+     * Links a {@linkplain Course course} to the courses sharing its tags,
+     * replacing whatever was linked for its id before
+     *
+     * @param course The {@link Course course} to add
+     */
+    public void add(Course course) {
+        int id = course.getId();
+        remove(id);
+        TagSet courseTags = course.getTagSet() == null ? new TagSet() : new TagSet(course.getTagSet());
+        Set<Integer> linked = new HashSet<>();
+        for (int tag = courseTags.nextId(0); tag >= 0; tag = courseTags.nextId(tag + 1)) {
+            Set<Integer> ids = tagged.computeIfAbsent(tag, t -> new HashSet<>());
+            linked.addAll(ids);
+            ids.add(id);
+        }
+        for (int other : linked)
+            addWeight(id, other, courseTags.intersectionSize(tags.get(other)));
+        tags.put(id, courseTags);
+    }
+
+    /**
+     * Removes a {@linkplain Course course} and its links from the graph
+     *
+     * @param id The id of the {@link Course course}, nothing happens if it is
+     *           not in the graph
+     */
+    @Override
+    public void remove(int id) {
+        TagSet courseTags = tags.remove(id);
+        if (courseTags == null)
+            return;
+        for (int tag = courseTags.nextId(0); tag >= 0; tag = courseTags.nextId(tag + 1)) {
+            Set<Integer> ids = tagged.get(tag);
+            ids.remove(id);
+            if (ids.isEmpty())
+                tagged.remove(tag);
+        }
+        super.remove(id);
+    }
+
+    /**
+     * Removes every {@linkplain Course course} from the graph
+     */
+    @Override
+    public void clear() {
+        tags.clear();
+        tagged.clear();
+        super.clear();
+    }
+}
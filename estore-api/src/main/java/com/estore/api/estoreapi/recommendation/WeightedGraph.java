@@ -0,0 +1,229 @@
+package com.estore.api.estoreapi.recommendation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.estore.api.estoreapi.model.Course;
+
+/**
+ * Undirected graph of {@linkplain Course courses} with a positive weight on
+ * each link
+ * <br>
+ * Each course keeps its links sorted heaviest first, so recommendations walk
+ * the links of the courses a user has with the threshold algorithm and stop as
+ * soon as no course further down the links can make the top
+ * <br>
+ * Not thread safe, the DAO only uses it while holding the lock on its courses
+ */
+public class WeightedGraph {
+    /**
+     * A link from a course to another, sorted heaviest first and then by id
+     */
+    static class Link implements Comparable<Link> {
+        final int id; // id of the linked course
+        final int weight; // weight of the link
+
+        Link(int id, int weight) {
+            this.id = id;
+            this.weight = weight;
+        }
+
+        @Override
+        public int compareTo(Link other) {
+            return weight != other.weight ? Integer.compare(other.weight, weight) : Integer.compare(id, other.id);
+        }
+    }
+
+    private final Map<Integer, Map<Integer, Integer>> weights = new HashMap<>(); // Weight of each link, by course
+    private final Map<Integer, NavigableSet<Link>> links = new HashMap<>(); // Links of each course, heaviest first
+
+    /**
+     * Removes a {@linkplain Course course} and its links from the graph
+     *
+     * @param id The id of the {@link Course course}, nothing happens if it is
+     *           not in the graph
+     */
+    public void remove(int id) {
+        links.remove(id);
+        Map<Integer, Integer> courseWeights = weights.remove(id);
+        if (courseWeights == null)
+            return;
+        for (Map.Entry<Integer, Integer> link : courseWeights.entrySet()) {
+            int other = link.getKey();
+            weights.get(other).remove(id);
+            links.get(other).remove(new Link(id, link.getValue()));
+            if (weights.get(other).isEmpty()) {
+                weights.remove(other);
+                links.remove(other);
+            }
+        }
+    }
+
+    /**
+     * Removes every link from the graph
+     */
+    public void clear() {
+        weights.clear();
+        links.clear();
+    }
+
+    /**
+     * The ids of the {@linkplain Course courses} with at least one link
+     *
+     * @return a copy of the ids, may be empty
+     */
+    public Set<Integer> ids() {
+        return new HashSet<>(weights.keySet());
+    }
+
+    /**
+     * The weight of the link between two {@linkplain Course courses}
+     *
+     * @param id    The id of one {@link Course course}
+     * @param other The id of the other {@link Course course}
+     *
+     * @return the weight of the link, zero if the courses are not linked
+     */
+    public int weight(int id, int other) {
+        Map<Integer, Integer> courseWeights = weights.get(id);
+        return courseWeights == null ? 0 : courseWeights.getOrDefault(other, 0);
+    }
+
+    /**
+     * Finds the {@linkplain Course courses} most strongly linked to a set of
+     * courses
+     *
+     * @param owned    The ids of the {@link Course courses} to recommend from,
+     *                 never recommended themselves
+     * @param count    The most courses to recommend
+     * @param tieBreak Orders courses with the same score
+     *
+     * @return The ids of up to count linked {@link Course courses}, best first
+     *
+     * @see #recommend(List, double[], Collection, int, Comparator)
+     */
+    public List<Integer> recommend(Collection<Integer> owned, int count, Comparator<Integer> tieBreak) {
+        return recommend(List.of(this), new double[] { 1 }, owned, count, tieBreak);
+    }
+
+    /**
+     * Finds the {@linkplain Course courses} most strongly linked to a set of
+     * courses over several graphs
+     * <br>
+     * A course scores the weights of its links to the courses in owned, summed
+     * over every graph after multiplying by the factor of the graph. The links
+     * of each owned course are walked heaviest first in every graph, one step
+     * each round, scoring every course met; no course not met yet can score
+     * more than the weights reached in this round scored the same way, so the
+     * walk stops once count courses score above that
+     *
+     * @param graphs   The graphs to score links in
+     * @param factors  The non-negative factor of each graph
+     * @param owned    The ids of the {@link Course courses} to recommend from,
+     *                 never recommended themselves
+     * @param count    The most courses to recommend
+     * @param tieBreak Orders courses with the same score
+     *
+     * @return The ids of up to count linked {@link Course courses}, best first
+     */
+    public static List<Integer> recommend(List<WeightedGraph> graphs, double[] factors, Collection<Integer> owned,
+            int count, Comparator<Integer> tieBreak) {
+        Set<Integer> ownedIds = new HashSet<>(owned);
+        List<Iterator<Link>> walks = new ArrayList<>();
+        List<Double> walkFactors = new ArrayList<>();
+        for (int i = 0; i < graphs.size(); ++i) {
+            if (factors[i] <= 0)
+                continue; // links that do not count need not be walked
+            for (int id : ownedIds) {
+                NavigableSet<Link> courseLinks = graphs.get(i).links.get(id);
+                if (courseLinks != null) {
+                    walks.add(courseLinks.iterator());
+                    walkFactors.add(factors[i]);
+                }
+            }
+        }
+
+        Map<Integer, Double> scores = new HashMap<>(); // score of every course met so far
+        Comparator<Integer> rank = Comparator.<Integer, Double>comparing(scores::get).reversed()
+                .thenComparing(tieBreak);
+        PriorityQueue<Integer> best = new PriorityQueue<>(rank.reversed()); // worst of the best on top
+        while (count > 0) {
+            double threshold = 0; // highest score a course not met yet may have
+            boolean walked = false;
+            for (int i = 0; i < walks.size(); ++i) {
+                Iterator<Link> walk = walks.get(i);
+                if (!walk.hasNext())
+                    continue; // a course not met on these links is not linked to the owned course
+                Link link = walk.next();
+                threshold += walkFactors.get(i) * link.weight;
+                walked = true;
+                if (ownedIds.contains(link.id) || scores.containsKey(link.id))
+                    continue;
+                scores.put(link.id, score(graphs, factors, link.id, ownedIds));
+                best.add(link.id);
+                if (best.size() > count)
+                    best.poll();
+            }
+            if (!walked || (best.size() == count && scores.get(best.peek()) > threshold))
+                break;
+        }
+
+        List<Integer> recommended = new ArrayList<>(best);
+        recommended.sort(rank);
+        return recommended;
+    }
+
+    /**
+     * Adds to the weight of the link between two {@linkplain Course courses},
+     * keeping the links of both sorted
+     *
+     * @param id    The id of one {@link Course course}
+     * @param other The id of the other {@link Course course}
+     * @param delta The amount to add, the link is removed when its weight
+     *              reaches zero
+     */
+    protected void addWeight(int id, int other, int delta) {
+        link(id, other, delta);
+        link(other, id, delta);
+    }
+
+    private void link(int id, int other, int delta) {
+        Map<Integer, Integer> courseWeights = weights.computeIfAbsent(id, i -> new HashMap<>());
+        NavigableSet<Link> courseLinks = links.computeIfAbsent(id, i -> new TreeSet<>());
+        Integer weight = courseWeights.remove(other);
+        if (weight == null) {
+            weight = 0;
+        } else {
+            courseLinks.remove(new Link(other, weight));
+        }
+        weight += delta;
+        if (weight > 0) {
+            courseWeights.put(other, weight);
+            courseLinks.add(new Link(other, weight));
+        } else if (courseWeights.isEmpty()) {
+            weights.remove(id);
+            links.remove(id);
+        }
+    }
+
+    private static double score(List<WeightedGraph> graphs, double[] factors, int id, Set<Integer> owned) {
+        double score = 0;
+        for (int i = 0; i < graphs.size(); ++i) {
+            if (factors[i] <= 0)
+                continue;
+            for (int ownedId : owned)
+                score += factors[i] * graphs.get(i).weight(ownedId, id);
+        }
+        return score;
+    }
+}
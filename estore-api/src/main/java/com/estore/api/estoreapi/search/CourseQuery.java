@@ -0,0 +1,145 @@
+package com.estore.api.estoreapi.search;
+
+import java.util.Collection;
+
+import com.estore.api.estoreapi.model.Course;
+import com.estore.api.estoreapi.ordering.CourseOrder;
+
+/**
+ * A structured search for {@linkplain Course courses}
+ * <br>
+ * Every predicate that is set must hold for a course to match, and a query
+ * with none of them set matches the whole catalog. A ranked query with text
+ * instead matches the courses having any word of the text, most relevant
+ * first and in order within the same relevance. A fuzzy query matches the
+ * words of the text within a few typos rather than the text itself
+ */
+public class CourseQuery {
+    private String text; // Text in the title, description or tags, null for any
+    private Collection<String> tags; // Tags to look for, null or empty for any
+    private boolean matchAll = true; // Whether every tag or any of them is required
+    private Double minPrice; // Lowest price included, null for no lower bound
+    private Double maxPrice; // Highest price included, null for no upper bound
+    private CourseOrder order = CourseOrder.POPULARITY; // Order the matches are listed in
+    private boolean ranked; // Whether the matches are listed by relevance to text first
+    private boolean fuzzy; // Whether the words of text may be misspelled
+    private Integer limit; // Most courses in the result, null for all of them
+    private String after; // Cursor of the previous page, null for the first page
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public Collection<String> getTags() {
+        return tags;
+    }
+
+    public void setTags(Collection<String> tags) {
+        this.tags = tags;
+    }
+
+    public boolean isMatchAll() {
+        return matchAll;
+    }
+
+    public void setMatchAll(boolean matchAll) {
+        this.matchAll = matchAll;
+    }
+
+    public Double getMinPrice() {
+        return minPrice;
+    }
+
+    public void setMinPrice(Double minPrice) {
+        this.minPrice = minPrice;
+    }
+
+    public Double getMaxPrice() {
+        return maxPrice;
+    }
+
+    public void setMaxPrice(Double maxPrice) {
+        this.maxPrice = maxPrice;
+    }
+
+    public CourseOrder getOrder() {
+        return order;
+    }
+
+    public void setOrder(CourseOrder order) {
+        this.order = order;
+    }
+
+    public boolean isRanked() {
+        return ranked;
+    }
+
+    public void setRanked(boolean ranked) {
+        this.ranked = ranked;
+    }
+
+    public boolean isFuzzy() {
+        return fuzzy;
+    }
+
+    public void setFuzzy(boolean fuzzy) {
+        this.fuzzy = fuzzy;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+
+    public String getAfter() {
+        return after;
+    }
+
+    public void setAfter(String after) {
+        this.after = after;
+    }
+
+    /**
+     * Whether the query looks for some text
+     *
+     * @return true if text is set and not empty
+     */
+    public boolean hasText() {
+        return text != null && !text.isEmpty();
+    }
+
+    /**
+     * Whether the query looks for some tags
+     *
+     * @return true if tags is set and not empty
+     */
+    public boolean hasTags() {
+        return tags != null && !tags.isEmpty();
+    }
+
+    /**
+     * Whether the query looks for a price range
+     *
+     * @return true if either bound is set
+     */
+    public boolean hasPriceRange() {
+        return minPrice != null || maxPrice != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "CourseQuery(text=" + text + ",tags=" + tags + ",matchAll=" + matchAll + ",minPrice=" + minPrice
+                + ",maxPrice=" + maxPrice + ",order=" + order + ",ranked=" + ranked + ",fuzzy=" + fuzzy
+                + ",limit=" + limit + ")";
+    }
+}
@@ -0,0 +1,232 @@
+package com.estore.api.estoreapi.search;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.estore.api.estoreapi.model.Course;
+import com.estore.api.estoreapi.model.TagDictionary;
+import com.estore.api.estoreapi.model.TagSet;
+
+/**
+ * Bitmaps of the {@linkplain Course courses} having each tag and priced in
+ * each price bucket
+ * <br>
+ * A bitmap has bit n set when the course with id n is in it. Course ids are
+ * handed out one after the other, so the bitmaps stay dense and small, and a
+ * tag filter or a facet count is a word-wise AND over them
+ * <br>
+ * Not thread safe, the DAO only uses it while holding the lock on its courses
+ */
+public class FacetIndex {
+    static final double[] PRICE_BUCKETS = { 0, 10, 25, 50, 100 }; // Lowest price of each bucket
+
+    private final BitSet ids = new BitSet(); // Every indexed course
+    private final Map<Integer, BitSet> byTag = new HashMap<>(); // Courses having each tag, by tag number
+    private final BitSet[] byPrice = new BitSet[PRICE_BUCKETS.length]; // Courses in each price bucket
+    private final Map<Integer, TagSet> tags = new HashMap<>(); // Tags each course is indexed under
+    private final Map<Integer, Integer> buckets = new HashMap<>(); // Price bucket each course is indexed under
+
+    /**
+     * Creates an empty index
+     */
+    public FacetIndex() {
+        for (int i = 0; i < byPrice.length; ++i)
+            byPrice[i] = new BitSet();
+    }
+
+    /**
+     * Indexes the tags and price of a {@linkplain Course course}, replacing
+     * whatever was indexed for its id before
+     *
+     * @param course The {@link Course course} to index
+     */
+    public void add(Course course) {
+        int id = course.getId();
+        remove(id);
+        TagSet courseTags = course.getTagSet() == null ? new TagSet() : new TagSet(course.getTagSet());
+        for (int tag = courseTags.nextId(0); tag >= 0; tag = courseTags.nextId(tag + 1))
+            byTag.computeIfAbsent(tag, t -> new BitSet()).set(id);
+        int bucket = bucketOf(course.getPrice());
+        byPrice[bucket].set(id);
+        ids.set(id);
+        tags.put(id, courseTags);
+        buckets.put(id, bucket);
+    }
+
+    /**
+     * Removes a {@linkplain Course course} from the index
+     *
+     * @param id The id of the {@link Course course}, nothing happens if it is
+     *           not indexed
+     */
+    public void remove(int id) {
+        TagSet courseTags = tags.remove(id);
+        if (courseTags == null)
+            return;
+        for (int tag = courseTags.nextId(0); tag >= 0; tag = courseTags.nextId(tag + 1)) {
+            BitSet courses = byTag.get(tag);
+            courses.clear(id);
+            if (courses.isEmpty())
+                byTag.remove(tag);
+        }
+        byPrice[buckets.remove(id)].clear(id);
+        ids.clear(id);
+    }
+
+    /**
+     * Removes every {@linkplain Course course} from the index
+     */
+    public void clear() {
+        ids.clear();
+        byTag.clear();
+        for (BitSet bucket : byPrice)
+            bucket.clear();
+        tags.clear();
+        buckets.clear();
+    }
+
+    /**
+     * The {@linkplain Course courses} in the index
+     *
+     * @return a new bitmap of the ids of every indexed {@link Course course}
+     */
+    public BitSet all() {
+        return (BitSet) ids.clone();
+    }
+
+    /**
+     * Finds the {@linkplain Course courses} having some tags
+     *
+     * @param tagNames The tags to look for, exactly as the courses have them
+     * @param matchAll true for the courses having every tag, false for those
+     *                 having any of them
+     *
+     * @return a new bitmap of the ids of the matching {@link Course courses}
+     */
+    public BitSet withTags(Collection<String> tagNames, boolean matchAll) {
+        BitSet result = null;
+        for (String tag : tagNames) {
+            BitSet courses = byTag.get(TagDictionary.find(tag));
+            if (courses == null) {
+                if (matchAll)
+                    return new BitSet(); // no course has this tag
+                continue;
+            }
+            if (result == null) {
+                result = (BitSet) courses.clone();
+            } else if (matchAll) {
+                result.and(courses);
+            } else {
+                result.or(courses);
+            }
+        }
+        return result == null ? new BitSet() : result;
+    }
+
+    /**
+     * Bounds the number of {@linkplain Course courses}
+     * {@link #withTags(Collection, boolean)} would find, without finding them
+     *
+     * @param tagNames The tags to look for
+     * @param matchAll true for the courses having every tag, false for those
+     *                 having any of them
+     *
+     * @return at least the number of matching {@link Course courses}
+     */
+    public int estimate(Collection<String> tagNames, boolean matchAll) {
+        int estimate = matchAll ? Integer.MAX_VALUE : 0;
+        for (String tag : tagNames) {
+            BitSet courses = byTag.get(TagDictionary.find(tag));
+            int count = courses == null ? 0 : courses.cardinality();
+            estimate = matchAll ? Math.min(estimate, count) : estimate + count;
+        }
+        return matchAll && estimate == Integer.MAX_VALUE ? 0 : estimate;
+    }
+
+    /**
+     * Checks one {@linkplain Course course} for some tags
+     *
+     * @param id       The id of the {@link Course course}
+     * @param tagNames The tags to look for
+     * @param matchAll true to require every tag, false to require any of them
+     *
+     * @return true if {@link #withTags(Collection, boolean)} would find the
+     *         course
+     */
+    public boolean matches(int id, Collection<String> tagNames, boolean matchAll) {
+        TagSet courseTags = tags.get(id);
+        if (courseTags == null)
+            return false;
+        for (String tag : tagNames) {
+            if (courseTags.contains(tag) != matchAll)
+                return !matchAll;
+        }
+        return matchAll && !tagNames.isEmpty();
+    }
+
+    /**
+     * Counts the {@linkplain Course courses} of a result having each tag
+     *
+     * @param result The ids of the {@link Course courses} to count
+     *
+     * @return the number of courses in result having each tag, most common tag
+     *         first and then by name, without the tags none of them has
+     */
+    public Map<String, Integer> countTags(BitSet result) {
+        List<Map.Entry<String, Integer>> counts = new ArrayList<>();
+        for (Map.Entry<Integer, BitSet> tag : byTag.entrySet()) {
+            int count = countIn(tag.getValue(), result);
+            if (count > 0)
+                counts.add(Map.entry(TagDictionary.name(tag.getKey()), count));
+        }
+        counts.sort(Map.Entry.<String, Integer>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey()));
+
+        Map<String, Integer> tagCounts = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> count : counts)
+            tagCounts.put(count.getKey(), count.getValue());
+        return tagCounts;
+    }
+
+    /**
+     * Counts the {@linkplain Course courses} of a result in each price bucket
+     *
+     * @param result The ids of the {@link Course courses} to count
+     *
+     * @return the number of courses in result in each bucket, cheapest bucket
+     *         first, named like "10-25" or "100+"
+     */
+    public Map<String, Integer> countPrices(BitSet result) {
+        Map<String, Integer> priceCounts = new LinkedHashMap<>();
+        for (int i = 0; i < byPrice.length; ++i)
+            priceCounts.put(bucketName(i), countIn(byPrice[i], result));
+        return priceCounts;
+    }
+
+    private static int countIn(BitSet courses, BitSet result) {
+        BitSet both = (BitSet) courses.clone();
+        both.and(result);
+        return both.cardinality();
+    }
+
+    private static int bucketOf(double price) {
+        int bucket = 0;
+        while (bucket + 1 < PRICE_BUCKETS.length && price >= PRICE_BUCKETS[bucket + 1])
+            ++bucket;
+        return bucket;
+    }
+
+    private static String bucketName(int bucket) {
+        String low = formatPrice(PRICE_BUCKETS[bucket]);
+        return bucket + 1 < PRICE_BUCKETS.length ? low + "-" + formatPrice(PRICE_BUCKETS[bucket + 1]) : low + "+";
+    }
+
+    private static String formatPrice(double price) {
+        return price == Math.rint(price) ? Long.toString((long) price) : Double.toString(price);
+    }
+}
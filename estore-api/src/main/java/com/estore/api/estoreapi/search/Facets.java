@@ -0,0 +1,44 @@
+package com.estore.api.estoreapi.search;
+
+import java.util.Map;
+
+import com.estore.api.estoreapi.model.Course;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * How the {@linkplain Course courses} of a result are spread over tags and
+ * prices, for narrowing the result down
+ */
+public class Facets {
+    @JsonProperty("count")
+    private final int count; // Courses in the result
+    @JsonProperty("tags")
+    private final Map<String, Integer> tags; // Courses having each tag, most common first
+    @JsonProperty("prices")
+    private final Map<String, Integer> prices; // Courses in each price bucket, cheapest first
+
+    /**
+     * Creates the facets of a result
+     *
+     * @param count  The number of {@link Course courses} in the result
+     * @param tags   The number of courses having each tag
+     * @param prices The number of courses in each price bucket
+     */
+    public Facets(int count, Map<String, Integer> tags, Map<String, Integer> prices) {
+        this.count = count;
+        this.tags = tags;
+        this.prices = prices;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public Map<String, Integer> getTags() {
+        return tags;
+    }
+
+    public Map<String, Integer> getPrices() {
+        return prices;
+    }
+}
@@ -0,0 +1,227 @@
+package com.estore.api.estoreapi.search;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.estore.api.estoreapi.model.Course;
+
+/**
+ * Typo tolerant index of the words in {@linkplain Course course} titles,
+ * descriptions and tags
+ * <br>
+ * Every distinct word is cut into trigrams, padded so the ends of a word count
+ * too, and each trigram maps to the words containing it. A misspelled word
+ * still shares most of its trigrams with the word meant, so the words sharing
+ * enough of them are the only candidates, and only those are checked with a
+ * bounded edit distance. The cost follows the number of candidates, not the
+ * size of the catalog
+ * <br>
+ * Not thread safe, the DAO only uses it while holding the lock on its courses
+ */
+public class FuzzyIndex {
+    private static final String PAD = "$$"; // Marks the ends of a word in its trigrams
+
+    private final Map<String, Set<Integer>> courses = new HashMap<>(); // word to ids of the courses having it
+    private final Map<String, Set<String>> trigrams = new HashMap<>(); // trigram to the words containing it
+    private final Map<Integer, Set<String>> words = new HashMap<>(); // words of each course
+
+    /**
+     * Indexes the words of a {@linkplain Course course}, replacing whatever was
+     * indexed for its id before
+     *
+     * @param course The {@link Course course} to index
+     */
+    public void add(Course course) {
+        int id = course.getId();
+        remove(id);
+        Set<String> courseWords = new LinkedHashSet<>(RelevanceIndex.tokenize(course.getTitle()));
+        courseWords.addAll(RelevanceIndex.tokenize(course.getDescription()));
+        if (course.getTagSet() != null)
+            for (String tag : course.getTagSet())
+                courseWords.addAll(RelevanceIndex.tokenize(tag));
+
+        for (String word : courseWords) {
+            Set<Integer> ids = courses.computeIfAbsent(word, w -> new HashSet<>());
+            if (ids.isEmpty())
+                for (String trigram : trigrams(word))
+                    trigrams.computeIfAbsent(trigram, t -> new HashSet<>()).add(word);
+            ids.add(id);
+        }
+        words.put(id, courseWords);
+    }
+
+    /**
+     * Removes a {@linkplain Course course} from the index
+     *
+     * @param id The id of the {@link Course course}, nothing happens if it is
+     *           not indexed
+     */
+    public void remove(int id) {
+        Set<String> courseWords = words.remove(id);
+        if (courseWords == null)
+            return;
+        for (String word : courseWords) {
+            Set<Integer> ids = courses.get(word);
+            ids.remove(id);
+            if (!ids.isEmpty())
+                continue;
+            // no course has the word anymore
+            courses.remove(word);
+            for (String trigram : trigrams(word)) {
+                Set<String> containing = trigrams.get(trigram);
+                containing.remove(word);
+                if (containing.isEmpty())
+                    trigrams.remove(trigram);
+            }
+        }
+    }
+
+    /**
+     * Removes every {@linkplain Course course} from the index
+     */
+    public void clear() {
+        courses.clear();
+        trigrams.clear();
+        words.clear();
+    }
+
+    /**
+     * Finds the {@linkplain Course courses} having, for every word of a search,
+     * a word within {@link #maxDistance(int)} edits of it
+     *
+     * @param text The search text
+     *
+     * @return The ids of the matching {@link Course courses}, empty if text has
+     *         no words
+     */
+    public Set<Integer> search(String text) {
+        Set<Integer> matches = null;
+        for (String word : new LinkedHashSet<>(RelevanceIndex.tokenize(text))) {
+            Set<Integer> having = new HashSet<>();
+            for (String similar : similarWords(word))
+                having.addAll(courses.get(similar));
+            if (matches == null)
+                matches = having;
+            else
+                matches.retainAll(having);
+            if (matches.isEmpty())
+                break;
+        }
+        return matches == null ? new HashSet<>() : matches;
+    }
+
+    /**
+     * Rewrites a search with the indexed words each of its words may have meant
+     *
+     * @param text The search text
+     *
+     * @return the indexed words close to the words of text, separated by spaces
+     */
+    public String expand(String text) {
+        Set<String> expanded = new LinkedHashSet<>();
+        for (String word : RelevanceIndex.tokenize(text))
+            expanded.addAll(similarWords(word));
+        return String.join(" ", expanded);
+    }
+
+    /**
+     * Finds the indexed words within {@link #maxDistance(int)} edits of a word
+     *
+     * @param word A lowercased word
+     *
+     * @return the close indexed words, word itself among them if it is indexed
+     */
+    Set<String> similarWords(String word) {
+        int bound = maxDistance(word.length());
+        Set<String> similar = new HashSet<>();
+        if (bound == 0) {
+            if (courses.containsKey(word))
+                similar.add(word);
+            return similar;
+        }
+
+        // each edit breaks at most three trigrams, so a word within bound
+        // edits shares all but 3 * bound of the trigrams of word
+        Set<String> wordTrigrams = trigrams(word);
+        int needed = Math.max(1, wordTrigrams.size() - 3 * bound);
+        Map<String, Integer> shared = new HashMap<>();
+        for (String trigram : wordTrigrams)
+            for (String candidate : trigrams.getOrDefault(trigram, Set.of()))
+                shared.merge(candidate, 1, Integer::sum);
+        for (Map.Entry<String, Integer> candidate : shared.entrySet()) {
+            String other = candidate.getKey();
+            if (candidate.getValue() >= needed && Math.abs(other.length() - word.length()) <= bound
+                    && editDistance(word, other, bound) <= bound)
+                similar.add(other);
+        }
+        return similar;
+    }
+
+    /**
+     * The most edits a word may be off by and still match
+     *
+     * @param length The length of the word
+     *
+     * @return none for up to 2 characters, one for up to 5, two for longer
+     *         words
+     */
+    static int maxDistance(int length) {
+        return length <= 2 ? 0 : length <= 5 ? 1 : 2;
+    }
+
+    /**
+     * Counts the insertions, deletions and substitutions turning one word into
+     * another, giving up past a bound
+     * <br>
+     * Only the diagonal band the bound allows is filled, so the work is
+     * proportional to the length of the words times the bound
+     *
+     * @param a     A word
+     * @param b     Another word
+     * @param bound The largest distance that matters
+     *
+     * @return the edit distance, or bound + 1 if it is more than bound
+     */
+    static int editDistance(String a, String b, int bound) {
+        if (Math.abs(a.length() - b.length()) > bound)
+            return bound + 1;
+        int infinity = bound + 1;
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); ++j)
+            previous[j] = j <= bound ? j : infinity;
+        for (int i = 1; i <= a.length(); ++i) {
+            int from = Math.max(1, i - bound);
+            int to = Math.min(b.length(), i + bound);
+            current[0] = i <= bound ? i : infinity;
+            if (from > 1)
+                current[from - 1] = infinity;
+            int rowMin = current[0];
+            for (int j = from; j <= to; ++j) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                current[j] = Math.min(current[j], infinity);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (to < b.length())
+                current[to + 1] = infinity;
+            if (rowMin > bound)
+                return infinity;
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], infinity);
+    }
+
+    private static Set<String> trigrams(String word) {
+        String padded = PAD + word + PAD;
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); ++i)
+            grams.add(padded.substring(i, i + 3));
+        return grams;
+    }
+}
@@ -0,0 +1,127 @@
+package com.estore.api.estoreapi.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.estore.api.estoreapi.model.Course;
+
+/**
+ * Sorted index of {@linkplain Course course} prices
+ * <br>
+ * Answers a price range in O(log n + k) for k courses in the range, without
+ * looking at the courses outside it
+ * <br>
+ * Not thread safe, the DAO only uses it while holding the lock on its courses
+ */
+public class PriceIndex {
+    private final NavigableMap<Double, Set<Integer>> byPrice = new TreeMap<>(); // price to ids of courses at it
+    private final Map<Integer, Double> prices = new HashMap<>(); // price each course is indexed under
+
+    /**
+     * Indexes the price of a {@linkplain Course course}, replacing whatever was
+     * indexed for its id before
+     *
+     * @param course The {@link Course course} to index
+     */
+    public void add(Course course) {
+        remove(course.getId());
+        prices.put(course.getId(), course.getPrice());
+        byPrice.computeIfAbsent(course.getPrice(), p -> new TreeSet<>()).add(course.getId());
+    }
+
+    /**
+     * Removes a {@linkplain Course course} from the index
+     *
+     * @param id The id of the {@link Course course}, nothing happens if it is
+     *           not indexed
+     */
+    public void remove(int id) {
+        Double price = prices.remove(id);
+        if (price == null)
+            return;
+        Set<Integer> ids = byPrice.get(price);
+        ids.remove(id);
+        if (ids.isEmpty())
+            byPrice.remove(price);
+    }
+
+    /**
+     * Removes every {@linkplain Course course} from the index
+     */
+    public void clear() {
+        byPrice.clear();
+        prices.clear();
+    }
+
+    /**
+     * Counts the {@linkplain Course courses} priced within a range, giving up
+     * once the count is past a cap
+     *
+     * @param minPrice The lowest price included, null for no lower bound
+     * @param maxPrice The highest price included, null for no upper bound
+     * @param cap      The count past which the exact number does not matter
+     *
+     * @return the number of {@link Course courses} in the range, or a number
+     *         above cap if there are more than cap of them
+     */
+    public int count(Double minPrice, Double maxPrice, int cap) {
+        if (minPrice != null && maxPrice != null && minPrice > maxPrice)
+            return 0;
+        int count = 0;
+        for (Set<Integer> atPrice : range(byPrice, minPrice, maxPrice).values()) {
+            count += atPrice.size();
+            if (count > cap)
+                break;
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether a {@linkplain Course course} is priced within a range
+     *
+     * @param id       The id of the {@link Course course}
+     * @param minPrice The lowest price included, null for no lower bound
+     * @param maxPrice The highest price included, null for no upper bound
+     *
+     * @return true if the course is indexed at a price in the range
+     */
+    public boolean contains(int id, Double minPrice, Double maxPrice) {
+        Double price = prices.get(id);
+        return price != null && (minPrice == null || price >= minPrice) && (maxPrice == null || price <= maxPrice);
+    }
+
+    /**
+     * Finds the {@linkplain Course courses} priced within a range
+     *
+     * @param minPrice The lowest price included, null for no lower bound
+     * @param maxPrice The highest price included, null for no upper bound
+     *
+     * @return The ids of the {@link Course courses} in the range, cheapest first
+     *         and by id within a price, may be empty
+     */
+    public List<Integer> range(Double minPrice, Double maxPrice) {
+        if (minPrice != null && maxPrice != null && minPrice > maxPrice)
+            return new ArrayList<>();
+
+        List<Integer> ids = new ArrayList<>();
+        for (Set<Integer> atPrice : range(byPrice, minPrice, maxPrice).values())
+            ids.addAll(atPrice);
+        return ids;
+    }
+
+    private static NavigableMap<Double, Set<Integer>> range(NavigableMap<Double, Set<Integer>> byPrice,
+            Double minPrice, Double maxPrice) {
+        NavigableMap<Double, Set<Integer>> range = byPrice;
+        if (minPrice != null)
+            range = range.tailMap(minPrice, true);
+        if (maxPrice != null)
+            range = range.headMap(maxPrice, true);
+        return range;
+    }
+}
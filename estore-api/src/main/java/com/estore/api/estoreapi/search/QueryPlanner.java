@@ -0,0 +1,176 @@
+package com.estore.api.estoreapi.search;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.estore.api.estoreapi.model.Course;
+
+/**
+ * Answers a {@linkplain CourseQuery course query} from the indexes without
+ * scanning the catalog
+ * <br>
+ * Each predicate of the query is estimated against its own index, and only
+ * the most selective one is looked up. Its candidates are then checked one by
+ * one against the other predicates, so no other candidate set is ever built
+ * and the work is bounded by the rarest predicate rather than the catalog
+ * <br>
+ * Not thread safe, the DAO only uses it while holding the lock on its courses
+ */
+public class QueryPlanner {
+    /**
+     * The index a query is driven by
+     */
+    public enum Driver {
+        NONE, // the query has no predicate, every course matches
+        TAGS, // the tag bitmaps
+        TEXT, // the text postings
+        PRICE // the price range
+    }
+
+    private final TextIndex textIndex; // Finds courses by text
+    private final PriceIndex priceIndex; // Finds courses by price
+    private final FacetIndex facetIndex; // Finds courses by tag
+    private final RelevanceIndex relevanceIndex; // Scores courses against the words of a text
+    private final FuzzyIndex fuzzyIndex; // Finds courses by words close to those of a text
+
+    /**
+     * Creates a planner over a set of indexes
+     *
+     * @param textIndex      The index of the {@link Course course} text
+     * @param priceIndex     The index of the {@link Course course} prices
+     * @param facetIndex     The index of the {@link Course course} tags
+     * @param relevanceIndex The index scoring {@link Course course} relevance
+     * @param fuzzyIndex     The index of the {@link Course course} words, for
+     *                       misspelled searches
+     */
+    public QueryPlanner(TextIndex textIndex, PriceIndex priceIndex, FacetIndex facetIndex,
+            RelevanceIndex relevanceIndex, FuzzyIndex fuzzyIndex) {
+        this.textIndex = textIndex;
+        this.priceIndex = priceIndex;
+        this.facetIndex = facetIndex;
+        this.relevanceIndex = relevanceIndex;
+        this.fuzzyIndex = fuzzyIndex;
+    }
+
+    /**
+     * Picks the index to look a query up in
+     *
+     * @param query The {@link CourseQuery query}
+     *
+     * @return the predicate expected to match the fewest {@link Course courses},
+     *         or {@link Driver#NONE} if the query has no predicate
+     */
+    public Driver plan(CourseQuery query) {
+        return plan(query, fuzzyMatches(query));
+    }
+
+    /**
+     * Picks the index to look a query up in, knowing the fuzzy text matches
+     */
+    private Driver plan(CourseQuery query, Set<Integer> fuzzyMatches) {
+        Driver driver = Driver.NONE;
+        int best = Integer.MAX_VALUE;
+        if (query.hasTags()) {
+            driver = Driver.TAGS;
+            best = facetIndex.estimate(query.getTags(), query.isMatchAll());
+        }
+        if (query.hasText() && best > 0) {
+            int estimate = fuzzyMatches != null ? fuzzyMatches.size() : textIndex.estimate(query.getText());
+            if (estimate < best) {
+                driver = Driver.TEXT;
+                best = estimate;
+            }
+        }
+        if (query.hasPriceRange() && best > 0) {
+            // counting stops as soon as the range is known to be no better
+            if (priceIndex.count(query.getMinPrice(), query.getMaxPrice(), best) < best)
+                driver = Driver.PRICE;
+        }
+        return driver;
+    }
+
+    /**
+     * Finds the {@linkplain Course courses} matching a query
+     *
+     * @param query The {@link CourseQuery query}
+     *
+     * @return the ids of the matching {@link Course courses}, unsorted, or null
+     *         if the query has no predicate and every course matches
+     */
+    public Collection<Integer> search(CourseQuery query) {
+        // a fuzzy text is only ever looked up whole, its matches are both the
+        // estimate and the probe
+        Set<Integer> fuzzyMatches = fuzzyMatches(query);
+        Driver driver = plan(query, fuzzyMatches);
+        Collection<Integer> candidates;
+        switch (driver) {
+            case TAGS:
+                candidates = toIds(facetIndex.withTags(query.getTags(), query.isMatchAll()));
+                break;
+            case TEXT:
+                candidates = fuzzyMatches != null ? fuzzyMatches : textIndex.search(query.getText());
+                break;
+            case PRICE:
+                candidates = priceIndex.range(query.getMinPrice(), query.getMaxPrice());
+                break;
+            default:
+                return null;
+        }
+
+        List<Integer> matches = new ArrayList<>();
+        for (int id : candidates) {
+            if (driver != Driver.TAGS && query.hasTags()
+                    && !facetIndex.matches(id, query.getTags(), query.isMatchAll()))
+                continue;
+            if (driver != Driver.TEXT && query.hasText() && (fuzzyMatches != null ? !fuzzyMatches.contains(id)
+                    : !textIndex.matches(id, query.getText())))
+                continue;
+            if (driver != Driver.PRICE && query.hasPriceRange()
+                    && !priceIndex.contains(id, query.getMinPrice(), query.getMaxPrice()))
+                continue;
+            matches.add(id);
+        }
+        return matches;
+    }
+
+    /**
+     * Scores the {@linkplain Course courses} having any word of the text of a
+     * query and matching its other predicates
+     *
+     * @param query The {@link CourseQuery query}, with text
+     *
+     * @return the relevance of each matching {@link Course course}, higher is
+     *         more relevant
+     */
+    public Map<Integer, Double> rank(CourseQuery query) {
+        // a fuzzy text is scored by the words it may have meant
+        String text = query.isFuzzy() ? fuzzyIndex.expand(query.getText()) : query.getText();
+        Map<Integer, Double> scores = relevanceIndex.score(text);
+        scores.keySet().removeIf(id -> !matchesFilters(id, query));
+        return scores;
+    }
+
+    /**
+     * Checks one {@linkplain Course course} against the tag and price
+     * predicates of a query
+     */
+    private boolean matchesFilters(int id, CourseQuery query) {
+        return (!query.hasTags() || facetIndex.matches(id, query.getTags(), query.isMatchAll()))
+                && (!query.hasPriceRange() || priceIndex.contains(id, query.getMinPrice(), query.getMaxPrice()));
+    }
+
+    private Set<Integer> fuzzyMatches(CourseQuery query) {
+        return query.isFuzzy() && query.hasText() ? fuzzyIndex.search(query.getText()) : null;
+    }
+
+    private static List<Integer> toIds(BitSet ids) {
+        List<Integer> idList = new ArrayList<>(ids.cardinality());
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1))
+            idList.add(id);
+        return idList;
+    }
+}
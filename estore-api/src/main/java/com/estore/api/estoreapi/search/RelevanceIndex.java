@@ -0,0 +1,171 @@
+package com.estore.api.estoreapi.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.estore.api.estoreapi.model.Course;
+import com.estore.api.estoreapi.model.Lesson;
+
+/**
+ * Word index scoring how relevant each {@linkplain Course course} is to a
+ * search with BM25F
+ * <br>
+ * The title, description, tags and lesson titles of each course are cut into
+ * lowercased words. A word found in a field counts for the boost of that field,
+ * scaled down when the field is longer than the same field usually is, and the
+ * words of a search are worth more the fewer courses have them. Repeating a
+ * word saturates, so a course whose title is the search outranks one that
+ * mentions it often in a long description
+ * <br>
+ * Not thread safe, the DAO only uses it while holding the lock on its courses
+ */
+public class RelevanceIndex {
+    static final double K1 = 1.2; // How fast repeating a word stops adding to the score
+    static final double B = 0.75; // How much a long field is scaled down
+    // Boost of each field, in the order TITLE, DESCRIPTION, TAGS, LESSONS
+    static final double[] BOOSTS = { 3, 1, 2, 1.5 };
+
+    private final Map<String, Map<Integer, int[]>> postings = new HashMap<>(); // word to the number of times each
+                                                                                // course has it, by field
+    private final Map<Integer, int[]> lengths = new HashMap<>(); // words in each field of each course
+    private final Map<Integer, Set<String>> words = new HashMap<>(); // distinct words of each course
+    private final long[] totalLengths = new long[BOOSTS.length]; // words in each field of every course
+
+    /**
+     * Indexes a {@linkplain Course course}, replacing whatever was indexed for
+     * its id before
+     *
+     * @param course The {@link Course course} to index
+     */
+    public void add(Course course) {
+        int id = course.getId();
+        remove(id);
+
+        List<List<String>> fields = new ArrayList<>();
+        fields.add(tokenize(course.getTitle()));
+        fields.add(tokenize(course.getDescription()));
+        List<String> tagWords = new ArrayList<>();
+        if (course.getTagSet() != null)
+            for (String tag : course.getTagSet())
+                tagWords.addAll(tokenize(tag));
+        fields.add(tagWords);
+        List<String> lessonWords = new ArrayList<>();
+        if (course.getContent() != null)
+            for (Lesson lesson : course.getContent())
+                lessonWords.addAll(tokenize(lesson.getTitle()));
+        fields.add(lessonWords);
+
+        int[] length = new int[BOOSTS.length];
+        Set<String> courseWords = new LinkedHashSet<>();
+        for (int field = 0; field < BOOSTS.length; ++field) {
+            for (String word : fields.get(field)) {
+                postings.computeIfAbsent(word, w -> new HashMap<>())
+                        .computeIfAbsent(id, i -> new int[BOOSTS.length])[field]++;
+                courseWords.add(word);
+            }
+            length[field] = fields.get(field).size();
+            totalLengths[field] += length[field];
+        }
+        lengths.put(id, length);
+        words.put(id, courseWords);
+    }
+
+    /**
+     * Removes a {@linkplain Course course} from the index
+     *
+     * @param id The id of the {@link Course course}, nothing happens if it is
+     *           not indexed
+     */
+    public void remove(int id) {
+        Set<String> courseWords = words.remove(id);
+        if (courseWords == null)
+            return;
+        for (String word : courseWords) {
+            Map<Integer, int[]> counts = postings.get(word);
+            counts.remove(id);
+            if (counts.isEmpty())
+                postings.remove(word);
+        }
+        int[] length = lengths.remove(id);
+        for (int field = 0; field < BOOSTS.length; ++field)
+            totalLengths[field] -= length[field];
+    }
+
+    /**
+     * Removes every {@linkplain Course course} from the index
+     */
+    public void clear() {
+        postings.clear();
+        lengths.clear();
+        words.clear();
+        for (int field = 0; field < BOOSTS.length; ++field)
+            totalLengths[field] = 0;
+    }
+
+    /**
+     * Scores the {@linkplain Course courses} having any word of a search
+     *
+     * @param text The search text
+     *
+     * @return the score of every {@link Course course} having a word of text,
+     *         higher is more relevant, may be empty
+     */
+    public Map<Integer, Double> score(String text) {
+        Map<Integer, Double> scores = new HashMap<>();
+        int courseCount = lengths.size();
+        if (courseCount == 0)
+            return scores;
+        double[] averageLengths = new double[BOOSTS.length];
+        for (int field = 0; field < BOOSTS.length; ++field)
+            averageLengths[field] = (double) totalLengths[field] / courseCount;
+
+        for (String word : new LinkedHashSet<>(tokenize(text))) {
+            Map<Integer, int[]> counts = postings.get(word);
+            if (counts == null)
+                continue;
+            double idf = Math.log(1 + (courseCount - counts.size() + 0.5) / (counts.size() + 0.5));
+            for (Map.Entry<Integer, int[]> count : counts.entrySet()) {
+                double weight = weight(count.getValue(), lengths.get(count.getKey()), averageLengths);
+                scores.merge(count.getKey(), idf * weight / (K1 + weight), Double::sum);
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * Sums how often a course has a word over its fields, boosted by field and
+     * scaled by field length
+     */
+    private static double weight(int[] counts, int[] length, double[] averageLengths) {
+        double weight = 0;
+        for (int field = 0; field < BOOSTS.length; ++field) {
+            if (counts[field] == 0)
+                continue;
+            double norm = 1 - B + B * length[field] / averageLengths[field];
+            weight += BOOSTS[field] * counts[field] / norm;
+        }
+        return weight;
+    }
+
+    /**
+     * Cuts a text into lowercased words, splitting at anything that is not a
+     * letter or a digit
+     *
+     * @param text The text, may be null
+     *
+     * @return the words of text, in order and with repeats
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null)
+            return tokens;
+        for (String token : text.toLowerCase().split("[^\\p{L}\\p{N}]+"))
+            if (!token.isEmpty())
+                tokens.add(token);
+        return tokens;
+    }
+}
@@ -0,0 +1,157 @@
+package com.estore.api.estoreapi.search;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import com.estore.api.estoreapi.model.Course;
+import com.estore.api.estoreapi.recommendation.CacheStats;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded cache of the ids of the {@linkplain Course courses} found by each
+ * search
+ * <br>
+ * Only the ids are kept, in the order they are listed in, so the courses
+ * themselves are looked up for each request and no caller ever shares a
+ * course with the cache or with another caller
+ * <br>
+ * Every result is kept with the version of the catalog it was found in, and
+ * only answers lookups made at that same version, so a change to any course
+ * makes every result out of date without anything being cleared. Holds at most
+ * a set number of results, evicting the least recently used
+ * <br>
+ * When the same search is asked again while it is still being worked out, the
+ * later callers wait for the first one's result instead of searching too, so a
+ * burst of identical searches costs one
+ * <br>
+ * Thread safe, lookups never wait for the lock on the catalog, only for a
+ * search of the same key that is already running
+ *
+ * {@literal @}Component Spring annotation instantiates a single instance of
+ * this class and injects the instance into other classes as needed
+ */
+@Component
+public class SearchCache {
+    /**
+     * The result of one search
+     */
+    private static class Entry {
+        final long version; // version of the catalog the result was found in
+        final List<Integer> ids; // the result, never changed
+
+        Entry(long version, List<Integer> ids) {
+            this.version = version;
+            this.ids = ids;
+        }
+    }
+
+    private final Map<String, Entry> entries; // Results by key, least recently used first, guarded by itself
+    // Searches being worked out, by key and version
+    private final Map<String, CompletableFuture<List<Integer>>> inFlight = new ConcurrentHashMap<>();
+    private long hits; // Searches answered from the cache or by waiting on another, guarded by entries
+    private long misses; // Searches that had to be worked out, guarded by entries
+    private long evictions; // Results dropped to make room, guarded by entries
+
+    /**
+     * Creates a search cache
+     *
+     * @param maxSize The most results to keep
+     */
+    @Autowired
+    public SearchCache(@Value("${search.cache-size:1000}") int maxSize) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= maxSize)
+                    return false;
+                ++evictions;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Looks up the result of a search, working it out if it is not cached at
+     * the current version and no other caller is already doing so
+     *
+     * @param key     The normalized search, two keys are equal only if the
+     *                searches find the same {@link Course courses}
+     * @param version The version of the catalog, read before searching
+     * @param search  Works out the ids of the result in order, reflecting the
+     *                catalog at version or later
+     *
+     * @return the ids of the result, which cannot be changed, may be empty
+     */
+    public List<Integer> get(String key, long version, Supplier<List<Integer>> search) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.version == version) {
+                ++hits;
+                return entry.ids;
+            }
+        }
+
+        String flightKey = version + ":" + key;
+        CompletableFuture<List<Integer>> mine = new CompletableFuture<>();
+        CompletableFuture<List<Integer>> running = inFlight.putIfAbsent(flightKey, mine);
+        if (running != null) {
+            synchronized (entries) {
+                ++hits;
+            }
+            return await(running);
+        }
+
+        try {
+            synchronized (entries) {
+                ++misses;
+            }
+            List<Integer> result = List.copyOf(search.get());
+            synchronized (entries) {
+                // a slower search of an older version must not replace a newer result
+                Entry entry = entries.get(key);
+                if (entry == null || entry.version <= version)
+                    entries.put(key, new Entry(version, result));
+            }
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, mine);
+        }
+    }
+
+    /**
+     * Waits for a search another caller is working out, failing the same way
+     * it did
+     */
+    private static List<Integer> await(CompletableFuture<List<Integer>> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    /**
+     * Counts how well the cache is doing
+     *
+     * @return the {@link CacheStats counters} of the cache
+     */
+    public CacheStats stats() {
+        synchronized (entries) {
+            return new CacheStats(hits, misses, evictions, entries.size());
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.estore.api.estoreapi.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.estore.api.estoreapi.model.Course;
+
+/**
+ * Source of the typeahead suggestions of the course search box
+ * <br>
+ * The titles and tags of the {@linkplain Course courses} are kept here as they
+ * change, and are turned on demand into a {@link Snapshot}: an immutable sorted
+ * array of lowercased keys, one for each word a title or tag can be completed
+ * from. A snapshot answers a prefix by binary search without any lock, so
+ * keystroke traffic never waits for the catalog
+ * <br>
+ * Not thread safe, the DAO only uses it while holding the lock on its courses
+ */
+public class SuggestIndex {
+    public static final int MAX_SUGGESTIONS = 20; // Most suggestions a snapshot answers with
+    static final int SHORT_PREFIX = 2; // Longest prefix whose suggestions are worked out ahead
+
+    /**
+     * The suggestions a {@linkplain Course course} contributes
+     */
+    private static class Entry {
+        final String title; // as given
+        final Set<String> tags; // as given
+        final int studentsEnrolled; // popularity when the entry was made
+
+        Entry(Course course) {
+            this.title = course.getTitle();
+            this.tags = course.getTagSet() == null ? Set.of() : new LinkedHashSet<>(course.getTagSet());
+            this.studentsEnrolled = course.getStudentsEnrolled();
+        }
+
+        boolean sameText(Entry other) {
+            return other != null && Objects.equals(title, other.title) && tags.equals(other.tags);
+        }
+    }
+
+    private final Map<Integer, Entry> entries = new HashMap<>(); // Titles and tags by course id
+
+    /**
+     * Records the title and tags of a {@linkplain Course course}, replacing
+     * whatever was recorded for its id before
+     *
+     * @param course The {@link Course course}
+     *
+     * @return true if the course is new or its title or tags changed, so that
+     *         snapshots taken before are out of date; a change of popularity
+     *         alone only reorders suggestions and is picked up by the next
+     *         snapshot
+     */
+    public boolean add(Course course) {
+        Entry entry = new Entry(course);
+        return !entry.sameText(entries.put(course.getId(), entry));
+    }
+
+    /**
+     * Forgets a {@linkplain Course course}
+     *
+     * @param id The id of the {@link Course course}
+     *
+     * @return true if the course was recorded
+     */
+    public boolean remove(int id) {
+        return entries.remove(id) != null;
+    }
+
+    /**
+     * Forgets every {@linkplain Course course}
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Builds an immutable snapshot of the current suggestions
+     * <br>
+     * A title weighs one more than the number of students enrolled in the
+     * courses having it, so a new course still counts, and a tag weighs the
+     * number of courses having it
+     *
+     * @return the snapshot
+     */
+    public Snapshot snapshot() {
+        // distinct suggestions, ignoring case, with their weights
+        Map<String, String> texts = new HashMap<>();
+        Map<String, Integer> weights = new HashMap<>();
+        for (Entry entry : entries.values()) {
+            if (entry.title != null)
+                addSuggestion(entry.title, entry.studentsEnrolled + 1, texts, weights);
+            for (String tag : entry.tags)
+                addSuggestion(tag, 1, texts, weights);
+        }
+
+        List<String> suggestions = new ArrayList<>(texts.values());
+        suggestions.sort(String.CASE_INSENSITIVE_ORDER);
+        int[] weightArray = new int[suggestions.size()];
+        TreeMap<String, List<Integer>> keys = new TreeMap<>();
+        for (int i = 0; i < suggestions.size(); ++i) {
+            String text = suggestions.get(i);
+            weightArray[i] = weights.get(text.toLowerCase());
+            for (String key : keys(text))
+                keys.computeIfAbsent(key, k -> new ArrayList<>(1)).add(i);
+        }
+        return new Snapshot(keys, suggestions.toArray(new String[0]), weightArray);
+    }
+
+    private static void addSuggestion(String text, int weight, Map<String, String> texts,
+            Map<String, Integer> weights) {
+        String folded = text.toLowerCase();
+        if (folded.isBlank())
+            return;
+        texts.putIfAbsent(folded, text);
+        weights.merge(folded, weight, Integer::sum);
+    }
+
+    /**
+     * Lists the keys a suggestion is found by: the whole lowercased text and its
+     * tail from the start of every later word
+     */
+    private static Set<String> keys(String text) {
+        String folded = text.toLowerCase().strip();
+        Set<String> keys = new LinkedHashSet<>();
+        keys.add(folded);
+        for (int i = 1; i < folded.length(); ++i)
+            if (!Character.isLetterOrDigit(folded.charAt(i - 1)) && Character.isLetterOrDigit(folded.charAt(i)))
+                keys.add(folded.substring(i));
+        return keys;
+    }
+
+    /**
+     * Immutable suggestions at one point in time, safe to read from any thread
+     */
+    public static class Snapshot {
+        private final String[] keys; // sorted lowercased keys
+        private final int[][] targets; // suggestions found by each key
+        private final String[] suggestions; // distinct suggestion texts
+        private final int[] weights; // weight of each suggestion
+        private final Map<String, String[]> shortPrefixes; // best suggestions of every short prefix
+
+        Snapshot(TreeMap<String, List<Integer>> keyTargets, String[] suggestions, int[] weights) {
+            this.keys = keyTargets.keySet().toArray(new String[0]);
+            this.targets = new int[keys.length][];
+            int k = 0;
+            for (List<Integer> target : keyTargets.values())
+                targets[k++] = target.stream().mapToInt(Integer::intValue).toArray();
+            this.suggestions = suggestions;
+            this.weights = weights;
+
+            Map<String, String[]> best = new HashMap<>();
+            for (String key : keys)
+                for (int length = 1; length <= Math.min(SHORT_PREFIX, key.length()); ++length)
+                    best.computeIfAbsent(key.substring(0, length), prefix -> scan(prefix, MAX_SUGGESTIONS));
+            this.shortPrefixes = best;
+        }
+
+        /**
+         * Suggests completions of a prefix
+         *
+         * @param prefix The text typed so far, ignoring case
+         * @param limit  The most suggestions wanted, at most
+         *               {@value SuggestIndex#MAX_SUGGESTIONS}
+         *
+         * @return the titles and tags having a word starting with prefix,
+         *         heaviest first and then alphabetically, may be empty
+         */
+        public String[] suggest(String prefix, int limit) {
+            String folded = prefix == null ? "" : prefix.toLowerCase().stripLeading();
+            if (folded.isEmpty())
+                return new String[0];
+            limit = Math.min(limit, MAX_SUGGESTIONS);
+            if (folded.length() <= SHORT_PREFIX) {
+                String[] best = shortPrefixes.getOrDefault(folded, new String[0]);
+                return Arrays.copyOf(best, Math.min(limit, best.length));
+            }
+            return scan(folded, limit);
+        }
+
+        /**
+         * Picks the heaviest suggestions having a key starting with prefix, going
+         * through the keys in its range
+         */
+        private String[] scan(String prefix, int limit) {
+            Set<Integer> found = new LinkedHashSet<>();
+            for (int k = firstAtOrAfter(prefix); k < keys.length && keys[k].startsWith(prefix); ++k)
+                for (int target : targets[k])
+                    found.add(target);
+
+            // the lightest suggestion kept so far is on top, ready to be replaced
+            PriorityQueue<Integer> best = new PriorityQueue<>(
+                    (a, b) -> weights[a] != weights[b] ? Integer.compare(weights[a], weights[b])
+                            : Integer.compare(b, a));
+            for (int target : found) {
+                best.add(target);
+                if (best.size() > limit)
+                    best.poll();
+            }
+            String[] result = new String[best.size()];
+            for (int i = result.length - 1; i >= 0; --i)
+                result[i] = suggestions[best.poll()];
+            return result;
+        }
+
+        private int firstAtOrAfter(String prefix) {
+            int index = Arrays.binarySearch(keys, prefix);
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.estore.api.estoreapi.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.estore.api.estoreapi.model.Course;
+import com.estore.api.estoreapi.model.TagSet;
+
+/**
+ * Inverted index answering the course search without scanning every
+ * {@linkplain Course course}
+ * <br>
+ * The lowercased title and description of each course are cut into every
+ * substring of one to {@value #GRAM} characters, and each of these n-grams maps
+ * to the ids of the courses containing it. A query of up to {@value #GRAM}
+ * characters is one of those n-grams, so its posting list is the answer; a
+ * longer query is looked up by intersecting the posting lists of its
+ * {@value #GRAM}-grams and checking the few candidates left. Tags are matched
+ * whole, exactly as the search always has
+ * <br>
+ * Not thread safe, the DAO only uses it while holding the lock on its courses
+ */
+public class TextIndex {
+    static final int GRAM = 3; // Longest n-gram indexed
+
+    /**
+     * The indexed text of one {@linkplain Course course}
+     * <br>
+     * Kept apart from the course so the index can remove exactly what it added
+     * even if the course object is changed in place
+     */
+    private static class Document {
+        final String title; // lowercased
+        final String description; // lowercased
+        final TagSet tags; // as given
+
+        Document(Course course) {
+            this.title = normalize(course.getTitle());
+            this.description = normalize(course.getDescription());
+            this.tags = course.getTagSet() == null ? new TagSet() : new TagSet(course.getTagSet());
+        }
+
+        boolean contains(String text) {
+            return title.contains(text) || description.contains(text);
+        }
+    }
+
+    private final Map<Integer, Document> documents = new HashMap<>(); // Indexed text by course id
+    private final Map<String, Set<Integer>> postings = new HashMap<>(); // n-gram to ids of the courses containing it
+    private final Map<String, Set<Integer>> tags = new HashMap<>(); // tag to ids of the courses having it
+
+    /**
+     * Indexes a {@linkplain Course course}, replacing whatever was indexed for
+     * its id before
+     *
+     * @param course The {@link Course course} to index
+     */
+    public void add(Course course) {
+        remove(course.getId());
+        Document document = new Document(course);
+        documents.put(course.getId(), document);
+        for (String gram : grams(document))
+            postings.computeIfAbsent(gram, g -> new HashSet<>()).add(course.getId());
+        for (String tag : document.tags)
+            tags.computeIfAbsent(tag, t -> new HashSet<>()).add(course.getId());
+    }
+
+    /**
+     * Removes a {@linkplain Course course} from the index
+     *
+     * @param id The id of the {@link Course course}, nothing happens if it is
+     *           not indexed
+     */
+    public void remove(int id) {
+        Document document = documents.remove(id);
+        if (document == null)
+            return;
+        for (String gram : grams(document))
+            removePosting(postings, gram, id);
+        for (String tag : document.tags)
+            removePosting(tags, tag, id);
+    }
+
+    /**
+     * Removes every {@linkplain Course course} from the index
+     */
+    public void clear() {
+        documents.clear();
+        postings.clear();
+        tags.clear();
+    }
+
+    /**
+     * Finds the {@linkplain Course courses} whose title or description contains
+     * text, ignoring case, or that have text, lowercased, as a tag
+     *
+     * @param text The text to look for
+     *
+     * @return The ids of the matching {@link Course courses}, may be empty
+     */
+    public Set<Integer> search(String text) {
+        String query = normalize(text);
+        Set<Integer> matches;
+        if (query.isEmpty()) {
+            matches = new HashSet<>(documents.keySet()); // every string contains the empty one
+        } else if (query.length() <= GRAM) {
+            matches = new HashSet<>(postings.getOrDefault(query, Set.of()));
+        } else {
+            matches = searchLong(query);
+        }
+        matches.addAll(tags.getOrDefault(query, Set.of()));
+        return matches;
+    }
+
+    /**
+     * Bounds the number of {@linkplain Course courses} {@link #search(String)}
+     * would find, without finding them
+     *
+     * @param text The text to look for
+     *
+     * @return at least the number of {@link Course courses} matching text
+     */
+    public int estimate(String text) {
+        String query = normalize(text);
+        int tagged = tags.getOrDefault(query, Set.of()).size();
+        if (query.isEmpty())
+            return documents.size();
+        if (query.length() <= GRAM)
+            return postings.getOrDefault(query, Set.of()).size() + tagged;
+        int rarest = Integer.MAX_VALUE;
+        for (int i = 0; i + GRAM <= query.length() && rarest > 0; ++i)
+            rarest = Math.min(rarest, postings.getOrDefault(query.substring(i, i + GRAM), Set.of()).size());
+        return rarest + tagged;
+    }
+
+    /**
+     * Checks one {@linkplain Course course} against a search
+     *
+     * @param id   The id of the {@link Course course}
+     * @param text The text to look for
+     *
+     * @return true if {@link #search(String)} would find the course
+     */
+    public boolean matches(int id, String text) {
+        Document document = documents.get(id);
+        if (document == null)
+            return false;
+        String query = normalize(text);
+        return document.contains(query) || document.tags.contains(query);
+    }
+
+    /**
+     * Number of {@linkplain Course courses} indexed
+     *
+     * @return the number of indexed {@link Course courses}
+     */
+    public int size() {
+        return documents.size();
+    }
+
+    /**
+     * Finds the courses containing a query longer than {@value #GRAM} characters
+     *
+     * @param query The lowercased query
+     *
+     * @return The ids of the {@link Course courses} containing query
+     */
+    private Set<Integer> searchLong(String query) {
+        List<Set<Integer>> lists = new ArrayList<>();
+        for (int i = 0; i + GRAM <= query.length(); ++i) {
+            Set<Integer> list = postings.get(query.substring(i, i + GRAM));
+            if (list == null)
+                return new HashSet<>(); // some n-gram of the query appears nowhere
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(Set::size)); // intersect starting from the rarest n-gram
+
+        Set<Integer> matches = new HashSet<>();
+        candidates: for (int id : lists.get(0)) {
+            for (int i = 1; i < lists.size(); ++i)
+                if (!lists.get(i).contains(id))
+                    continue candidates;
+            // every n-gram is in the course, but possibly in the wrong order
+            if (documents.get(id).contains(query))
+                matches.add(id);
+        }
+        return matches;
+    }
+
+    /**
+     * Collects the distinct n-grams of the title and description of a document
+     * <br>
+     * The fields are cut separately so no n-gram spans both
+     *
+     * @param document The indexed text of a {@link Course course}
+     *
+     * @return The n-grams of document
+     */
+    private static Set<String> grams(Document document) {
+        Set<String> grams = new HashSet<>();
+        addGrams(document.title, grams);
+        addGrams(document.description, grams);
+        return grams;
+    }
+
+    private static void addGrams(String text, Set<String> grams) {
+        for (int start = 0; start < text.length(); ++start)
+            for (int end = start + 1; end <= Math.min(start + GRAM, text.length()); ++end)
+                grams.add(text.substring(start, end));
+    }
+
+    private static void removePosting(Map<String, Set<Integer>> index, String key, int id) {
+        Set<Integer> list = index.get(key);
+        if (list != null && list.remove(id) && list.isEmpty())
+            index.remove(key);
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase();
+    }
+}
@@ -3,8 +3,13 @@ package com.estore.api.estoreapi.controller;
 import com.estore.api.estoreapi.controller.requests.AuthenticatedRequest;
 import com.estore.api.estoreapi.model.Course;
 import com.estore.api.estoreapi.model.User;
+import com.estore.api.estoreapi.ordering.CourseOrder;
 import com.estore.api.estoreapi.persistence.CourseDAO;
+import com.estore.api.estoreapi.persistence.Page;
 import com.estore.api.estoreapi.persistence.UserDAO;
+import com.estore.api.estoreapi.recommendation.CacheStats;
+import com.estore.api.estoreapi.search.CourseQuery;
+import com.estore.api.estoreapi.search.Facets;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
@@ -15,6 +20,8 @@ import org.springframework.http.ResponseEntity;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
@@ -125,10 +132,11 @@ public class CourseControllerTest {
                 new ArrayList<>());
 
         // When getCourses is called return the courses created above
-        when(mockCourseDAO.getCourses()).thenReturn(courses);
+        when(mockCourseDAO.getCourses(CourseOrder.POPULARITY)).thenReturn(courses);
 
         // Invoke
-        ResponseEntity<Course[]> response = courseController.getCourses();
+        ResponseEntity<Course[]> response = courseController.getCourses(null, null, null, null, null,
+                CourseController.FULL_VIEW, null, null);
 
         // Analyze
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -252,7 +260,8 @@ public class CourseControllerTest {
         when(mockCourseDAO.findCourses(searchString)).thenReturn(courses);
 
         // Invoke
-        ResponseEntity<Course[]> response = courseController.searchCourses(searchString);
+        ResponseEntity<Course[]> response = courseController.searchCourses(searchString, CourseController.FULL_VIEW,
+                null, null);
 
         // Analyze
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -268,10 +277,256 @@ public class CourseControllerTest {
         doThrow(new IOException()).when(mockCourseDAO).findCourses(searchString);
 
         // Invoke
-        ResponseEntity<Course[]> response = courseController.searchCourses(searchString);
+        ResponseEntity<Course[]> response = courseController.searchCourses(searchString, CourseController.FULL_VIEW,
+                null, null);
 
         // Analyze
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
     }
 
+    @Test
+    public void testGetCourseSummaries() throws IOException {
+        // Setup
+        Course[] summaries = { course.toSummary() };
+        when(mockCourseDAO.getCourseSummaries(CourseOrder.POPULARITY)).thenReturn(summaries);
+
+        // Invoke
+        ResponseEntity<Course[]> response = courseController.getCourses(null, null, null, null, null, null, null, null);
+
+        // Analyze
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(summaries, response.getBody());
+        verify(mockCourseDAO, never()).getCourses(any());
+    }
+
+    @Test
+    public void testSearchCourseSummaries() throws IOException {
+        // Setup
+        String searchString = "ca";
+        Course[] summaries = { course.toSummary() };
+        when(mockCourseDAO.findCourseSummaries(searchString)).thenReturn(summaries);
+
+        // Invoke
+        ResponseEntity<Course[]> response = courseController.searchCourses(searchString, "summary", null, null);
+
+        // Analyze
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(summaries, response.getBody());
+        verify(mockCourseDAO, never()).findCourses(searchString);
+    }
+
+    @Test
+    public void testGetCoursesByPrice() throws IOException {
+        // Setup
+        Course[] courses = { course };
+        when(mockCourseDAO.findCoursesByPrice(5.0, 15.0, CourseOrder.PRICE)).thenReturn(courses);
+
+        // Invoke
+        ResponseEntity<Course[]> response = courseController.getCourses(5.0, 15.0, null, null, null, null, null, null);
+
+        // Analyze
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, response.getBody().length);
+        assertEquals(course, response.getBody()[0]);
+        verify(mockCourseDAO, never()).getCourseSummaries(any(CourseOrder.class));
+    }
+
+    @Test
+    public void testGetCoursesByPriceInvalidRange() throws IOException {
+        // Invoke
+        ResponseEntity<Course[]> response = courseController.getCourses(15.0, 5.0, null, null, null, null, null, null);
+
+        // Analyze
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verify(mockCourseDAO, never()).findCoursesByPrice(any(), any(), any());
+    }
+
+    @Test
+    public void testGetCoursesSorted() throws IOException {
+        // Setup
+        Course[] courses = { course };
+        when(mockCourseDAO.getCourseSummaries(CourseOrder.NAME)).thenReturn(courses);
+        when(mockCourseDAO.findCoursesByPrice(null, 15.0, CourseOrder.NAME)).thenReturn(courses);
+
+        // Invoke
+        ResponseEntity<Course[]> response = courseController.getCourses(null, null, null, null, "name", null, null,
+                null);
+        ResponseEntity<Course[]> rangeResponse = courseController.getCourses(null, 15.0, null, null, "Name", null,
+                null, null);
+        ResponseEntity<Course[]> badResponse = courseController.getCourses(null, null, null, null, "newest", null,
+                null, null);
+
+        // Analyze
+        assertEquals(courses, response.getBody());
+        assertEquals(1, rangeResponse.getBody().length);
+        assertEquals(HttpStatus.BAD_REQUEST, badResponse.getStatusCode());
+    }
+
+    @Test
+    public void testGetCoursesPage() throws IOException {
+        // Setup
+        Page<Course> page = new Page<>(List.of(course), "next");
+        when(mockCourseDAO.getCourses(CourseOrder.NAME, "first", 1)).thenReturn(page);
+        when(mockCourseDAO.findCoursesByPrice(null, 15.0, CourseOrder.PRICE, null, 1))
+                .thenReturn(new Page<>(List.of(course), null));
+
+        // Invoke
+        ResponseEntity<Course[]> response = courseController.getCourses(null, null, null, null, "name", null, 1,
+                "first");
+        ResponseEntity<Course[]> rangeResponse = courseController.getCourses(null, 15.0, null, null, null, null, 1,
+                null);
+
+        // Analyze
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("next", response.getHeaders().getFirst(CourseController.NEXT_CURSOR_HEADER));
+        assertEquals(1, response.getBody().length);
+        assertEquals(null, response.getBody()[0].getContent()); // summaries by default
+        assertEquals(null, rangeResponse.getHeaders().getFirst(CourseController.NEXT_CURSOR_HEADER));
+        assertEquals(1, rangeResponse.getBody().length);
+        verify(mockCourseDAO, never()).getCourseSummaries(any(CourseOrder.class));
+    }
+
+    @Test
+    public void testSearchCoursesPage() throws IOException {
+        // Setup
+        when(mockCourseDAO.findCourses("ma", null, 1)).thenReturn(new Page<>(List.of(course), "next"));
+
+        // Invoke
+        ResponseEntity<Course[]> response = courseController.searchCourses("ma", CourseController.FULL_VIEW, 1,
+                null);
+
+        // Analyze
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("next", response.getHeaders().getFirst(CourseController.NEXT_CURSOR_HEADER));
+        assertEquals(course, response.getBody()[0]);
+    }
+
+    @Test
+    public void testGetCoursesByTags() throws IOException {
+        // Setup
+        Course[] courses = { course };
+        List<String> tags = List.of("math", "beginner");
+        when(mockCourseDAO.findCoursesByTags(tags, false, null, 15.0, CourseOrder.PRICE)).thenReturn(courses);
+        when(mockCourseDAO.findCoursesByTags(tags, true, null, null, CourseOrder.POPULARITY, null, 1))
+                .thenReturn(new Page<>(List.of(course), "next"));
+
+        // Invoke
+        ResponseEntity<Course[]> anyResponse = courseController.getCourses(null, 15.0, tags, "any", null,
+                CourseController.FULL_VIEW, null, null);
+        ResponseEntity<Course[]> pageResponse = courseController.getCourses(null, null, tags, null, null, null, 1,
+                null);
+        ResponseEntity<Course[]> badResponse = courseController.getCourses(null, null, tags, "some", null, null,
+                null, null);
+
+        // Analyze
+        assertEquals(HttpStatus.OK, anyResponse.getStatusCode());
+        assertEquals(course, anyResponse.getBody()[0]);
+        assertEquals("next", pageResponse.getHeaders().getFirst(CourseController.NEXT_CURSOR_HEADER));
+        assertEquals(1, pageResponse.getBody().length);
+        assertEquals(HttpStatus.BAD_REQUEST, badResponse.getStatusCode());
+    }
+
+    @Test
+    public void testGetFacets() throws IOException {
+        // Setup
+        Facets facets = new Facets(1, Map.of("math", 1), Map.of("10-25", 1));
+        when(mockCourseDAO.getFacets(List.of("math"), true, null, null)).thenReturn(facets);
+
+        // Invoke
+        ResponseEntity<Facets> response = courseController.getFacets(null, null, List.of("math"), "ALL");
+        ResponseEntity<Facets> badMode = courseController.getFacets(null, null, List.of("math"), "none");
+        ResponseEntity<Facets> badRange = courseController.getFacets(15.0, 5.0, null, null);
+
+        // Analyze
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(facets, response.getBody());
+        assertEquals(HttpStatus.BAD_REQUEST, badMode.getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, badRange.getStatusCode());
+    }
+
+    @Test
+    public void testQueryCourses() throws IOException {
+        // Setup
+        when(mockCourseDAO.search(any(CourseQuery.class))).thenReturn(new Page<>(List.of(course), "next"));
+
+        // Invoke
+        ResponseEntity<Course[]> response = courseController.queryCourses("ma", false, List.of("math"), "any",
+                null, 20.0, null, CourseController.FULL_VIEW, 10, null);
+        ResponseEntity<Course[]> priceOnly = courseController.queryCourses(null, false, null, null, 5.0, null, null,
+                null, null, null);
+        ResponseEntity<Course[]> badSort = courseController.queryCourses("ma", false, null, null, null, null,
+                "newest", null, null, null);
+
+        // Analyze
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(course, response.getBody()[0]);
+        assertEquals("next", response.getHeaders().getFirst(CourseController.NEXT_CURSOR_HEADER));
+        assertEquals(HttpStatus.OK, priceOnly.getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, badSort.getStatusCode());
+        verify(mockCourseDAO).search(argThat(query -> "ma".equals(query.getText()) && !query.isMatchAll()
+                && query.getMaxPrice() == 20.0 && query.getOrder() == CourseOrder.POPULARITY
+                && query.getLimit() == 10));
+        verify(mockCourseDAO).search(argThat(query -> query.getOrder() == CourseOrder.PRICE
+                && query.getLimit() == null));
+
+        // Invoke
+        courseController.queryCourses("ma", false, null, null, null, null, "Relevance", null, null, null);
+        courseController.queryCourses("algerba", true, null, null, null, null, null, null, null, null);
+
+        // Analyze
+        verify(mockCourseDAO).search(argThat(query -> query.isRanked() && query.getOrder() == CourseOrder.POPULARITY));
+        verify(mockCourseDAO).search(argThat(query -> query.isFuzzy() && "algerba".equals(query.getText())));
+    }
+
+    @Test
+    public void testGetSearchStats() {
+        // Setup
+        CacheStats stats = new CacheStats(3, 1, 0, 2);
+        when(mockCourseDAO.getSearchCacheStats()).thenReturn(stats);
+
+        // Invoke
+        ResponseEntity<CacheStats> response = courseController.getSearchStats("Admin");
+        ResponseEntity<CacheStats> forbidden = courseController.getSearchStats("User");
+
+        // Analyze
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(stats, response.getBody());
+        assertEquals(HttpStatus.FORBIDDEN, forbidden.getStatusCode());
+    }
+
+    @Test
+    public void testSuggestCourses() {
+        // Setup
+        String[] suggestions = { "Linear Algebra", "linear" };
+        when(mockCourseDAO.suggest("lin", CourseController.DEFAULT_SUGGESTIONS)).thenReturn(suggestions);
+
+        // Invoke
+        ResponseEntity<String[]> response = courseController.suggestCourses("lin", null);
+        ResponseEntity<String[]> badLimit = courseController.suggestCourses("lin", 0);
+
+        // Analyze
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(suggestions, response.getBody());
+        assertEquals(HttpStatus.BAD_REQUEST, badLimit.getStatusCode());
+    }
+
+    @Test
+    public void testGetCoursesPageInvalid() throws IOException {
+        // Setup
+        when(mockCourseDAO.getCourses(CourseOrder.POPULARITY, "bad", 10))
+                .thenThrow(new IllegalArgumentException("Malformed cursor"));
+
+        // Invoke
+        ResponseEntity<Course[]> badCursor = courseController.getCourses(null, null, null, null, null, null, 10, "bad");
+        ResponseEntity<Course[]> noLimit = courseController.getCourses(null, null, null, null, null, null, null, "bad");
+        ResponseEntity<Course[]> zeroLimit = courseController.getCourses(null, null, null, null, null, null, 0, null);
+        ResponseEntity<Course[]> bigLimit = courseController.searchCourses("ma", null,
+                CourseController.MAX_PAGE_SIZE + 1, null);
+
+        // Analyze
+        assertEquals(HttpStatus.BAD_REQUEST, badCursor.getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, noLimit.getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, zeroLimit.getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, bigLimit.getStatusCode());
+    }
 }
@@ -0,0 +1,93 @@
+package com.estore.api.estoreapi.controller;
+
+import com.estore.api.estoreapi.model.Image;
+import com.estore.api.estoreapi.persistence.ImageStore;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Tag("Controller-tier")
+public class ImageControllerTest {
+    private static final byte[] PNG = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n', 0, 0, 0, 0 };
+
+    @TempDir
+    File tempDir;
+    private ImageController imageController;
+    private String hash;
+
+    @BeforeEach
+    void setupImageController() throws IOException {
+        ImageStore imageStore = new ImageStore(tempDir.getPath());
+        imageController = new ImageController(imageStore);
+        hash = imageStore.store(new Image("data:image/png;base64," + Base64.getEncoder().encodeToString(PNG)))
+                .getHash();
+    }
+
+    @Test
+    void testGetImage() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/images/" + hash);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        imageController.getImage(hash, request, response);
+
+        // without sendfile the bytes are copied into the response
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals("image/png", response.getContentType());
+        assertEquals("\"" + hash + "\"", response.getHeader(HttpHeaders.ETAG));
+        assertEquals(ImageController.CACHE_FOREVER, response.getHeader(HttpHeaders.CACHE_CONTROL));
+        assertArrayEquals(PNG, response.getContentAsByteArray());
+    }
+
+    @Test
+    void testGetImageSendfile() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/images/" + hash);
+        request.setAttribute(ImageController.SENDFILE_SUPPORT, Boolean.TRUE);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        imageController.getImage(hash, request, response);
+
+        // the container is left to send the file, so nothing is written here
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals(new File(tempDir, hash).getAbsolutePath(),
+                request.getAttribute(ImageController.SENDFILE_FILENAME));
+        assertEquals(0L, request.getAttribute(ImageController.SENDFILE_START));
+        assertEquals((long) PNG.length, request.getAttribute(ImageController.SENDFILE_END));
+        assertEquals(PNG.length, response.getContentLengthLong());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void testGetImageNotModified() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/images/" + hash);
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"" + hash + "\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        imageController.getImage(hash, request, response);
+
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void testGetImageNotFound() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/images/missing");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        imageController.getImage("0".repeat(64), request, response);
+
+        assertEquals(HttpStatus.NOT_FOUND.value(), response.getStatus());
+    }
+}
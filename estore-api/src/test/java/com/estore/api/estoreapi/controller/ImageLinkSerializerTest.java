@@ -0,0 +1,65 @@
+package com.estore.api.estoreapi.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.estore.api.estoreapi.model.Image;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+@Tag("Controller-tier")
+public class ImageLinkSerializerTest {
+    private static final String HASH = "0".repeat(64);
+
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setupSerializer() {
+        objectMapper = new ObjectMapper()
+                .registerModule(new SimpleModule().addSerializer(Image.class, new ImageLinkSerializer()));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/courses");
+        request.setScheme("https");
+        request.setServerName("shop.example.com");
+        request.setServerPort(8443);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    @AfterEach
+    void clearRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void testStoredLinkIsMadeAbsolute() {
+        JsonNode json = objectMapper.valueToTree(new Image("/images/" + HASH, HASH));
+
+        assertEquals("https://shop.example.com:8443/images/" + HASH, json.get("link").asText());
+        assertEquals(HASH, json.get("hash").asText());
+    }
+
+    @Test
+    void testOtherLinksAreKept() {
+        JsonNode json = objectMapper.valueToTree(new Image("https://example.com/logo.png"));
+
+        assertEquals("https://example.com/logo.png", json.get("link").asText());
+        assertTrue(json.get("hash").isNull());
+    }
+
+    @Test
+    void testNoRequest() {
+        RequestContextHolder.resetRequestAttributes();
+
+        JsonNode json = objectMapper.valueToTree(new Image("/images/" + HASH, HASH));
+
+        assertEquals("/images/" + HASH, json.get("link").asText());
+    }
+}
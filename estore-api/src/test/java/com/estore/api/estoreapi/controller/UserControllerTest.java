@@ -1,6 +1,7 @@
 package com.estore.api.estoreapi.controller;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.mockito.Mockito.mock;
@@ -9,13 +10,16 @@ import static org.mockito.Mockito.when;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import com.estore.api.estoreapi.controller.requests.AuthenticatedRequest;
 import com.estore.api.estoreapi.model.Course;
 import com.estore.api.estoreapi.model.User;
 import com.estore.api.estoreapi.persistence.CourseDAO;
+import com.estore.api.estoreapi.persistence.Page;
 import com.estore.api.estoreapi.persistence.UserDAO;
+import com.estore.api.estoreapi.recommendation.CacheStats;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
@@ -87,16 +91,17 @@ public class UserControllerTest {
         when(mockUserDAO.getUser(bannedUser.getUserName())).thenReturn(bannedUser);
         when(mockCourseDAO.getCourse(3)).thenReturn(course);
 
-        ResponseEntity<Course[]> response = userController.getUserCourses(user.getUserName());
+        ResponseEntity<Course[]> response = userController.getUserCourses(user.getUserName(),
+                UserController.FULL_VIEW);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertArrayEquals(user.getCourses().stream().map(i -> mockCourseDAO.getCourse(i)).toArray(Course[]::new),
                 response.getBody());
 
-        response = userController.getUserCourses("Alice");
+        response = userController.getUserCourses("Alice", null);
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
 
-        response = userController.getUserCourses(bannedUser.getUserName());
+        response = userController.getUserCourses(bannedUser.getUserName(), null);
         assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
     }
 
@@ -107,9 +112,10 @@ public class UserControllerTest {
         when(mockCourseDAO.getCourse(4)).thenReturn(course);
         when(mockCourseDAO.getCourse(5)).thenReturn(course2);
         when(mockCourseDAO.getCourse(6)).thenReturn(course3);
-        when(mockCourseDAO.getRecommendedCoursesForUser(user)).thenReturn(new Course[] { course3 });
+        when(mockCourseDAO.getRecommendedCoursesForUser(user, 2)).thenReturn(new Course[] { course3 });
 
-        ResponseEntity<Course[]> response = userController.getRecommendedCourses(user.getUserName(), 2);
+        ResponseEntity<Course[]> response = userController.getRecommendedCourses(user.getUserName(), 2,
+                UserController.FULL_VIEW);
 
         Course[] expected = new Course[1];
         expected[0] = course3;
@@ -117,10 +123,10 @@ public class UserControllerTest {
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertArrayEquals(expected, response.getBody());
 
-        response = userController.getRecommendedCourses("Alice", 2);
+        response = userController.getRecommendedCourses("Alice", 2, null);
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
 
-        response = userController.getRecommendedCourses(bannedUser.getUserName(), 2);
+        response = userController.getRecommendedCourses(bannedUser.getUserName(), 2, null);
         assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
 
     }
@@ -130,16 +136,35 @@ public class UserControllerTest {
         when(mockUserDAO.getUser(user.getUserName())).thenReturn(user);
         when(mockCourseDAO.getCourse(4)).thenReturn(course);
 
-        ResponseEntity<Course[]> response = userController.getUserShoppingCart(user.getUserName());
+        ResponseEntity<Course[]> response = userController.getUserShoppingCart(user.getUserName(),
+                UserController.FULL_VIEW);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertArrayEquals(user.getShoppingCart(mockCourseDAO), response.getBody());
 
-        response = userController.getUserShoppingCart("Alice");
+        response = userController.getUserShoppingCart("Alice", null);
 
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
     }
 
+    @Test
+    void testGetCourseSummaries() {
+        when(mockUserDAO.getUser(user.getUserName())).thenReturn(user);
+        Course[] summaries = { course.toSummary() };
+        when(mockCourseDAO.getCourseSummaries(user.getShoppingCart())).thenReturn(summaries);
+        when(mockCourseDAO.getCourseSummaries(user.getCourses())).thenReturn(summaries);
+        when(mockCourseDAO.getRecommendedCoursesForUser(user, 1)).thenReturn(new Course[] { course2 });
+
+        // lists are summarized unless the full view is asked for
+        assertArrayEquals(summaries, userController.getUserShoppingCart(user.getUserName(), null).getBody());
+        assertArrayEquals(summaries, userController.getUserCourses(user.getUserName(), null).getBody());
+
+        Course[] recommended = userController.getRecommendedCourses(user.getUserName(), 1, null).getBody();
+        assertEquals(1, recommended.length);
+        assertNull(recommended[0].getContent());
+        assertEquals(course2.getId(), recommended[0].getId());
+    }
+
     @Test
     void testRegisterUser() throws IOException {
         when(mockUserDAO.createUser(user)).thenReturn(user);
@@ -283,19 +308,102 @@ public class UserControllerTest {
     void testGetUsers() {
         User[] users = new User[] { user };
         when(mockUserDAO.getAllUsers()).thenReturn(users);
-        ResponseEntity<User[]> response = userController.getAllUsers("Admin");
+        ResponseEntity<User[]> response = userController.getAllUsers("Admin", null, null);
         assertArrayEquals(users, response.getBody());
         assertEquals(HttpStatus.OK, response.getStatusCode());
     }
 
+    @Test
+    void testGetUsersPage() {
+        when(mockUserDAO.getAllUsers(null, 1)).thenReturn(new Page<>(List.of(user), "next"));
+        when(mockUserDAO.getAllUsers("bad", 1)).thenThrow(new IllegalArgumentException("Malformed cursor"));
+
+        ResponseEntity<User[]> response = userController.getAllUsers("Admin", 1, null);
+        ResponseEntity<User[]> badCursor = userController.getAllUsers("Admin", 1, "bad");
+
+        assertArrayEquals(new User[] { user }, response.getBody());
+        assertEquals("next", response.getHeaders().getFirst(CourseController.NEXT_CURSOR_HEADER));
+        assertEquals(HttpStatus.BAD_REQUEST, badCursor.getStatusCode());
+    }
+
+    @Test
+    void testGetRecommendationStats() {
+        CacheStats stats = new CacheStats(3, 1, 0, 2);
+        when(mockCourseDAO.getRecommendationCacheStats()).thenReturn(stats);
+
+        ResponseEntity<CacheStats> response = userController.getRecommendationStats("Admin");
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(stats, response.getBody());
+
+        response = userController.getRecommendationStats("User");
+        assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+    }
+
     @Test
     void testGetUsersForbidden() {
         User[] users = new User[] { user };
         when(mockUserDAO.getAllUsers()).thenReturn(users);
-        ResponseEntity<User[]> response = userController.getAllUsers("User");
+        ResponseEntity<User[]> response = userController.getAllUsers("User", null, null);
         assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
     }
 
+    @Test
+    void testAddToCart() throws IOException {
+        when(mockUserDAO.getUser(user.getUserName())).thenReturn(user);
+        when(mockCourseDAO.getCourse(course.getId())).thenReturn(course);
+        User updated = new User(user);
+        updated.getShoppingCart().add(course.getId());
+        when(mockUserDAO.addToCart(user.getUserName(), course.getId())).thenReturn(updated);
+
+        ResponseEntity<User> response = userController.addToCart(user.getUserName(), course.getId());
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(Set.of(3, 99), response.getBody().getShoppingCart());
+    }
+
+    @Test
+    void testFailedAddToCart() throws IOException {
+        when(mockUserDAO.getUser(user.getUserName())).thenReturn(user);
+        when(mockUserDAO.getUser(bannedUser.getUserName())).thenReturn(bannedUser);
+        when(mockCourseDAO.getCourse(course.getId())).thenReturn(course);
+        when(mockCourseDAO.getCourse(4)).thenReturn(course2);
+
+        assertEquals(HttpStatus.NOT_FOUND, userController.addToCart("Nobody", course.getId()).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, userController.addToCart(user.getUserName(), 404).getStatusCode());
+        assertEquals(HttpStatus.FORBIDDEN,
+                userController.addToCart(bannedUser.getUserName(), course.getId()).getStatusCode());
+        // Bob already owns course 4
+        assertEquals(HttpStatus.CONFLICT, userController.addToCart(user.getUserName(), 4).getStatusCode());
+
+        when(mockUserDAO.addToCart(user.getUserName(), course.getId())).thenThrow(new IOException());
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR,
+                userController.addToCart(user.getUserName(), course.getId()).getStatusCode());
+    }
+
+    @Test
+    void testRemoveFromCart() throws IOException {
+        when(mockUserDAO.getUser(user.getUserName())).thenReturn(user);
+        User updated = new User(user);
+        updated.getShoppingCart().remove(3);
+        when(mockUserDAO.removeFromCart(user.getUserName(), 3)).thenReturn(updated);
+
+        ResponseEntity<User> response = userController.removeFromCart(user.getUserName(), 3);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(Set.of(), response.getBody().getShoppingCart());
+    }
+
+    @Test
+    void testFailedRemoveFromCart() throws IOException {
+        when(mockUserDAO.getUser(user.getUserName())).thenReturn(user);
+        when(mockUserDAO.getUser(bannedUser.getUserName())).thenReturn(bannedUser);
+
+        assertEquals(HttpStatus.NOT_FOUND, userController.removeFromCart("Nobody", 3).getStatusCode());
+        assertEquals(HttpStatus.FORBIDDEN, userController.removeFromCart(bannedUser.getUserName(), 3).getStatusCode());
+
+        when(mockUserDAO.removeFromCart(user.getUserName(), 3)).thenThrow(new IOException());
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR,
+                userController.removeFromCart(user.getUserName(), 3).getStatusCode());
+    }
+
     @Test
     void testUpdateUserCourses() throws IOException {
         when(mockUserDAO.updateUserCourses(user.getUserName(), user.getCourses())).thenReturn(user);
@@ -1,8 +1,13 @@
 package com.estore.api.estoreapi.model;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
@@ -55,7 +60,46 @@ public class CourseTest {
         // Analyze
         assertTrue(course.getPrice() == 15.99);
         assertTrue(course.getDescription() == "This is a Linear Algebra course");
-        assertTrue(course.getTags() == tags);
+        assertEquals(tags, course.getTags()); // copied into the bitset of the course
         assertTrue(course.getContent() == content);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testToSummary() throws JsonProcessingException {
+        // Setup
+        Course course = new Course(2, "Linear Algebra", 10.99, "Course is about Linear Algebra");
+        course.getTags().add("math");
+        course.getContent().add(new Lesson("Math", "youtube"));
+
+        // Invoke
+        Course summary = course.toSummary();
+        course.getTags().add("changed");
+
+        // Analyze
+        assertEquals(course, summary);
+        assertEquals(course.getPrice(), summary.getPrice());
+        assertEquals(Set.of("math"), summary.getTags());
+        assertNull(summary.getContent());
+        assertFalse(new ObjectMapper().writeValueAsString(summary).contains("content"));
+    }
+
+    @Test
+    public void testCopy() {
+        // Setup
+        Course course = new Course(2, "Linear Algebra", 10.99, "Course is about Linear Algebra");
+        course.getTags().add("math");
+        course.getContent().add(new Lesson("Math", "youtube"));
+
+        // Invoke
+        Course copy = course.copy();
+        course.setStudentsEnrolled(3);
+        course.getTags().add("changed");
+        course.getContent().clear();
+
+        // Analyze
+        assertEquals(course, copy);
+        assertEquals(0, copy.getStudentsEnrolled());
+        assertEquals(Set.of("math"), copy.getTags());
+        assertEquals(1, copy.getContent().size());
+    }
+}
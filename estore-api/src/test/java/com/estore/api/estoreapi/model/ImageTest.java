@@ -1,6 +1,7 @@
 package com.estore.api.estoreapi.model;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 import org.junit.jupiter.api.Test;
 
@@ -28,4 +29,18 @@ public class ImageTest {
         // Analyze
         assertEquals("image2", image.getLink());
     }
-}
+
+    @Test
+    public void testImageHash() {
+        // Setup
+        String expected_hash = "abc";
+
+        // Invoke
+        Image image = new Image("link", expected_hash);
+
+        // Analyze
+        assertEquals("link", image.getLink());
+        assertEquals(expected_hash, image.getHash());
+        assertNull(new Image("link").getHash());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,109 @@
+package com.estore.api.estoreapi.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("Model-tier")
+public class TagSetTest {
+    @Test
+    public void testSet() {
+        // Setup
+        TagSet tags = new TagSet(List.of("math", "logic"));
+
+        // Invoke
+        tags.add("math");
+        tags.add("proof");
+        tags.remove("logic");
+        tags.remove("never a tag");
+
+        // Analyze
+        assertEquals(Set.of("math", "proof"), tags);
+        assertEquals(Set.of("math", "proof").hashCode(), tags.hashCode());
+        assertTrue(tags.contains("proof"));
+        assertFalse(tags.contains("logic"));
+        assertFalse(tags.contains(null));
+        assertEquals(2, tags.size());
+    }
+
+    @Test
+    public void testIterator() {
+        // Setup
+        TagSet tags = new TagSet(List.of("a", "b", "c"));
+
+        // Invoke
+        Iterator<String> iterator = tags.iterator();
+        while (iterator.hasNext())
+            if (iterator.next().equals("b"))
+                iterator.remove();
+
+        // Analyze
+        assertEquals(Set.of("a", "c"), new HashSet<>(tags));
+    }
+
+    @Test
+    public void testManyTags() {
+        // Setup
+        TagSet tags = new TagSet();
+
+        // Invoke
+        for (int i = 0; i < 200; ++i)
+            tags.add("tag" + i);
+
+        // Analyze
+        assertEquals(200, tags.size());
+        assertTrue(tags.contains("tag199"));
+        // the bits span several words and are walked in order
+        Set<String> walked = new HashSet<>();
+        int last = -1;
+        for (int id = tags.nextId(0); id >= 0; id = tags.nextId(id + 1)) {
+            assertTrue(id > last);
+            last = id;
+            walked.add(TagDictionary.name(id));
+        }
+        assertEquals(tags, walked);
+    }
+
+    @Test
+    public void testCompare() {
+        // Setup
+        TagSet math = new TagSet(List.of("math", "logic", "proof"));
+        TagSet logic = new TagSet(List.of("logic", "proof", "philosophy"));
+
+        // Analyze
+        assertEquals(2, math.intersectionSize(logic));
+        assertEquals(0.5, math.jaccard(logic));
+        assertEquals(0, new TagSet().jaccard(new TagSet()));
+        assertTrue(math.containsAll(new TagSet(List.of("logic", "math"))));
+        assertFalse(math.containsAll(new TagSet(List.of("logic", "philosophy"))));
+        assertTrue(math.containsAll(Set.of("proof")));
+    }
+
+    @Test
+    public void testJson() throws JsonProcessingException {
+        // Setup
+        ObjectMapper objectMapper = new ObjectMapper();
+        Course course = new Course(1, "Discrete Math", 9.99, "Logic", new HashSet<>(Set.of("math", "logic")));
+
+        // Invoke
+        String json = objectMapper.writeValueAsString(course);
+        Course read = objectMapper.readValue(json, Course.class);
+
+        // Analyze
+        // tags are still written as an array of strings
+        assertTrue(json.contains("\"tags\":[\"") && !json.contains("words"));
+        assertEquals(Set.of("math", "logic"), read.getTags());
+        assertTrue(read.getTags() instanceof TagSet);
+    }
+}
@@ -53,4 +53,21 @@ public class UserTest {
         user.setUsersAddress("Now I live here");
         assertEquals("Now I live here", user.getAddress());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testCopy() {
+        Set<Integer> courses = new HashSet<>();
+        courses.add(2);
+        User user = new User("Joe12", courses, new HashSet<>(), "Joe", "something@gmail.com", "I live here", true);
+
+        User copy = new User(user);
+        copy.addCourseToShoppingCartByID(1);
+        copy.addRegisteredCourses(Set.of(3));
+
+        assertEquals("Joe12", copy.getUserName());
+        assertEquals("Joe", copy.getName());
+        assertTrue(copy.isBanned());
+        assertEquals(Set.of(2), user.getCourses());
+        assertTrue(user.getShoppingCart().isEmpty());
+    }
+}
@@ -0,0 +1,89 @@
+package com.estore.api.estoreapi.ordering;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+
+import com.estore.api.estoreapi.model.Course;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("Persistence-tier")
+public class MaintainedOrderTest {
+    Course[] courses;
+
+    @BeforeEach
+    public void setupCourses() {
+        courses = new Course[3];
+        courses[0] = new Course(1, "Discrete Math", 9.99, "Logic");
+        courses[1] = new Course(2, "Algebra", 8.99, "Matrices");
+        courses[2] = new Course(3, "Calculus", 9.99, "Limits");
+        courses[2].setStudentsEnrolled(4);
+    }
+
+    private MaintainedOrder orderOf(CourseOrder courseOrder) {
+        MaintainedOrder order = new MaintainedOrder(courseOrder);
+        for (Course course : courses)
+            order.add(course);
+        return order;
+    }
+
+    @Test
+    public void testOrders() {
+        // Analyze
+        assertEquals(List.of(3, 2, 1), orderOf(CourseOrder.POPULARITY).ids());
+        assertEquals(List.of(2, 3, 1), orderOf(CourseOrder.NAME).ids());
+        assertEquals(List.of(3, 1, 2), orderOf(CourseOrder.PRICE).ids());
+    }
+
+    @Test
+    public void testIdsAfter() {
+        // Setup
+        MaintainedOrder order = orderOf(CourseOrder.NAME);
+        Course algebra = new Course(2, "Algebra", 8.99, "Matrices");
+
+        // Analyze
+        assertEquals(List.of(2, 3), order.idsAfter(null, 2));
+        assertEquals(List.of(3, 1), order.idsAfter(algebra, 5));
+        // the key does not have to be in the order any more
+        order.remove(2);
+        assertEquals(List.of(3), order.idsAfter(algebra, 1));
+    }
+
+    @Test
+    public void testChangedInPlace() {
+        // Setup
+        MaintainedOrder order = orderOf(CourseOrder.POPULARITY);
+
+        // Invoke
+        courses[0].setStudentsEnrolled(10); // the old key must still be found
+        order.add(courses[0]);
+
+        // Analyze
+        assertEquals(List.of(1, 3, 2), order.ids());
+    }
+
+    @Test
+    public void testRemove() {
+        // Setup
+        MaintainedOrder order = orderOf(CourseOrder.NAME);
+
+        // Invoke
+        order.remove(3);
+        order.remove(99);
+
+        // Analyze
+        assertEquals(List.of(2, 1), order.ids());
+    }
+
+    @Test
+    public void testParse() {
+        // Analyze
+        assertEquals(CourseOrder.POPULARITY, CourseOrder.parse(null));
+        assertEquals(CourseOrder.PRICE, CourseOrder.parse("Price"));
+        assertNull(CourseOrder.parse("newest"));
+    }
+}
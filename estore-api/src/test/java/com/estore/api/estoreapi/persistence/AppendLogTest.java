@@ -0,0 +1,98 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@Tag("Persistence-tier")
+public class AppendLogTest {
+    @TempDir
+    File tempDir;
+
+    ObjectMapper objectMapper;
+    File logFile;
+    AppendLog appendLog;
+
+    @BeforeEach
+    public void setupAppendLog() {
+        objectMapper = new ObjectMapper();
+        logFile = new File(tempDir, "test.log");
+        appendLog = new AppendLog(logFile.getPath(), objectMapper);
+    }
+
+    @Test
+    public void testReplayMissingFile() throws IOException {
+        // Invoke
+        List<LogRecord> records = appendLog.replay();
+
+        // Analyze
+        assertTrue(records.isEmpty());
+    }
+
+    @Test
+    public void testAppendAndReplay() throws IOException {
+        // Setup
+        appendLog.append(LogRecord.put(1, objectMapper.valueToTree("first")));
+        appendLog.append(LogRecord.delete(1));
+
+        // Invoke
+        List<LogRecord> records = new AppendLog(logFile.getPath(), objectMapper).replay();
+
+        // Analyze
+        assertEquals(2, records.size());
+        assertEquals(LogRecord.Operation.PUT, records.get(0).getOp());
+        assertEquals("1", records.get(0).getKey());
+        assertEquals("first", records.get(0).getValue().asText());
+        assertEquals(LogRecord.Operation.DELETE, records.get(1).getOp());
+        assertEquals("1", records.get(1).getKey());
+    }
+
+    @Test
+    public void testReplayDropsTornRecord() throws IOException {
+        // Setup
+        appendLog.append(LogRecord.put(1, objectMapper.valueToTree("first")));
+        long wholeLength = logFile.length();
+        try (FileOutputStream out = new FileOutputStream(logFile, true)) {
+            out.write("{\"op\":\"PUT\",\"ke".getBytes(StandardCharsets.UTF_8));
+        }
+
+        // Invoke
+        List<LogRecord> records = appendLog.replay();
+
+        // Analyze
+        assertEquals(1, records.size());
+        assertEquals(wholeLength, logFile.length());
+
+        // records appended after the torn one are still readable
+        appendLog.append(LogRecord.delete(1));
+        assertEquals(2, appendLog.replay().size());
+    }
+
+    @Test
+    public void testReplayRejectsCorruptRecordInTheMiddle() throws IOException {
+        // Setup
+        appendLog.append(LogRecord.put(1, objectMapper.valueToTree("first")));
+        try (FileOutputStream out = new FileOutputStream(logFile, true)) {
+            out.write("not a record\n".getBytes(StandardCharsets.UTF_8));
+        }
+        appendLog.append(LogRecord.delete(1));
+        long length = logFile.length();
+
+        // Invoke & Analyze
+        assertThrows(IOException.class, () -> appendLog.replay());
+        assertEquals(length, logFile.length()); // the committed record after it is kept
+    }
+}
@@ -0,0 +1,154 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+
+import com.estore.api.estoreapi.model.Course;
+import com.estore.api.estoreapi.ordering.CourseOrder;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("Persistence-tier")
+public class CatalogSnapshotTest {
+    Course algebra;
+    Course calculus;
+    CatalogSnapshot snapshot;
+
+    @BeforeEach
+    public void setupCatalogSnapshot() {
+        algebra = new Course(1, "Linear Algebra", 8.99, "Matrices");
+        calculus = new Course(2, "Calculus", 9.99, "Limits");
+        calculus.setStudentsEnrolled(4);
+        snapshot = new CatalogSnapshot(1, List.of(algebra, calculus));
+    }
+
+    @Test
+    public void testGet() {
+        // Invoke
+        Course found = snapshot.get(1);
+        found.setStudentsEnrolled(10);
+        algebra.setStudentsEnrolled(20);
+
+        // Analyze
+        assertEquals(algebra, found);
+        assertEquals(0, snapshot.get(1).getStudentsEnrolled()); // neither change shows through
+        assertNull(snapshot.get(3));
+    }
+
+    @Test
+    public void testList() {
+        // Invoke
+        Course[] byPopularity = snapshot.list(CourseOrder.POPULARITY);
+        Course[] byName = snapshot.list(CourseOrder.NAME);
+        byName[0].setTitle("Changed");
+        byName[1] = null;
+
+        // Analyze
+        assertArrayEquals(new Course[] { calculus, algebra }, byPopularity);
+        assertArrayEquals(new Course[] { calculus, algebra }, snapshot.list(CourseOrder.NAME));
+        assertArrayEquals(new Course[] { calculus, algebra }, snapshot.list(CourseOrder.PRICE)); // dearest first
+        assertEquals("Calculus", snapshot.get(2).getTitle()); // the listing holds copies
+    }
+
+    @Test
+    public void testPriced() {
+        // Setup
+        Course geometry = new Course(3, "Geometry", 7.99, "Shapes");
+        CatalogSnapshot three = snapshot.with(2, geometry);
+
+        // Invoke
+        List<Course> between = three.priced(7.99, 8.99);
+        List<Course> atLeast = three.priced(8.0, null);
+        List<Course> atMost = three.priced(null, 7.0);
+
+        // Analyze
+        assertEquals(List.of(algebra, geometry), between); // both bounds included, dearest first
+        assertEquals(List.of(calculus, algebra), atLeast);
+        assertEquals(List.of(), atMost);
+        assertEquals(3, three.priced(null, null).size());
+    }
+
+    @Test
+    public void testListingsCarriedOver() {
+        // Setup
+        snapshot.list(CourseOrder.NAME);
+        snapshot.list(CourseOrder.PRICE);
+        Course geometry = new Course(3, "Geometry", 7.99, "Shapes");
+        Course cheaper = new Course(2, "Calculus", 6.99, "Limits");
+
+        // Invoke
+        CatalogSnapshot added = snapshot.with(2, geometry);
+        CatalogSnapshot changed = added.with(3, List.of(cheaper, cheaper)); // the same course twice
+        CatalogSnapshot deleted = changed.without(4, 1);
+
+        // Analyze
+        assertArrayEquals(new Course[] { calculus, geometry, algebra }, added.list(CourseOrder.NAME));
+        assertArrayEquals(new Course[] { algebra, geometry, cheaper }, changed.list(CourseOrder.PRICE));
+        assertEquals(6.99, changed.list(CourseOrder.PRICE)[2].getPrice());
+        assertArrayEquals(new Course[] { cheaper, geometry }, deleted.list(CourseOrder.NAME));
+        assertArrayEquals(new Course[] { geometry, cheaper }, deleted.list(CourseOrder.PRICE));
+        assertArrayEquals(new Course[] { calculus, algebra }, snapshot.list(CourseOrder.NAME)); // left as it was
+    }
+
+    @Test
+    public void testPage() {
+        // Setup
+        Course geometry = new Course(3, "Geometry", 7.99, "Shapes");
+        CatalogSnapshot three = snapshot.with(2, geometry);
+
+        // Invoke
+        List<Course> first = three.page(CourseOrder.NAME, null, 2);
+        List<Course> rest = three.page(CourseOrder.NAME, first.get(1), 2);
+
+        // Analyze
+        assertEquals(List.of(calculus, geometry), first);
+        assertEquals(List.of(algebra), rest);
+        first.get(0).setTitle("Changed");
+        assertEquals("Calculus", three.get(2).getTitle()); // the page holds copies
+    }
+
+    @Test
+    public void testWith() {
+        // Setup
+        Course changed = new Course(1, "Linear Algebra", 8.99, "Matrices");
+        changed.setStudentsEnrolled(5);
+
+        // Invoke
+        CatalogSnapshot next = snapshot.with(2, changed);
+
+        // Analyze
+        assertEquals(2, next.getVersion());
+        assertEquals(5, next.get(1).getStudentsEnrolled());
+        assertEquals(0, snapshot.get(1).getStudentsEnrolled()); // the old version is unchanged
+        assertArrayEquals(new Course[] { changed, calculus }, next.list(CourseOrder.POPULARITY));
+    }
+
+    @Test
+    public void testWithout() {
+        // Invoke
+        CatalogSnapshot next = snapshot.without(2, 1);
+
+        // Analyze
+        assertNull(next.get(1));
+        assertEquals(1, next.size());
+        assertEquals(2, snapshot.size());
+    }
+
+    @Test
+    public void testSummaries() {
+        // Invoke
+        Course[] summaries = snapshot.summaries(List.of(2, 3, 1));
+
+        // Analyze
+        assertArrayEquals(new Course[] { calculus, algebra }, summaries);
+        assertNull(summaries[0].getContent());
+        assertNotSame(calculus, summaries[0]);
+        assertArrayEquals(new Course[] { calculus, algebra }, snapshot.summaries(CourseOrder.NAME));
+    }
+}
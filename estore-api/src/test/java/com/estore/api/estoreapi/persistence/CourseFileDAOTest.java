@@ -3,26 +3,44 @@ package com.estore.api.estoreapi.persistence;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.File;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 
 import com.estore.api.estoreapi.model.Course;
 import com.estore.api.estoreapi.model.User;
+import com.estore.api.estoreapi.ordering.CourseOrder;
+import com.estore.api.estoreapi.recommendation.RecommendationCache;
+import com.estore.api.estoreapi.search.CourseQuery;
+import com.estore.api.estoreapi.search.Facets;
+import com.estore.api.estoreapi.search.SearchCache;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 @Tag("Persistence-tier")
 public class CourseFileDAOTest {
@@ -30,17 +48,22 @@ public class CourseFileDAOTest {
     Course[] testCourses;
     ObjectMapper mockObjectMapper1;
     ObjectMapper mockObjectMapper2;
+    @TempDir
+    File tempDir;
 
     /**
-     * Before each test, we will create and inject a Mock Object Mapper to
-     * isolate the tests from the underlying file
+     * Before each test, we will create and inject a spy Object Mapper to
+     * isolate the tests from the contents of the underlying file, writing into
+     * a temporary directory
      * 
      * @throws IOException
      */
     @BeforeEach
     public void setupCourseFileDAO() throws IOException {
-        mockObjectMapper1 = mock(ObjectMapper.class);
-        mockObjectMapper2 = mock(ObjectMapper.class);
+        mockObjectMapper1 = spy(new ObjectMapper());
+        mockObjectMapper2 = spy(new ObjectMapper());
+        File coursesFile = new File(tempDir, "doesnt_matter1.txt");
+        File usersFile = new File(tempDir, "doesnt_matter2.txt");
 
         Set<String> testTags1 = new HashSet<String>();
         testTags1.add("math");
@@ -64,14 +87,10 @@ public class CourseFileDAOTest {
 
         // When the object mapper is supposed to read from the file
         // the mock object mapper will return the course array above
-        when(mockObjectMapper1
-                .readValue(new File("doesnt_matter1.txt"), Course[].class))
-                .thenReturn(testCourses);
-        when(mockObjectMapper2
-                .readValue(new File("doesnt_matter2.txt"), User[].class))
-                .thenReturn(testUsers);
-        courseFileDAO = new CourseFileDAO("doesnt_matter1.txt", mockObjectMapper1);
-        UserDAO mockUserDao = new UserFileDAO("doesnt_matter2.txt", mockObjectMapper2);
+        doReturn(testCourses).when(mockObjectMapper1).readValue(coursesFile, Course[].class);
+        doReturn(testUsers).when(mockObjectMapper2).readValue(usersFile, User[].class);
+        courseFileDAO = new CourseFileDAO(coursesFile.getPath(), mockObjectMapper1);
+        UserDAO mockUserDao = new UserFileDAO(usersFile.getPath(), mockObjectMapper2);
         courseFileDAO.setUserDAO(mockUserDao);
         mockUserDao.setCourseDAO(courseFileDAO);
 
@@ -86,6 +105,260 @@ public class CourseFileDAOTest {
         assertEquals(courses.length, testCourses.length);
         for (int i = 0; i < testCourses.length; ++i)
             assertEquals(courses[i], testCourses[i]);
+        courses[0].setTitle("Changed");
+        assertNotEquals("Changed", courseFileDAO.getCourses()[0].getTitle()); // callers get copies
+    }
+
+    @Test
+    public void testFindCoursesByPrice() {
+        // Invoke
+        Course[] courses = courseFileDAO.findCoursesByPrice(9.0, 11.0, CourseOrder.PRICE);
+
+        // Analyze
+        assertArrayEquals(new Course[] { testCourses[2], testCourses[0] }, courses);
+        assertEquals(3, courseFileDAO.findCoursesByPrice(null, null, CourseOrder.PRICE).length);
+        assertEquals(0, courseFileDAO.findCoursesByPrice(20.0, null, CourseOrder.PRICE).length);
+        assertEquals(0, courseFileDAO.findCoursesByPrice(11.0, 9.0, CourseOrder.PRICE).length);
+        courses[0].setTitle("Changed");
+        assertEquals(testCourses[2].getTitle(), courseFileDAO.getCourse(testCourses[2].getId()).getTitle());
+    }
+
+    @Test
+    public void testGetCoursesSorted() throws IOException {
+        // Analyze
+        assertArrayEquals(new Course[] { testCourses[0], testCourses[1], testCourses[2] },
+                courseFileDAO.getCourses(CourseOrder.NAME));
+        assertArrayEquals(new Course[] { testCourses[2], testCourses[0], testCourses[1] },
+                courseFileDAO.getCourses(CourseOrder.PRICE));
+
+        // Invoke
+        courseFileDAO.enroll("Bob12", Set.of(), Set.of(testCourses[2].getId()));
+        courseFileDAO.applyEnrollmentCounts();
+
+        // Analyze
+        assertEquals(testCourses[2], courseFileDAO.getCourses(CourseOrder.POPULARITY)[0]);
+        assertEquals(1, courseFileDAO.getCourses(CourseOrder.POPULARITY)[0].getStudentsEnrolled());
+        assertEquals(testCourses[2], courseFileDAO.getCourseSummaries(CourseOrder.POPULARITY)[0]);
+    }
+
+    @Test
+    public void testGetCoursesPage() throws IOException {
+        // Invoke
+        Page<Course> first = courseFileDAO.getCourses(CourseOrder.NAME, null, 2);
+        // courses that change around the cursor must not move the next page
+        courseFileDAO.deleteCourse(testCourses[1].getId());
+        courseFileDAO.createCourse(new Course(0, "Algebra", 1.99, "Matrices"));
+        Page<Course> second = courseFileDAO.getCourses(CourseOrder.NAME, first.getNextCursor(), 2);
+
+        // Analyze
+        assertEquals(List.of(testCourses[0], testCourses[1]), first.getItems());
+        assertNotNull(first.getNextCursor());
+        assertEquals(List.of(testCourses[2]), second.getItems());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    public void testFindCoursesPage() throws IOException {
+        // Invoke
+        Page<Course> first = courseFileDAO.findCourses("math", null, 2);
+        Page<Course> second = courseFileDAO.findCourses("math", first.getNextCursor(), 2);
+        Page<Course> byPrice = courseFileDAO.findCourses("10", null, 1);
+        Page<Course> byPriceNext = courseFileDAO.findCourses("10", byPrice.getNextCursor(), 1);
+
+        // Analyze
+        assertEquals(List.of(testCourses[0], testCourses[1]), first.getItems());
+        assertEquals(List.of(testCourses[2]), second.getItems());
+        assertNull(second.getNextCursor());
+        // the same courses in the same order as the whole search
+        assertEquals(List.of(courseFileDAO.findCourses("10")[0]), byPrice.getItems());
+        assertEquals(List.of(courseFileDAO.findCourses("10")[1]), byPriceNext.getItems());
+        assertNull(byPriceNext.getNextCursor());
+    }
+
+    @Test
+    public void testFindCoursesByPricePage() throws IOException {
+        // Invoke
+        Page<Course> first = courseFileDAO.findCoursesByPrice(null, null, CourseOrder.PRICE, null, 2);
+        Page<Course> second = courseFileDAO.findCoursesByPrice(null, null, CourseOrder.PRICE,
+                first.getNextCursor(), 2);
+
+        // Analyze
+        assertEquals(List.of(testCourses[2], testCourses[0]), first.getItems());
+        assertEquals(List.of(testCourses[1]), second.getItems());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    public void testFindCoursesByTags() throws IOException {
+        // Invoke
+        Course[] math = courseFileDAO.findCoursesByTags(List.of("math"), true, null, null, CourseOrder.NAME);
+        Course[] both = courseFileDAO.findCoursesByTags(List.of("math", "linear"), true, null, null,
+                CourseOrder.NAME);
+        Course[] either = courseFileDAO.findCoursesByTags(List.of("linear", "statistics"), false, 9.0, null,
+                CourseOrder.PRICE);
+        Page<Course> first = courseFileDAO.findCoursesByTags(List.of("math"), true, null, null, CourseOrder.PRICE,
+                null, 2);
+        Page<Course> second = courseFileDAO.findCoursesByTags(List.of("math"), true, null, null, CourseOrder.PRICE,
+                first.getNextCursor(), 2);
+
+        // Analyze
+        assertArrayEquals(testCourses, math);
+        assertArrayEquals(new Course[] { testCourses[1] }, both);
+        assertArrayEquals(new Course[] { testCourses[2] }, either);
+        assertEquals(List.of(testCourses[2], testCourses[0]), first.getItems());
+        assertEquals(List.of(testCourses[1]), second.getItems());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    public void testGetFacets() throws IOException {
+        // Invoke
+        Facets all = courseFileDAO.getFacets(null, true, null, null);
+        courseFileDAO.deleteCourse(testCourses[0].getId());
+        Facets math = courseFileDAO.getFacets(List.of("math"), true, null, 10.0);
+
+        // Analyze
+        assertEquals(3, all.getCount());
+        assertEquals(3, all.getTags().get("math"));
+        assertEquals(1, all.getTags().get("discrete"));
+        assertEquals(2, all.getPrices().get("0-10"));
+        assertEquals(1, all.getPrices().get("10-25"));
+        assertEquals(1, math.getCount());
+        assertEquals(Map.of("math", 1, "linear", 1), math.getTags());
+        assertEquals(1, math.getPrices().get("0-10"));
+    }
+
+    @Test
+    public void testSearch() throws IOException {
+        // Setup
+        courseFileDAO.createCourse(new Course(0, "Graph Theory", 12.99, "Graphs", Set.of("math", "graphs")));
+        CourseQuery query = new CourseQuery();
+        query.setText("math");
+        query.setTags(List.of("math"));
+        query.setMaxPrice(10.0);
+        query.setOrder(CourseOrder.NAME);
+        query.setLimit(1);
+        CourseQuery everything = new CourseQuery();
+
+        // Invoke
+        Page<Course> first = courseFileDAO.search(query);
+        query.setAfter(first.getNextCursor());
+        Page<Course> second = courseFileDAO.search(query);
+        Page<Course> all = courseFileDAO.search(everything);
+
+        // Analyze
+        assertEquals(List.of(testCourses[0]), first.getItems());
+        assertEquals(List.of(testCourses[1]), second.getItems());
+        assertNull(second.getNextCursor());
+        assertEquals(4, all.getItems().size());
+        assertNull(all.getNextCursor());
+    }
+
+    @Test
+    public void testSearchRanked() throws IOException {
+        // Setup
+        Course calculus = new Course(0, "Calculus", 11.99, "Limits, with a stats refresher", Set.of("math"));
+        calculus.setStudentsEnrolled(50);
+        Course popular = courseFileDAO.createCourse(calculus);
+        CourseQuery query = new CourseQuery();
+        query.setText("stats");
+        query.setRanked(true);
+        query.setLimit(1);
+
+        // Invoke
+        Page<Course> first = courseFileDAO.search(query);
+        query.setAfter(first.getNextCursor());
+        Page<Course> second = courseFileDAO.search(query);
+        query.setAfter(courseFileDAO.getCourses(CourseOrder.POPULARITY, null, 1).getNextCursor());
+
+        // Analyze
+        // the title match ranks above the more popular description match
+        assertEquals(List.of(testCourses[2]), first.getItems());
+        assertEquals(List.of(popular), second.getItems());
+        assertNull(second.getNextCursor());
+        assertThrows(IllegalArgumentException.class, () -> courseFileDAO.search(query));
+    }
+
+    @Test
+    public void testSearchFuzzy() throws IOException {
+        // Setup
+        CourseQuery query = new CourseQuery();
+        query.setText("statistcs");
+        query.setFuzzy(true);
+
+        // Invoke
+        Page<Course> fuzzy = courseFileDAO.search(query);
+        query.setFuzzy(false);
+        Page<Course> exact = courseFileDAO.search(query);
+
+        // Analyze
+        assertEquals(List.of(testCourses[2]), fuzzy.getItems());
+        assertEquals(List.of(), exact.getItems());
+    }
+
+    @Test
+    public void testSuggest() throws IOException {
+        // Invoke
+        String[] before = courseFileDAO.suggest("li", 5);
+        courseFileDAO.createCourse(new Course(0, "Lie Groups", 30.99, "Symmetry", Set.of("math")));
+        Course stats = courseFileDAO.getCourse(testCourses[2].getId());
+        stats.setTitle("Linear Models");
+        courseFileDAO.updateCourse(stats);
+        String[] after = courseFileDAO.suggest("li", 5);
+
+        // Analyze
+        assertArrayEquals(new String[] { "linear", "Linear Math" }, before);
+        assertArrayEquals(new String[] { "Lie Groups", "linear", "Linear Math", "Linear Models" }, after);
+    }
+
+    @Test
+    public void testGetCoursesPageBadCursor() throws IOException {
+        // Setup
+        String priceCursor = courseFileDAO.getCourses(CourseOrder.PRICE, null, 1).getNextCursor();
+
+        // Analyze
+        assertThrows(IllegalArgumentException.class,
+                () -> courseFileDAO.getCourses(CourseOrder.NAME, priceCursor, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> courseFileDAO.getCourses(CourseOrder.NAME, "not a cursor", 1));
+    }
+
+    @Test
+    public void testGetCourseSummaries() {
+        // Invoke
+        Course[] summaries = courseFileDAO.getCourseSummaries();
+        Course[] courses = courseFileDAO.getCourses();
+
+        // Analyze
+        assertEquals(courses.length, summaries.length);
+        for (int i = 0; i < courses.length; ++i) {
+            assertNull(summaries[i].getContent());
+            assertEquals(courses[i].getId(), summaries[i].getId());
+        }
+    }
+
+    @Test
+    public void testFindCourseSummaries() {
+        // Invoke
+        Course[] summaries = courseFileDAO.findCourseSummaries("Ma");
+        Course[] courses = courseFileDAO.findCourses("Ma");
+
+        // Analyze
+        assertEquals(courses.length, summaries.length);
+        for (int i = 0; i < courses.length; ++i)
+            assertEquals(courses[i].getTitle(), summaries[i].getTitle());
+    }
+
+    @Test
+    public void testGetCourseSummariesById() {
+        // Invoke
+        Course[] summaries = courseFileDAO.getCourseSummaries(List.of(testCourses[1].getId(), 1000,
+                testCourses[0].getId()));
+
+        // Analyze
+        assertEquals(2, summaries.length);
+        assertEquals(testCourses[1].getId(), summaries[0].getId());
+        assertEquals(testCourses[0].getId(), summaries[1].getId());
     }
 
     @Test
@@ -141,6 +414,59 @@ public class CourseFileDAOTest {
         assertEquals(course, testCourses[0]);
     }
 
+    @Test
+    public void testGetCourseCopy() throws IOException {
+        // Invoke
+        Course course = courseFileDAO.getCourse(99);
+        course.setPrice(7.99);
+
+        // Analyze
+        assertEquals(9.99, courseFileDAO.getCourse(99).getPrice()); // not updated yet
+
+        // Invoke
+        courseFileDAO.updateCourse(course);
+
+        // Analyze
+        assertEquals(7.99, courseFileDAO.getCourse(99).getPrice());
+        assertEquals(course, courseFileDAO.getCourses()[0]);
+    }
+
+    @Test
+    public void testReadsDoNotWaitForWriters() throws InterruptedException {
+        // Setup
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread writer = new Thread(() -> {
+            // holds the lock the way a writer does
+            synchronized (courseFileDAO.courses) {
+                locked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        writer.start();
+        locked.await();
+
+        try {
+            // Invoke
+            Course[] found = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> courseFileDAO.getCourses());
+            Course course = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> courseFileDAO.getCourse(100));
+            Page<Course> page = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                    () -> courseFileDAO.getCourses(CourseOrder.NAME, null, 2));
+
+            // Analyze
+            assertEquals(testCourses.length, found.length);
+            assertEquals(testCourses[1], course);
+            assertEquals(2, page.getItems().size());
+        } finally {
+            release.countDown();
+            writer.join();
+        }
+    }
+
     @Test
     public void testDeleteCourse() {
         // Invoke
@@ -200,6 +526,242 @@ public class CourseFileDAOTest {
         assertEquals(testCourses[1], recommendedResult[1]);
     }
 
+    @Test
+    public void testGetRecommendedCoursesForUserTop() throws IOException {
+        // Setup
+        HashSet<Integer> testRegisteredCourses = new HashSet<>();
+        testRegisteredCourses.add(testCourses[0].getId());
+        testRegisteredCourses.add(404); // a deleted course is ignored
+        User testUser = new User("Bob12", testRegisteredCourses);
+
+        // Invoke
+        // sharing two tags beats sharing one
+        Course discrete = courseFileDAO.createCourse(new Course(0, "Graph Theory", 12.99, "Graphs",
+                new HashSet<>(Set.of("math", "discrete"))));
+        Course[] top = courseFileDAO.getRecommendedCoursesForUser(testUser, 2);
+
+        // Analyze
+        assertArrayEquals(new Course[] { discrete, testCourses[2] }, top);
+        assertEquals(0, courseFileDAO.getRecommendedCoursesForUser(testUser, 0).length);
+        assertEquals(0, courseFileDAO.getRecommendedCoursesForUser(null, 2).length);
+    }
+
+    @Test
+    public void testGetRecommendedCoursesFromEnrollments() throws IOException {
+        // Setup
+        Course painting = courseFileDAO.createCourse(new Course(0, "Painting", 5.99, "Colour",
+                new HashSet<>(Set.of("art"))));
+        User testUser = new User("Bob12", new HashSet<>(Set.of(testCourses[0].getId())));
+
+        // Invoke
+        // two users took painting along with discrete math, which outweighs one shared tag
+        courseFileDAO.recordEnrollment("Ann", Set.of(), Set.of(testCourses[0].getId(), painting.getId()));
+        courseFileDAO.recordEnrollment("Joe", Set.of(testCourses[0].getId()), Set.of(painting.getId()));
+        Course[] recommended = courseFileDAO.getRecommendedCoursesForUser(testUser, 3);
+
+        // Analyze
+        assertArrayEquals(new Course[] { painting, testCourses[2], testCourses[1] }, recommended);
+    }
+
+    @Test
+    public void testRebuildCoEnrollment() throws IOException {
+        // Setup
+        Course painting = courseFileDAO.createCourse(new Course(0, "Painting", 5.99, "Colour",
+                new HashSet<>(Set.of("art"))));
+        User testUser = new User("Bob12", new HashSet<>(Set.of(testCourses[1].getId())));
+        UserDAO userDAO = mock(UserDAO.class);
+        when(userDAO.getEnrollments()).thenReturn(Map.of(
+                "Ann", Set.of(testCourses[1].getId(), painting.getId()),
+                "Joe", Set.of(testCourses[1].getId(), painting.getId(), 404)));
+        courseFileDAO.setUserDAO(userDAO);
+        // drifted from the users, so the rebuild drops it
+        courseFileDAO.recordEnrollment("Sue", Set.of(testCourses[1].getId()), Set.of(testCourses[0].getId()));
+
+        // Invoke
+        courseFileDAO.rebuildCoEnrollment();
+
+        // Analyze
+        assertArrayEquals(new Course[] { painting, testCourses[2], testCourses[0] },
+                courseFileDAO.getRecommendedCoursesForUser(testUser, 3));
+    }
+
+    @Test
+    public void testGetRecommendedCoursesCached() throws IOException {
+        // Setup
+        File coursesFile = new File(tempDir, "doesnt_matter1.txt");
+        RecommendationCache cache = new RecommendationCache(10, 60000);
+        CourseFileDAO cachedDAO = new CourseFileDAO(coursesFile.getPath(), mockObjectMapper1, null, 0, null, 1,
+                cache, null, null);
+        User testUser = new User("Bob12", new HashSet<>(Set.of(testCourses[0].getId())));
+
+        // Invoke
+        Course[] first = cachedDAO.getRecommendedCoursesForUser(testUser, 2);
+        Course[] second = cachedDAO.getRecommendedCoursesForUser(testUser, 1);
+
+        // Analyze
+        assertArrayEquals(new Course[] { first[0] }, second);
+        assertEquals(1, cache.stats().getHits());
+        assertEquals(1, cache.stats().getMisses());
+
+        // Invoke
+        // the user checked out, then a course changed
+        cachedDAO.recordEnrollment("Bob12", Set.of(), Set.of(testCourses[0].getId(), testCourses[1].getId()));
+        cachedDAO.getRecommendedCoursesForUser(testUser, 1);
+        Course stats = cachedDAO.getCourse(testCourses[2].getId());
+        stats.setPrice(9.49);
+        cachedDAO.updateCourse(stats);
+        Course[] changed = cachedDAO.getRecommendedCoursesForUser(testUser, 2);
+
+        // Analyze
+        assertEquals(3, cachedDAO.getRecommendationCacheStats().getMisses());
+        assertEquals(testCourses[1].getId(), changed[0].getId()); // shares a tag and a user
+        assertEquals(stats, changed[1]);
+    }
+
+    @Test
+    public void testFindCoursesCached() throws IOException {
+        // Setup
+        File coursesFile = new File(tempDir, "doesnt_matter1.txt");
+        SearchCache cache = new SearchCache(10);
+        CourseFileDAO cachedDAO = new CourseFileDAO(coursesFile.getPath(), mockObjectMapper1, null, 0, null, 1,
+                null, cache, null);
+
+        // Invoke
+        Course[] first = cachedDAO.findCourses("Linear");
+        first[0].setTitle("Changed by the caller");
+        Course[] second = cachedDAO.findCourses("linear"); // same search, ignoring case
+        Course[] summaries = cachedDAO.findCourseSummaries("linear"); // shares the cached result
+
+        // Analyze
+        assertEquals(first[0].getId(), second[0].getId());
+        assertNotEquals("Changed by the caller", second[0].getTitle()); // nothing shared with callers
+        assertEquals(second[0].getTitle(), summaries[0].getTitle());
+        assertEquals(2, cache.stats().getHits());
+        assertEquals(1, cache.stats().getMisses());
+
+        // Invoke
+        Course linear = new Course(0, "Linear Algebra", 8.99, "Matrices");
+        linear = cachedDAO.createCourse(linear);
+        Course[] changed = cachedDAO.findCourses("linear");
+
+        // Analyze
+        assertEquals(2, cachedDAO.getSearchCacheStats().getMisses());
+        assertEquals(2, changed.length);
+        assertEquals(Set.of(second[0], linear), Set.of(changed));
+    }
+
+    @Test
+    public void testEnroll() throws IOException {
+        // Invoke
+        Set<Integer> enrolled = courseFileDAO.enroll("Bob12", Set.of(99), Set.of(100, 101, 404));
+
+        // Analyze
+        assertEquals(Set.of(100, 101), enrolled); // there is no course 404
+        assertEquals(1, courseFileDAO.getCourse(100).getStudentsEnrolled());
+        assertEquals(1, courseFileDAO.getCourse(101).getStudentsEnrolled());
+        assertEquals(0, courseFileDAO.getCourse(99).getStudentsEnrolled());
+        // only the counters changed, no course was written
+        verify(mockObjectMapper1, times(0)).writeValue(any(File.class), any(Course[].class));
+
+        // Invoke
+        courseFileDAO.unenroll(Set.of(100));
+
+        // Analyze
+        assertEquals(0, courseFileDAO.getCourse(100).getStudentsEnrolled());
+        assertEquals(1, courseFileDAO.getCourse(101).getStudentsEnrolled());
+    }
+
+    @Test
+    public void testApplyEnrollmentCounts() throws IOException {
+        // Setup
+        courseFileDAO.enroll("Bob12", Set.of(), Set.of(101));
+        courseFileDAO.enroll("Ann", Set.of(), Set.of(101));
+
+        // Analyze
+        assertEquals(0, courseFileDAO.getCourses()[0].getStudentsEnrolled()); // listings are not folded yet
+        assertEquals(2, courseFileDAO.getCourseSummaries(List.of(101))[0].getStudentsEnrolled());
+
+        // Invoke
+        courseFileDAO.applyEnrollmentCounts();
+
+        // Analyze
+        assertEquals(testCourses[2], courseFileDAO.getCourses()[0]);
+        assertEquals(2, courseFileDAO.getCourses()[0].getStudentsEnrolled());
+        assertEquals(testCourses[2], courseFileDAO.getCourses(CourseOrder.POPULARITY, null, 1).getItems().get(0));
+    }
+
+    @Test
+    public void testApplyEnrollmentCountsKeepsSearchCache() throws IOException {
+        // Setup
+        File coursesFile = new File(tempDir, "doesnt_matter1.txt");
+        SearchCache cache = new SearchCache(10);
+        CourseFileDAO cachedDAO = new CourseFileDAO(coursesFile.getPath(), mockObjectMapper1, null, 0, null, 1,
+                null, cache, null);
+        cachedDAO.findCourses("math");
+        cachedDAO.enroll("Bob12", Set.of(), Set.of(101));
+
+        // Invoke
+        cachedDAO.applyEnrollmentCounts();
+        Course[] found = cachedDAO.findCourses("math");
+
+        // Analyze
+        assertEquals(1, cache.stats().getHits()); // only the counts changed
+        assertEquals(1, found[2].getStudentsEnrolled()); // listed by the older counts, with the live count
+        assertEquals(testCourses[2], cachedDAO.getCourses()[0]);
+    }
+
+    @Test
+    public void testUpdateCourseKeepsCount() throws IOException {
+        // Setup
+        courseFileDAO.enroll("Bob12", Set.of(), Set.of(100));
+        Course stale = new Course(100, "Linear Algebra", 8.99, "This is a course about linear algebra");
+
+        // Invoke
+        courseFileDAO.updateCourse(stale);
+
+        // Analyze
+        assertEquals(1, courseFileDAO.getCourse(100).getStudentsEnrolled());
+    }
+
+    @Test
+    public void testEnrollmentCountsReconciledAfterRestart() throws IOException {
+        // Setup
+        ObjectMapper objectMapper = new ObjectMapper();
+        File snapshot = new File(tempDir, "courses.json");
+        String countersFilename = new File(tempDir, "enrollments.json").getPath();
+        testCourses[0].setStudentsEnrolled(4); // counted before there were users
+        testCourses[2].setStudentsEnrolled(1);
+        objectMapper.writeValue(snapshot, testCourses);
+        EnrollmentCounters counters = new EnrollmentCounters(countersFilename, objectMapper);
+        CourseFileDAO countedDAO = new CourseFileDAO(snapshot.getPath(), objectMapper, null, 0, null, 1, null,
+                null, counters);
+        UserDAO before = mock(UserDAO.class);
+        when(before.getEnrollments()).thenReturn(Map.of("Ann", Set.of(101)));
+        countedDAO.setUserDAO(before);
+        assertEquals(4, countedDAO.getCourse(99).getStudentsEnrolled()); // the seeded count is kept
+        counters.save();
+        // Joe's checkout reached the users file, Bob's did not, and neither
+        // reached the course documents or the offsets
+        countedDAO.enroll("Joe", Set.of(), Set.of(100, 101));
+        countedDAO.enroll("Bob12", Set.of(), Set.of(99));
+        UserDAO after = mock(UserDAO.class);
+        when(after.getEnrollments()).thenReturn(Map.of(
+                "Ann", Set.of(101),
+                "Joe", Set.of(100, 101, 404)));
+
+        // Invoke
+        CourseFileDAO reloaded = new CourseFileDAO(snapshot.getPath(), objectMapper, null, 0, null, 1, null,
+                null, new EnrollmentCounters(countersFilename, objectMapper));
+        reloaded.setUserDAO(after);
+
+        // Analyze
+        assertEquals(4, reloaded.getCourse(99).getStudentsEnrolled());
+        assertEquals(1, reloaded.getCourse(100).getStudentsEnrolled());
+        assertEquals(2, reloaded.getCourse(101).getStudentsEnrolled());
+        assertEquals(testCourses[0], reloaded.getCourses()[0]);
+        assertEquals(2, reloaded.getCourses()[1].getStudentsEnrolled()); // folded into the listings
+    }
+
     @Test
     public void testSaveException() throws IOException {
         doThrow(new IOException())
@@ -246,6 +808,75 @@ public class CourseFileDAOTest {
         assertNull(result);
     }
 
+    @Test
+    public void testUpdateCourseNotFoundStoresNoImage() throws IOException {
+        // Setup
+        File coursesFile = new File(tempDir, "doesnt_matter1.txt");
+        ImageStore imageStore = mock(ImageStore.class);
+        CourseFileDAO imagedDAO = new CourseFileDAO(coursesFile.getPath(), mockObjectMapper1, null, 0, imageStore, 1,
+                null, null, null);
+        clearInvocations(imageStore);
+        Course course = new Course(98, "Circuits", 80.99, "This is a course about circuits");
+
+        // Invoke
+        Course result = imagedDAO.updateCourse(course);
+
+        // Analyze
+        assertNull(result);
+        verify(imageStore, never()).store(any());
+    }
+
+    @Test
+    public void testLogPersistence() throws IOException {
+        // Setup
+        ObjectMapper objectMapper = new ObjectMapper();
+        File snapshot = new File(tempDir, "courses.json");
+        String logFilename = new File(tempDir, "courses.log").getPath();
+        objectMapper.writeValue(snapshot, testCourses);
+        long snapshotLength = snapshot.length();
+        CourseFileDAO logDAO = new CourseFileDAO(snapshot.getPath(), objectMapper, logFilename, 0, null, 1, null,
+                null, null);
+        logDAO.setUserDAO(new UserFileDAO(new File(tempDir, "doesnt_matter2.txt").getPath(), mockObjectMapper2));
+
+        // Invoke
+        Course created = logDAO.createCourse(new Course(0, "Excel", 30.99, "This is a course about Excel"));
+        logDAO.updateCourse(new Course(100, "Linear Algebra", 8.99, "This is a course about linear algebra"));
+        logDAO.deleteCourse(101);
+
+        // Analyze
+        // the snapshot is left alone and the mutations are replayed from the log
+        assertEquals(snapshotLength, snapshot.length());
+        CourseFileDAO reloaded = new CourseFileDAO(snapshot.getPath(), objectMapper, logFilename, 0, null, 1, null,
+                null, null);
+        assertEquals(3, reloaded.courses.size());
+        assertEquals("Excel", reloaded.getCourse(created.getId()).getTitle());
+        assertEquals("Linear Algebra", reloaded.getCourse(100).getTitle());
+        assertNull(reloaded.getCourse(101));
+    }
+
+    @Test
+    public void testCompaction() throws IOException {
+        // Setup
+        ObjectMapper objectMapper = new ObjectMapper();
+        File snapshot = new File(tempDir, "courses.json");
+        File logFile = new File(tempDir, "courses.log");
+        objectMapper.writeValue(snapshot, testCourses);
+        CourseFileDAO logDAO = new CourseFileDAO(snapshot.getPath(), objectMapper, logFile.getPath(), 0, null, 1,
+                null, null, null);
+        logDAO.updateCourse(new Course(100, "Linear Algebra", 8.99, "This is a course about linear algebra"));
+
+        // Invoke
+        logDAO.compact();
+
+        // Analyze
+        assertEquals(0, logFile.length());
+        Course[] snapshotCourses = objectMapper.readValue(snapshot, Course[].class);
+        assertEquals(testCourses.length, snapshotCourses.length);
+        CourseFileDAO reloaded = new CourseFileDAO(snapshot.getPath(), objectMapper, logFile.getPath(), 0, null, 1,
+                null, null, null);
+        assertEquals("Linear Algebra", reloaded.getCourse(100).getTitle());
+    }
+
     @Test
     public void testConstructorException() throws IOException {
         // Setup
@@ -0,0 +1,34 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("Persistence-tier")
+public class CursorTest {
+    @Test
+    public void testRoundTrip() {
+        // Setup
+        String[] fields = { "NAME", "12", "Intro. to Café/Art?", "" };
+
+        // Invoke
+        String cursor = Cursor.encode(fields);
+
+        // Analyze
+        assertArrayEquals(fields, Cursor.decode(cursor, fields.length));
+        assertFalse(cursor.matches(".*[+/=?&].*")); // nothing to escape in a URL
+    }
+
+    @Test
+    public void testMalformed() {
+        // Setup
+        String cursor = Cursor.encode("a", "b");
+
+        // Analyze
+        assertThrows(IllegalArgumentException.class, () -> Cursor.decode(cursor, 3));
+        assertThrows(IllegalArgumentException.class, () -> Cursor.decode("!!.??", 2));
+    }
+}
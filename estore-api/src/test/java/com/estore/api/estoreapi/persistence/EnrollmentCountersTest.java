@@ -0,0 +1,156 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.estore.api.estoreapi.model.Course;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@Tag("Persistence-tier")
+public class EnrollmentCountersTest {
+    EnrollmentCounters counters;
+    ObjectMapper objectMapper;
+    File file;
+    Course algebra;
+    Course calculus;
+    @TempDir
+    File tempDir;
+
+    @BeforeEach
+    public void setupEnrollmentCounters() throws IOException {
+        objectMapper = new ObjectMapper();
+        file = new File(tempDir, "enrollments.json");
+        counters = new EnrollmentCounters(file.getPath(), objectMapper);
+        algebra = new Course(1, "Algebra", 9.99, "Groups");
+        algebra.setStudentsEnrolled(3);
+        calculus = new Course(2, "Calculus", 8.99, "Limits");
+        counters.load(List.of(algebra, calculus));
+    }
+
+    @Test
+    public void testLoadFromCourses() {
+        // Analyze
+        assertEquals(3, counters.get(1));
+        assertEquals(0, counters.get(2));
+        assertEquals(0, counters.get(3));
+    }
+
+    @Test
+    public void testAdd() {
+        // Invoke
+        boolean counted = counters.add(1, 1);
+        boolean missing = counters.add(3, 1);
+
+        // Analyze
+        assertTrue(counted);
+        assertFalse(missing);
+        assertEquals(4, counters.get(1));
+        assertEquals(0, counters.get(3));
+    }
+
+    @Test
+    public void testReconcileKeepsDocumentCounts() {
+        // Invoke
+        counters.reconcile(List.of(Set.of(1), Set.of(1, 3)));
+
+        // Analyze
+        // nothing was saved, so the documents give the offsets and the counts
+        assertEquals(3, counters.get(1));
+        assertEquals(0, counters.get(2));
+        assertEquals(0, counters.get(3)); // not a course
+        assertEquals(Set.of(), counters.drainChanged());
+    }
+
+    @Test
+    public void testStartAndRemove() {
+        // Invoke
+        counters.start(3, 7);
+        counters.remove(1);
+
+        // Analyze
+        assertEquals(7, counters.get(3));
+        assertFalse(counters.add(1, 1));
+        assertEquals(0, counters.get(1));
+    }
+
+    @Test
+    public void testDrainChanged() {
+        // Setup
+        counters.add(1, 1);
+        counters.add(2, 1);
+        counters.add(1, -1);
+
+        // Invoke
+        Set<Integer> first = counters.drainChanged();
+        Set<Integer> second = counters.drainChanged();
+
+        // Analyze
+        assertEquals(Set.of(1, 2), first);
+        assertEquals(Set.of(), second);
+    }
+
+    @Test
+    public void testAddInParallel() throws InterruptedException {
+        // Setup
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+
+        // Invoke
+        for (int i = 0; i < 10000; ++i)
+            pool.execute(() -> counters.add(2, 1));
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        // Analyze
+        assertEquals(10000, counters.get(2)); // no increment is lost
+    }
+
+    @Test
+    public void testReconcileFromSavedOffsets() throws IOException {
+        // Setup
+        counters.reconcile(List.of(Set.of(1))); // algebra has 2 students beyond its one user
+        counters.save();
+        // two checkouts reached the users file, but the documents still have
+        // the old counts, and the offsets file was never written again
+        counters.add(1, 1);
+        counters.add(2, 1);
+        counters.save();
+        EnrollmentCounters reloaded = new EnrollmentCounters(file.getPath(), objectMapper);
+        reloaded.load(List.of(algebra, calculus));
+
+        // Invoke
+        reloaded.reconcile(List.of(Set.of(1), Set.of(1, 2)));
+
+        // Analyze
+        assertEquals(Map.of("1", 2, "2", 0), objectMapper.readValue(file, Map.class));
+        assertEquals(4, reloaded.get(1));
+        assertEquals(1, reloaded.get(2));
+        assertEquals(Set.of(1, 2), reloaded.drainChanged());
+    }
+
+    @Test
+    public void testSaveOnlyWhenChanged() throws IOException {
+        // Setup
+        counters.add(1, 1); // a checkout is recorded by the users, not the offsets
+
+        // Invoke
+        counters.save();
+
+        // Analyze
+        assertFalse(file.exists());
+    }
+}
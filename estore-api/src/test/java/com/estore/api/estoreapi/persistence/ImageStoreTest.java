@@ -0,0 +1,116 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Base64;
+
+import com.estore.api.estoreapi.model.Image;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@Tag("Persistence-tier")
+public class ImageStoreTest {
+    static final byte[] PNG = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n', 0, 0, 0, 0 };
+
+    @TempDir
+    File tempDir;
+    ImageStore imageStore;
+
+    @BeforeEach
+    public void setupImageStore() {
+        imageStore = new ImageStore(new File(tempDir, "images").getPath());
+    }
+
+    private static Image dataUri(byte[] bytes) {
+        return new Image("data:image/png;base64," + Base64.getEncoder().encodeToString(bytes));
+    }
+
+    @Test
+    public void testStoreDataUri() throws IOException {
+        // Invoke
+        Image stored = imageStore.store(dataUri(PNG));
+
+        // Analyze
+        assertEquals("/images/" + stored.getHash(), stored.getLink()); // no host is stored
+        File file = imageStore.getFile(stored.getHash());
+        assertNotNull(file);
+        assertArrayEquals(PNG, Files.readAllBytes(file.toPath()));
+        assertEquals("image/png", imageStore.getContentType(file));
+    }
+
+    @Test
+    public void testStoreDeduplicates() throws IOException {
+        // Invoke
+        Image first = imageStore.store(dataUri(PNG));
+        Image second = imageStore.store(dataUri(PNG));
+
+        // Analyze
+        assertEquals(first.getHash(), second.getHash());
+        assertEquals(1, new File(tempDir, "images").list().length);
+    }
+
+    @Test
+    public void testStoreLeavesOtherLinks() throws IOException {
+        // Setup
+        Image external = new Image("https://example.com/logo.png");
+        Image stored = imageStore.store(dataUri(PNG));
+
+        // Invoke
+        Image relinked = imageStore.store(new Image(stored.getLink()));
+
+        // Analyze
+        assertSame(external, imageStore.store(external));
+        assertSame(stored, imageStore.store(stored));
+        assertEquals(stored.getHash(), relinked.getHash());
+        assertNull(imageStore.store(null));
+    }
+
+    @Test
+    public void testStoreDropsHostOfLink() throws IOException {
+        // Setup
+        Image stored = imageStore.store(dataUri(PNG));
+        Image absolute = new Image("http://localhost:8080" + stored.getLink(), stored.getHash());
+
+        // Invoke
+        Image relinked = imageStore.store(absolute);
+        Image moved = imageStore.store(new Image("https://shop.example.com/images/" + stored.getHash()));
+
+        // Analyze
+        assertEquals(stored.getLink(), relinked.getLink());
+        assertEquals(stored.getLink(), moved.getLink());
+        assertEquals(stored.getHash(), moved.getHash());
+    }
+
+    @Test
+    public void testStoreMalformedDataUri() throws IOException {
+        // Setup
+        Image malformed = new Image("data:image/png;base64,not base64!");
+
+        // Invoke
+        Image result = imageStore.store(malformed);
+
+        // Analyze
+        assertSame(malformed, result);
+    }
+
+    @Test
+    public void testGetFileRejectsInvalidHash() throws IOException {
+        // Setup
+        imageStore.store(dataUri(PNG));
+
+        // Analyze
+        assertNull(imageStore.getFile("../../etc/passwd"));
+        assertNull(imageStore.getFile(null));
+        assertNull(imageStore.getFile("0".repeat(64)));
+    }
+}
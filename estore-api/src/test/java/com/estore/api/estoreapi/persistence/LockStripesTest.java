@@ -0,0 +1,86 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("Persistence-tier")
+public class LockStripesTest {
+    LockStripes stripes;
+    ExecutorService other;
+
+    @BeforeEach
+    public void setupLockStripes() {
+        stripes = new LockStripes(4);
+        other = Executors.newSingleThreadExecutor();
+    }
+
+    /**
+     * Tries a lock from another thread, so a lock held by the test thread is
+     * seen as taken
+     */
+    private boolean freeElsewhere(Lock lock) throws Exception {
+        return other.submit(() -> {
+            if (!lock.tryLock())
+                return false;
+            lock.unlock();
+            return true;
+        }).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testOf() throws Exception {
+        // Setup
+        Lock bob = stripes.of("Bob");
+
+        // Invoke
+        bob.lock();
+        try {
+            // Analyze
+            assertSame(bob, stripes.of("Bob"));
+            assertFalse(freeElsewhere(bob));
+            // some key falls in another stripe, which is still free
+            for (int key = 0;; ++key) {
+                if (stripes.of(key) != bob) {
+                    assertTrue(freeElsewhere(stripes.of(key)));
+                    break;
+                }
+            }
+        } finally {
+            bob.unlock();
+            other.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testLockAll() throws Exception {
+        // Invoke
+        BitSet held = stripes.lockAll(List.of("Bob", "Ann", "Bob"));
+
+        try {
+            // Analyze
+            assertFalse(freeElsewhere(stripes.of("Bob")));
+            assertFalse(freeElsewhere(stripes.of("Ann")));
+            assertEquals(stripes.of("Bob") == stripes.of("Ann") ? 1 : 2, held.cardinality());
+        } finally {
+            stripes.unlock(held);
+        }
+
+        // Analyze
+        assertTrue(freeElsewhere(stripes.of("Bob")));
+        assertTrue(freeElsewhere(stripes.of("Ann")));
+        other.shutdownNow();
+    }
+}
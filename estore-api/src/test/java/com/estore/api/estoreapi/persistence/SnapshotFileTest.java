@@ -0,0 +1,55 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@Tag("Persistence-tier")
+public class SnapshotFileTest {
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        // Setup
+        String filename = new File(tempDir, "snapshot.json").getPath();
+        SnapshotFile snapshotFile = new SnapshotFile(filename, new ObjectMapper());
+        String[] expected = { "a", "b" };
+
+        // Invoke
+        snapshotFile.write(expected);
+
+        // Analyze
+        assertArrayEquals(expected, snapshotFile.read(String[].class));
+        assertFalse(new File(filename + ".tmp").exists());
+    }
+
+    @Test
+    public void testFailedWriteKeepsOldSnapshot() throws IOException {
+        // Setup
+        String filename = new File(tempDir, "snapshot.json").getPath();
+        ObjectMapper objectMapper = spy(new ObjectMapper());
+        SnapshotFile snapshotFile = new SnapshotFile(filename, objectMapper);
+        String[] expected = { "a", "b" };
+        snapshotFile.write(expected);
+        doThrow(new IOException()).when(objectMapper).writeValue(any(File.class), any(String[].class));
+
+        // Invoke
+        assertThrows(IOException.class, () -> snapshotFile.write(new String[] { "c" }));
+
+        // Analyze
+        assertArrayEquals(expected, snapshotFile.read(String[].class));
+    }
+}
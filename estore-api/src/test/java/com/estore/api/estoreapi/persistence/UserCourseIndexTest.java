@@ -0,0 +1,73 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import com.estore.api.estoreapi.model.User;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("Persistence-tier")
+public class UserCourseIndexTest {
+    UserCourseIndex index;
+    User bob;
+    User ann;
+
+    @BeforeEach
+    public void setupUserCourseIndex() {
+        index = new UserCourseIndex();
+        bob = new User("Bob", new HashSet<>(Set.of(1, 2)), new HashSet<>(Set.of(3)), null, null, null, false);
+        ann = new User("Ann", new HashSet<>(Set.of(2)), new HashSet<>(Set.of(1)), null, null, null, false);
+        index.update(bob);
+        index.update(ann);
+    }
+
+    @Test
+    public void testUpdate() {
+        // Analyze
+        assertEquals(Set.of("Bob", "Ann"), index.holders(2));
+        assertEquals(Set.of("Bob", "Ann"), index.holders(1)); // enrolled and in cart
+        assertEquals(Set.of("Bob"), index.holders(3));
+        assertEquals(Set.of(), index.holders(4));
+    }
+
+    @Test
+    public void testUpdateMovesChangedIds() {
+        // Setup
+        bob.getCoursesBy().remove(2);
+        bob.getShoppingCart().clear();
+        bob.getShoppingCart().add(4);
+
+        // Invoke
+        index.update(bob);
+
+        // Analyze
+        assertEquals(Set.of("Ann"), index.holders(2));
+        assertEquals(Set.of("Bob", "Ann"), index.holders(1)); // unchanged
+        assertEquals(Set.of(), index.holders(3));
+        assertEquals(Set.of("Bob"), index.holders(4));
+    }
+
+    @Test
+    public void testUpdateCopies() {
+        // Invoke
+        bob.getCoursesBy().clear(); // not seen until the next update
+
+        // Analyze
+        assertEquals(Set.of("Bob", "Ann"), index.holders(2));
+    }
+
+    @Test
+    public void testClear() {
+        // Invoke
+        index.clear();
+
+        // Analyze
+        assertEquals(Set.of(), index.holders(1));
+        assertEquals(Set.of(), index.holders(2));
+    }
+}
@@ -9,15 +9,29 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
 import java.util.stream.Collectors;
 
 import com.estore.api.estoreapi.model.Course;
@@ -27,6 +41,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 @Tag("Persistence-tier")
 public class UserFileDAOTest {
@@ -35,16 +50,21 @@ public class UserFileDAOTest {
     User[] testUsers;
     ObjectMapper mockObjectMapper;
     CourseDAO mockCourseDAO;
+    @TempDir
+    File tempDir;
+    File usersFile;
 
     /**
-     * Before each test, we will create and inject a Mock Object Mapper to
-     * isolate the tests from the underlying file
+     * Before each test, we will create and inject a spy Object Mapper to
+     * isolate the tests from the contents of the underlying file, writing into
+     * a temporary directory
      * 
      * @throws IOException
      */
     @BeforeEach
     public void setupCourseFileDAO() throws IOException {
-        mockObjectMapper = mock(ObjectMapper.class);
+        mockObjectMapper = spy(new ObjectMapper());
+        usersFile = new File(tempDir, "doesnt_matter.txt");
         mockCourseDAO = mock(CourseDAO.class);
 
         testCourses = new Course[3];
@@ -69,13 +89,12 @@ public class UserFileDAOTest {
         when(mockCourseDAO.getCourse(99)).thenReturn(testCourses[0]);
         when(mockCourseDAO.getCourse(100)).thenReturn(testCourses[1]);
         when(mockCourseDAO.getCourse(101)).thenReturn(testCourses[2]);
+        when(mockCourseDAO.enroll(any(), any(), any())).thenAnswer(invocation -> invocation.getArgument(2));
 
         // When the object mapper is supposed to read from the file
         // the mock object mapper will return the course array above
-        when(mockObjectMapper
-                .readValue(new File("doesnt_matter.txt"), User[].class))
-                .thenReturn(testUsers);
-        userFileDAO = new UserFileDAO("doesnt_matter.txt", mockObjectMapper);
+        doReturn(testUsers).when(mockObjectMapper).readValue(usersFile, User[].class);
+        userFileDAO = new UserFileDAO(usersFile.getPath(), mockObjectMapper);
         userFileDAO.setCourseDAO(mockCourseDAO);
     }
 
@@ -83,19 +102,49 @@ public class UserFileDAOTest {
     public void testGetAllUsers() {
         User[] allUsers = userFileDAO.getAllUsers();
         assertEquals(testUsers.length, allUsers.length);
-        Set<User> allUsersSet = Arrays.stream(allUsers).collect(Collectors.toSet());
-        Set<User> testUsersSet = Arrays.stream(testUsers).collect(Collectors.toSet());
+        // copies, so compared by what they hold
+        Set<String> allUsersSet = Arrays.stream(allUsers).map(User::toString).collect(Collectors.toSet());
+        Set<String> testUsersSet = Arrays.stream(testUsers).map(User::toString).collect(Collectors.toSet());
         assertEquals(testUsersSet, allUsersSet);
+        for (User user : allUsers)
+            assertFalse(Arrays.asList(testUsers).contains(user)); // never the users held by the DAO
+    }
+
+    @Test
+    public void testGetAllUsersPage() {
+        Page<User> first = userFileDAO.getAllUsers(null, 2);
+        Page<User> second = userFileDAO.getAllUsers(first.getNextCursor(), 2);
+
+        // users come by name
+        assertEquals(Arrays.asList(testUsers[2].toString(), testUsers[0].toString()),
+                first.getItems().stream().map(User::toString).collect(Collectors.toList()));
+        assertEquals(Arrays.asList(testUsers[1].toString()),
+                second.getItems().stream().map(User::toString).collect(Collectors.toList()));
+        assertNull(second.getNextCursor());
+        assertThrows(IllegalArgumentException.class, () -> userFileDAO.getAllUsers("!", 2));
     }
 
     @Test
     public void testGetUser() {
         for (int i = 0; i < testUsers.length; i++) {
             User user = userFileDAO.getUser(testUsers[i].getUserName());
-            assertEquals(user, testUsers[i]);
+            assertEquals(testUsers[i].toString(), user.toString());
         }
     }
 
+    @Test
+    public void testGetUserReturnsCopy() {
+        // Invoke
+        User user = userFileDAO.getUser("Bob");
+        user.getShoppingCart().add(101);
+        user.getCourses().clear();
+
+        // Analyze
+        // the changes never reach the user the DAO holds
+        assertEquals(Set.of(99), userFileDAO.getUser("Bob").getShoppingCart());
+        assertEquals(Set.of(100, 101), userFileDAO.getUserCourse("Bob"));
+    }
+
     @Test
     public void testGetUserCourse() throws IOException {
         for (int i = 0; i < testUsers.length; i++) {
@@ -174,6 +223,269 @@ public class UserFileDAOTest {
         assertEquals(null, userFileDAO.updateUserCourses("Jeffery", newCourses));
 
         // perform the modification
-        assertEquals(testUsers[0], userFileDAO.updateUserCourses(testUsers[0].getUserName(), newCourses));
+        User updated = userFileDAO.updateUserCourses(testUsers[0].getUserName(), newCourses);
+        assertEquals(testUsers[0].toString(), updated.toString());
+        // only the course Bob did not have yet is a new enrollment
+        verify(mockCourseDAO).enroll("Bob", Set.of(100, 101), Set.of(99));
+        assertEquals(Set.of(99, 100, 101), testUsers[0].getCourses());
+        assertEquals(Set.of(), testUsers[0].getShoppingCart());
+    }
+
+    @Test
+    public void testUpdateUserCourseSkipsDeletedCourses() throws IOException {
+        // Setup
+        when(mockCourseDAO.enroll("Bob", Set.of(100, 101), Set.of(99, 404))).thenReturn(Set.of(99));
+
+        // Invoke
+        userFileDAO.updateUserCourses("Bob", Set.of(99, 404));
+
+        // Analyze
+        assertEquals(Set.of(99, 100, 101), userFileDAO.getUser("Bob").getCourses());
+    }
+
+    @Test
+    public void testUpdateUserCourseTakenBackOnFailure() throws IOException {
+        // Setup
+        doThrow(new IOException()).when(mockObjectMapper).writeValue(any(File.class), any(User[].class));
+
+        // Invoke
+        assertThrows(IOException.class, () -> userFileDAO.updateUserCourses("Bob", Set.of(99)));
+
+        // Analyze
+        // the counts go back down and the user is as before the checkout
+        verify(mockCourseDAO).unenroll(Set.of(99));
+        assertEquals(Set.of(100, 101), userFileDAO.getUser("Bob").getCourses());
+        assertEquals(Set.of(99), userFileDAO.getUser("Bob").getShoppingCart());
+    }
+
+    @Test
+    public void testUpdateUserCourseTakenBackFromReplacedUser() throws IOException {
+        // Setup
+        User replacement = new User("Bob", new HashSet<>(Set.of(99, 100, 101)));
+        replacement.setUsersName("Robert");
+        replacement.addCourseToShoppingCartByID(102);
+        AtomicBoolean replaced = new AtomicBoolean();
+        doAnswer(invocation -> {
+            // the user is replaced while the checkout is being written
+            if (!replaced.getAndSet(true))
+                assertThrows(IOException.class, () -> userFileDAO.updateUser(replacement));
+            throw new IOException();
+        }).when(mockObjectMapper).writeValue(any(File.class), any(User[].class));
+
+        // Invoke
+        assertThrows(IOException.class, () -> userFileDAO.updateUserCourses("Bob", Set.of(99)));
+
+        // Analyze
+        User bob = userFileDAO.getUser("Bob");
+        assertEquals("Robert", bob.getName()); // the replacement is kept
+        assertEquals(Set.of(100, 101), bob.getCourses());
+        assertEquals(Set.of(99, 102), bob.getShoppingCart());
+        assertEquals(Set.of(100, 101), userFileDAO.getEnrollments().get("Bob"));
+    }
+
+    @Test
+    public void testGetEnrollments() {
+        Map<String, Set<Integer>> enrollments = userFileDAO.getEnrollments();
+
+        assertEquals(testUsers.length, enrollments.size());
+        assertEquals(Set.of(100, 101), enrollments.get("Bob"));
+        // a copy, so the users are not changed through it
+        enrollments.get("Bob").clear();
+        assertEquals(Set.of(100, 101), userFileDAO.getUser("Bob").getCourses());
+    }
+
+    @Test
+    public void testRemoveCourse() throws IOException {
+        // Invoke
+        userFileDAO.removeCourse(99);
+        userFileDAO.removeCourse(404); // nobody has it
+
+        // Analyze
+        assertEquals(Set.of(), userFileDAO.getUser("Bob").getShoppingCart());
+        assertEquals(Set.of(), userFileDAO.getUser("Alice").getCourses());
+        assertEquals(Set.of(100, 101), userFileDAO.getUser("George").getCourses());
+        assertEquals(Set.of(100, 101), userFileDAO.getUser("Alice").getShoppingCart());
+        // every affected user is written at once
+        verify(mockObjectMapper, times(1)).writeValue(any(File.class), any(User[].class));
+    }
+
+    @Test
+    public void testRemoveCourseAfterChanges() throws IOException {
+        // Setup
+        userFileDAO.updateUserShoppingCart("George", new HashSet<>(Set.of(99)));
+        userFileDAO.updateUser(new User("Alice", new HashSet<>(), new HashSet<>(), null, null, null, false));
+
+        // Invoke
+        userFileDAO.removeCourse(99);
+
+        // Analyze
+        // the users are found by what they hold now, not by what they held
+        assertEquals(Set.of(), userFileDAO.getUser("George").getShoppingCart());
+        assertEquals(Set.of(), userFileDAO.getUser("Bob").getShoppingCart());
+    }
+
+    @Test
+    public void testUsersChangeInParallel() throws Exception {
+        // Setup
+        // with a log only the changed users are written, not every user
+        ObjectMapper objectMapper = new ObjectMapper();
+        File snapshot = new File(tempDir, "users.json");
+        objectMapper.writeValue(snapshot, testUsers);
+        UserFileDAO logDAO = new UserFileDAO(snapshot.getPath(), objectMapper,
+                new File(tempDir, "users.log").getPath(), 0);
+        // a user whose lock is not the one of Bob
+        String other = "Jeffery";
+        for (int i = 0; logDAO.locks.of(other) == logDAO.locks.of("Bob"); ++i)
+            other = "Jeffery" + i;
+        User created = new User(other);
+        Lock bob = logDAO.locks.of("Bob");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        // Invoke
+        bob.lock(); // Bob is in the middle of a change
+        try {
+            Future<User> result = executor.submit(() -> logDAO.createUser(created));
+
+            // Analyze
+            assertEquals(created, result.get(5, TimeUnit.SECONDS));
+            assertNotNull(logDAO.getUser("Bob")); // reads take no lock
+        } finally {
+            bob.unlock();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testWriteBehindCoalescesChanges() throws IOException {
+        // Setup
+        UserFileDAO writeBehindDAO = new UserFileDAO(usersFile.getPath(), mockObjectMapper, null, 60000);
+        writeBehindDAO.setCourseDAO(mockCourseDAO);
+
+        // Invoke
+        writeBehindDAO.createUser(new User("Jeffery"));
+        writeBehindDAO.updateUser(new User("George"));
+
+        // Analyze
+        // nothing is written until the flush, which writes both changes at once
+        verify(mockObjectMapper, never()).writeValue(any(File.class), any(User[].class));
+        writeBehindDAO.close();
+        verify(mockObjectMapper, times(1)).writeValue(any(File.class), any(User[].class));
+    }
+
+    @Test
+    public void testCheckoutIsWrittenSynchronously() throws IOException {
+        // Setup
+        UserFileDAO writeBehindDAO = new UserFileDAO(usersFile.getPath(), mockObjectMapper, null, 60000);
+        writeBehindDAO.setCourseDAO(mockCourseDAO);
+        Set<Integer> newCourses = new HashSet<Integer>();
+        newCourses.add(99);
+
+        // Invoke
+        writeBehindDAO.updateUserCourses(testUsers[0].getUserName(), newCourses);
+
+        // Analyze
+        // the course counts are written by the enrollment, the user right after
+        verify(mockCourseDAO).enroll("Bob", Set.of(100, 101), Set.of(99));
+        verify(mockObjectMapper, times(1)).writeValue(any(File.class), any(User[].class));
+    }
+
+    @Test
+    public void testAddToCartAndRemoveFromCart() throws IOException {
+        // Setup
+        ObjectMapper objectMapper = new ObjectMapper();
+        File snapshot = new File(tempDir, "users.json");
+        File logFile = new File(tempDir, "users.log");
+        objectMapper.writeValue(snapshot, testUsers);
+        UserFileDAO logDAO = new UserFileDAO(snapshot.getPath(), objectMapper, logFile.getPath(), 0);
+
+        // Invoke
+        User added = logDAO.addToCart("Bob", 102);
+        User owned = logDAO.addToCart("Bob", 100); // Bob already has course 100
+        User removed = logDAO.removeFromCart("Bob", 99);
+
+        // Analyze
+        assertEquals(Set.of(99, 102), added.getShoppingCart());
+        assertEquals(Set.of(99, 102), owned.getShoppingCart());
+        assertEquals(Set.of(102), removed.getShoppingCart());
+        assertEquals(Set.of(102), logDAO.getUser("Bob").getShoppingCart());
+        assertNull(logDAO.addToCart("Jeff", 99));
+        assertNull(logDAO.removeFromCart("Jeff", 99));
+        // only the two changes were logged, not the user
+        String logged = new String(Files.readAllBytes(logFile.toPath()));
+        assertTrue(logged.contains("CART_ADD") && logged.contains("CART_REMOVE"));
+        assertFalse(logged.contains("PUT"));
+        UserFileDAO reloaded = new UserFileDAO(snapshot.getPath(), objectMapper, logFile.getPath(), 0);
+        assertEquals(Set.of(102), reloaded.getUser("Bob").getShoppingCart());
+        assertEquals(Set.of(100, 101), reloaded.getUser("Bob").getCourses());
+    }
+
+    @Test
+    public void testCartChangesReplaceTheUser() throws IOException {
+        // Setup
+        Set<Integer> cartBefore = testUsers[0].getShoppingCart(); // the set the DAO was loaded with
+
+        // Invoke
+        userFileDAO.addToCart("Bob", 102);
+        userFileDAO.removeFromCart("Bob", 99);
+
+        // Analyze
+        assertEquals(Set.of(99), cartBefore); // never changed in place, a reader of it sees no change
+        assertEquals(Set.of(102), userFileDAO.getUser("Bob").getShoppingCart());
+    }
+
+    @Test
+    public void testCartChangesCoveredByWholeUser() throws IOException {
+        // Setup
+        ObjectMapper objectMapper = new ObjectMapper();
+        File snapshot = new File(tempDir, "users.json");
+        File logFile = new File(tempDir, "users.log");
+        objectMapper.writeValue(snapshot, testUsers);
+        // a long delay, so the changes wait to be flushed together
+        UserFileDAO logDAO = new UserFileDAO(snapshot.getPath(), objectMapper, logFile.getPath(), 60000);
+        logDAO.setCourseDAO(mockCourseDAO);
+
+        // Invoke
+        logDAO.addToCart("Bob", 102);
+        logDAO.updateUserShoppingCart("Bob", Set.of(103));
+        logDAO.removeFromCart("Alice", 100);
+        logDAO.updateUserCourses("George", Set.of()); // a checkout writes everything through
+
+        // Analyze
+        String logged = new String(Files.readAllBytes(logFile.toPath()));
+        assertFalse(logged.contains("CART_ADD")); // written with the rest of Bob
+        assertTrue(logged.contains("CART_REMOVE"));
+        UserFileDAO reloaded = new UserFileDAO(snapshot.getPath(), objectMapper, logFile.getPath(), 0);
+        assertEquals(Set.of(103), reloaded.getUser("Bob").getShoppingCart());
+        assertEquals(Set.of(99, 101), reloaded.getUser("Alice").getShoppingCart());
+        logDAO.close();
+    }
+
+    @Test
+    public void testLogPersistenceAndCompaction() throws IOException {
+        // Setup
+        ObjectMapper objectMapper = new ObjectMapper();
+        File snapshot = new File(tempDir, "users.json");
+        String logFilename = new File(tempDir, "users.log").getPath();
+        objectMapper.writeValue(snapshot, testUsers);
+        UserFileDAO logDAO = new UserFileDAO(snapshot.getPath(), objectMapper, logFilename, 0);
+        Set<Integer> newCart = new HashSet<Integer>();
+        newCart.add(101);
+
+        // Invoke
+        logDAO.createUser(new User("Jeffery"));
+        logDAO.updateUserShoppingCart("Bob", newCart);
+
+        // Analyze
+        // the changes are replayed from the log
+        UserFileDAO reloaded = new UserFileDAO(snapshot.getPath(), objectMapper, logFilename, 0);
+        assertNotNull(reloaded.getUser("Jeffery"));
+        assertEquals(newCart, reloaded.getUser("Bob").getShoppingCart());
+
+        // and after compacting they are in the snapshot alone
+        logDAO.compact();
+        assertEquals(0, new File(logFilename).length());
+        reloaded = new UserFileDAO(snapshot.getPath(), objectMapper, logFilename, 0);
+        assertEquals(testUsers.length + 1, reloaded.getAllUsers().length);
+        assertEquals(newCart, reloaded.getUser("Bob").getShoppingCart());
     }
 }
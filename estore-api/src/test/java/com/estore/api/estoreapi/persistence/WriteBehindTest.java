@@ -0,0 +1,120 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("Persistence-tier")
+public class WriteBehindTest {
+    AtomicInteger flushes;
+    volatile boolean failing;
+
+    @BeforeEach
+    public void setupCounter() {
+        flushes = new AtomicInteger();
+        failing = false;
+    }
+
+    private void countFlush() throws IOException {
+        if (failing)
+            throw new IOException();
+        flushes.incrementAndGet();
+    }
+
+    @Test
+    public void testWriteThrough() throws IOException {
+        // Setup
+        WriteBehind writeBehind = new WriteBehind("test-flusher", 0, this::countFlush);
+
+        // Invoke
+        writeBehind.write(Durability.DEFERRED);
+        writeBehind.write(Durability.DEFERRED);
+
+        // Analyze
+        assertEquals(2, flushes.get());
+    }
+
+    @Test
+    public void testDeferredWritesCoalesce() throws Exception {
+        // Setup
+        WriteBehind writeBehind = new WriteBehind("test-flusher", 50, this::countFlush);
+
+        // Invoke
+        for (int i = 0; i < 10; ++i)
+            writeBehind.write(Durability.DEFERRED);
+        assertEquals(0, flushes.get());
+        Thread.sleep(500);
+
+        // Analyze
+        assertEquals(1, flushes.get());
+        writeBehind.close();
+    }
+
+    @Test
+    public void testSyncWriteFlushesImmediately() throws IOException {
+        // Setup
+        WriteBehind writeBehind = new WriteBehind("test-flusher", 60000, this::countFlush);
+        writeBehind.write(Durability.DEFERRED);
+
+        // Invoke
+        writeBehind.write(Durability.SYNC);
+
+        // Analyze
+        assertEquals(1, flushes.get());
+        writeBehind.close(); // nothing is pending any more
+        assertEquals(1, flushes.get());
+    }
+
+    @Test
+    public void testCloseFlushesPending() throws IOException {
+        // Setup
+        WriteBehind writeBehind = new WriteBehind("test-flusher", 60000, this::countFlush);
+        writeBehind.write(Durability.DEFERRED);
+
+        // Invoke
+        writeBehind.close();
+
+        // Analyze
+        assertEquals(1, flushes.get());
+    }
+
+    @Test
+    public void testFailedFlushStaysPending() throws IOException {
+        // Setup
+        WriteBehind writeBehind = new WriteBehind("test-flusher", 60000, this::countFlush);
+        failing = true;
+
+        // Invoke
+        assertThrows(IOException.class, () -> writeBehind.write(Durability.SYNC));
+        failing = false;
+        writeBehind.close();
+
+        // Analyze
+        assertEquals(1, flushes.get());
+    }
+
+    @Test
+    public void testDeferredWriteAfterFailedSyncFlush() throws Exception {
+        // Setup
+        WriteBehind writeBehind = new WriteBehind("test-flusher", 50, this::countFlush);
+        failing = true;
+        assertThrows(IOException.class, () -> writeBehind.write(Durability.SYNC));
+        failing = false;
+
+        // Invoke
+        writeBehind.write(Durability.DEFERRED);
+        Thread.sleep(500);
+
+        // Analyze
+        // the failed changes and the new one are written without waiting for close
+        assertEquals(1, flushes.get());
+        writeBehind.close();
+        assertEquals(1, flushes.get());
+    }
+}
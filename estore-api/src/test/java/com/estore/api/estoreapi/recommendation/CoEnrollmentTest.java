@@ -0,0 +1,75 @@
+package com.estore.api.estoreapi.recommendation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.estore.api.estoreapi.model.Course;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("Persistence-tier")
+public class CoEnrollmentTest {
+    CoEnrollment coEnrollment;
+
+    @BeforeEach
+    public void setupCoEnrollment() {
+        coEnrollment = new CoEnrollment();
+        coEnrollment.addUser(List.of(1, 2, 3));
+        coEnrollment.addUser(List.of(1, 2));
+    }
+
+    @Test
+    public void testAddUser() {
+        // Analyze
+        assertEquals(2, coEnrollment.weight(1, 2));
+        assertEquals(1, coEnrollment.weight(3, 1));
+        assertEquals(0, coEnrollment.weight(1, 1));
+        assertEquals(Set.of(1, 2, 3), coEnrollment.ids());
+    }
+
+    @Test
+    public void testAddEnrollment() {
+        // Invoke
+        coEnrollment.addEnrollment(List.of(1, 2), List.of(3, 4));
+
+        // Analyze
+        assertEquals(2, coEnrollment.weight(1, 3));
+        assertEquals(1, coEnrollment.weight(4, 2));
+        assertEquals(1, coEnrollment.weight(3, 4));
+        assertEquals(2, coEnrollment.weight(1, 2)); // pairs the user had are not counted again
+    }
+
+    @Test
+    public void testRemove() {
+        // Invoke
+        coEnrollment.remove(1);
+
+        // Analyze
+        assertEquals(0, coEnrollment.weight(2, 1));
+        assertEquals(1, coEnrollment.weight(2, 3));
+        assertEquals(Set.of(2, 3), coEnrollment.ids());
+    }
+
+    @Test
+    public void testRecommendBlended() {
+        // Setup
+        SimilarityGraph similarity = new SimilarityGraph();
+        similarity.add(new Course(1, "Discrete Math", 9.99, "Logic", new HashSet<>(Set.of("math"))));
+        similarity.add(new Course(4, "Proofs", 9.99, "Induction", new HashSet<>(Set.of("math"))));
+        List<WeightedGraph> graphs = List.of(similarity, coEnrollment);
+
+        // Analyze
+        assertEquals(List.of(2, 3, 4), WeightedGraph.recommend(graphs, new double[] { 1, 1 }, List.of(1), 5,
+                Comparator.naturalOrder()));
+        assertEquals(List.of(4, 2, 3), WeightedGraph.recommend(graphs, new double[] { 3, 1 }, List.of(1), 5,
+                Comparator.naturalOrder()));
+        assertEquals(List.of(4), WeightedGraph.recommend(graphs, new double[] { 1, 0 }, List.of(1), 5,
+                Comparator.naturalOrder()));
+    }
+}
@@ -0,0 +1,90 @@
+package com.estore.api.estoreapi.recommendation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("Persistence-tier")
+public class RecommendationCacheTest {
+    RecommendationCache cache;
+    long now;
+
+    @BeforeEach
+    public void setupRecommendationCache() {
+        now = 0;
+        cache = new RecommendationCache(2, 1000, () -> now);
+    }
+
+    @Test
+    public void testGet() {
+        // Setup
+        cache.put("Bob", 3, List.of(1, 2, 3));
+        cache.put("Ann", 5, List.of(4, 5));
+
+        // Analyze
+        assertEquals(List.of(1, 2), cache.get("Bob", 2));
+        assertEquals(List.of(1, 2, 3), cache.get("Bob", 3));
+        assertNull(cache.get("Bob", 4)); // more than was computed
+        assertEquals(List.of(4, 5), cache.get("Ann", 10)); // there were only two
+        assertNull(cache.get("Joe", 1));
+
+        CacheStats stats = cache.stats();
+        assertEquals(3, stats.getHits());
+        assertEquals(2, stats.getMisses());
+        assertEquals(2, stats.getSize());
+    }
+
+    @Test
+    public void testExpires() {
+        // Setup
+        cache.put("Bob", 3, List.of(1, 2, 3));
+
+        // Invoke
+        now = 1000;
+
+        // Analyze
+        assertNull(cache.get("Bob", 1));
+        assertEquals(0, cache.stats().getSize());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        // Setup
+        cache.put("Bob", 1, List.of(1));
+        cache.put("Ann", 1, List.of(2));
+
+        // Invoke
+        cache.get("Bob", 1);
+        cache.put("Joe", 1, List.of(3));
+
+        // Analyze
+        assertEquals(List.of(1), cache.get("Bob", 1));
+        assertNull(cache.get("Ann", 1));
+        assertEquals(1, cache.stats().getEvictions());
+    }
+
+    @Test
+    public void testInvalidate() {
+        // Setup
+        cache.put("Bob", 1, List.of(1));
+        cache.put("Ann", 1, List.of(2));
+
+        // Invoke
+        cache.invalidate("Bob");
+
+        // Analyze
+        assertNull(cache.get("Bob", 1));
+        assertEquals(List.of(2), cache.get("Ann", 1));
+
+        // Invoke
+        cache.invalidateAll();
+
+        // Analyze
+        assertNull(cache.get("Ann", 1));
+    }
+}
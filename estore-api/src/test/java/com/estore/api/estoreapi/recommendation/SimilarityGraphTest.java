@@ -0,0 +1,120 @@
+package com.estore.api.estoreapi.recommendation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import com.estore.api.estoreapi.model.Course;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("Persistence-tier")
+public class SimilarityGraphTest {
+    SimilarityGraph graph;
+
+    @BeforeEach
+    public void setupSimilarityGraph() {
+        graph = new SimilarityGraph();
+        graph.add(new Course(1, "Discrete Math", 9.99, "Logic", new HashSet<>(Set.of("math", "logic"))));
+        graph.add(new Course(2, "Linear Algebra", 8.99, "Matrices", new HashSet<>(Set.of("math", "algebra"))));
+        graph.add(new Course(3, "Proofs", 12.99, "Induction", new HashSet<>(Set.of("math", "logic", "proof"))));
+        graph.add(new Course(4, "Painting", 5.99, "Colour", new HashSet<>(Set.of("art"))));
+    }
+
+    @Test
+    public void testWeight() {
+        // Analyze
+        assertEquals(2, graph.weight(1, 3));
+        assertEquals(2, graph.weight(3, 1));
+        assertEquals(1, graph.weight(1, 2));
+        assertEquals(0, graph.weight(1, 4));
+        assertEquals(0, graph.weight(1, 99));
+    }
+
+    @Test
+    public void testUpdate() {
+        // Invoke
+        graph.add(new Course(3, "Proofs", 12.99, "Induction", new HashSet<>(Set.of("art"))));
+
+        // Analyze
+        assertEquals(0, graph.weight(1, 3));
+        assertEquals(1, graph.weight(3, 4));
+        assertEquals(List.of(2), graph.recommend(List.of(1), 5, Comparator.naturalOrder()));
+    }
+
+    @Test
+    public void testRemove() {
+        // Invoke
+        graph.remove(3);
+        graph.remove(99);
+
+        // Analyze
+        assertEquals(0, graph.weight(1, 3));
+        assertEquals(List.of(2), graph.recommend(List.of(1), 5, Comparator.naturalOrder()));
+        assertEquals(List.of(), graph.recommend(List.of(3), 5, Comparator.naturalOrder()));
+    }
+
+    @Test
+    public void testRecommend() {
+        // Analyze
+        assertEquals(List.of(3, 2), graph.recommend(List.of(1), 5, Comparator.naturalOrder()));
+        assertEquals(List.of(3), graph.recommend(List.of(1), 1, Comparator.naturalOrder()));
+        assertEquals(List.of(1, 3), graph.recommend(List.of(2), 5, Comparator.naturalOrder()));
+        assertEquals(List.of(3, 1), graph.recommend(List.of(2), 5, Comparator.reverseOrder()));
+        assertEquals(List.of(), graph.recommend(List.of(4), 5, Comparator.naturalOrder()));
+        assertEquals(List.of(), graph.recommend(List.of(1), 0, Comparator.naturalOrder()));
+    }
+
+    @Test
+    public void testRecommendMatchesScan() {
+        // Setup
+        Random random = new Random(42);
+        String[] tags = { "a", "b", "c", "d", "e", "f" };
+        Map<Integer, Set<String>> courseTags = new HashMap<>();
+        graph.clear();
+        for (int id = 0; id < 60; ++id) {
+            Set<String> picked = new HashSet<>();
+            for (String tag : tags)
+                if (random.nextInt(3) == 0)
+                    picked.add(tag);
+            courseTags.put(id, picked);
+            graph.add(new Course(id, "Course " + id, 1, "", picked));
+        }
+
+        // Analyze
+        for (int round = 0; round < 20; ++round) {
+            Set<Integer> owned = new HashSet<>();
+            for (int i = 0; i < 1 + random.nextInt(4); ++i)
+                owned.add(random.nextInt(60));
+
+            Map<Integer, Integer> scores = new HashMap<>();
+            for (int id : courseTags.keySet()) {
+                if (owned.contains(id))
+                    continue;
+                int score = 0;
+                for (int ownedId : owned)
+                    for (String tag : courseTags.get(ownedId))
+                        if (courseTags.get(id).contains(tag))
+                            ++score;
+                if (score > 0)
+                    scores.put(id, score);
+            }
+            List<Integer> expected = new ArrayList<>(scores.keySet());
+            expected.sort(Comparator.<Integer, Integer>comparing(scores::get).reversed()
+                    .thenComparing(Comparator.naturalOrder()));
+
+            int count = 1 + random.nextInt(10);
+            assertEquals(expected.subList(0, Math.min(count, expected.size())),
+                    graph.recommend(owned, count, Comparator.naturalOrder()));
+        }
+    }
+}
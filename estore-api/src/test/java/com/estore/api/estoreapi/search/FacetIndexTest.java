@@ -0,0 +1,88 @@
+package com.estore.api.estoreapi.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.estore.api.estoreapi.model.Course;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("Persistence-tier")
+public class FacetIndexTest {
+    FacetIndex facetIndex;
+
+    @BeforeEach
+    public void setupFacetIndex() {
+        facetIndex = new FacetIndex();
+        facetIndex.add(new Course(1, "Discrete Math", 9.99, "Logic", Set.of("math", "logic")));
+        facetIndex.add(new Course(2, "Linear Algebra", 18.99, "Matrices", Set.of("math")));
+        facetIndex.add(new Course(3, "Painting", 120, "Colour", Set.of("art")));
+    }
+
+    private static BitSet ids(int... ids) {
+        BitSet bits = new BitSet();
+        for (int id : ids)
+            bits.set(id);
+        return bits;
+    }
+
+    @Test
+    public void testWithTags() {
+        // Analyze
+        assertEquals(ids(1, 2), facetIndex.withTags(List.of("math"), true));
+        assertEquals(ids(1), facetIndex.withTags(List.of("math", "logic"), true));
+        assertEquals(ids(1, 3), facetIndex.withTags(List.of("logic", "art"), false));
+        assertEquals(ids(), facetIndex.withTags(List.of("math", "unknown"), true));
+        assertEquals(ids(1, 2), facetIndex.withTags(List.of("math", "unknown"), false));
+        assertEquals(ids(1, 2, 3), facetIndex.all());
+    }
+
+    @Test
+    public void testCounts() {
+        // Invoke
+        Map<String, Integer> tags = facetIndex.countTags(ids(1, 2));
+        Map<String, Integer> prices = facetIndex.countPrices(facetIndex.all());
+
+        // Analyze
+        assertEquals(List.of("math", "logic"), List.copyOf(tags.keySet()));
+        assertEquals(2, tags.get("math"));
+        assertEquals(1, tags.get("logic"));
+        assertEquals(List.of("0-10", "10-25", "25-50", "50-100", "100+"), List.copyOf(prices.keySet()));
+        assertEquals(List.of(1, 1, 0, 0, 1), List.copyOf(prices.values()));
+    }
+
+    @Test
+    public void testUpdateAndRemove() {
+        // Invoke
+        facetIndex.add(new Course(2, "Linear Algebra", 30, "Matrices", Set.of("algebra")));
+        facetIndex.remove(3);
+        facetIndex.remove(99);
+
+        // Analyze
+        assertEquals(ids(1), facetIndex.withTags(List.of("math"), true));
+        assertEquals(ids(2), facetIndex.withTags(List.of("algebra"), true));
+        assertEquals(ids(), facetIndex.withTags(List.of("art"), false));
+        assertEquals(List.of(1, 0, 1, 0, 0), List.copyOf(facetIndex.countPrices(facetIndex.all()).values()));
+    }
+
+    @Test
+    public void testEstimateAndMatches() {
+        // Analyze
+        assertEquals(1, facetIndex.estimate(List.of("math", "logic"), true));
+        assertEquals(3, facetIndex.estimate(List.of("math", "art"), false));
+        assertEquals(0, facetIndex.estimate(List.of("math", "unknown"), true));
+        assertTrue(facetIndex.matches(1, List.of("math", "logic"), true));
+        assertFalse(facetIndex.matches(2, List.of("math", "logic"), true));
+        assertTrue(facetIndex.matches(2, List.of("logic", "math"), false));
+        assertFalse(facetIndex.matches(3, List.of("math", "logic"), false));
+        assertFalse(facetIndex.matches(99, List.of("math"), false));
+    }
+}
@@ -0,0 +1,100 @@
+package com.estore.api.estoreapi.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import java.util.Set;
+
+import com.estore.api.estoreapi.model.Course;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("Persistence-tier")
+public class FuzzyIndexTest {
+    FuzzyIndex fuzzyIndex;
+
+    @BeforeEach
+    public void setupFuzzyIndex() {
+        fuzzyIndex = new FuzzyIndex();
+        fuzzyIndex.add(new Course(1, "Linear Algebra", 8.99, "Matrices and vector spaces", Set.of("math")));
+        fuzzyIndex.add(new Course(2, "Discrete Math", 9.99, "Logic, sets and graphs", Set.of("math")));
+        fuzzyIndex.add(new Course(3, "Painting", 12.99, "Colour theory", Set.of("art")));
+    }
+
+    @Test
+    public void testSearchWithTypos() {
+        // Analyze
+        assertEquals(Set.of(1), fuzzyIndex.search("Algerba"));
+        assertEquals(Set.of(1), fuzzyIndex.search("lineer algbra"));
+        assertEquals(Set.of(1, 2), fuzzyIndex.search("mathh"));
+        assertEquals(Set.of(3), fuzzyIndex.search("colur"));
+        // short words must match exactly
+        assertEquals(Set.of(), fuzzyIndex.search("at"));
+        // every word must match
+        assertEquals(Set.of(), fuzzyIndex.search("algebra painting"));
+        assertEquals(Set.of(), fuzzyIndex.search(""));
+    }
+
+    @Test
+    public void testExpand() {
+        // Analyze
+        assertEquals("algebra", fuzzyIndex.expand("algebar"));
+        assertEquals("", fuzzyIndex.expand("zzzzzz"));
+    }
+
+    @Test
+    public void testUpdateAndRemove() {
+        // Invoke
+        fuzzyIndex.add(new Course(1, "Calculus", 8.99, "Limits", Set.of("math")));
+        fuzzyIndex.remove(2);
+        fuzzyIndex.remove(99);
+
+        // Analyze
+        assertEquals(Set.of(), fuzzyIndex.search("algebra"));
+        assertEquals(Set.of(1), fuzzyIndex.search("calculs"));
+        assertEquals(Set.of(), fuzzyIndex.search("discrete"));
+    }
+
+    @Test
+    public void testEditDistance() {
+        // Analyze
+        assertEquals(0, FuzzyIndex.editDistance("algebra", "algebra", 2));
+        assertEquals(2, FuzzyIndex.editDistance("algerba", "algebra", 2));
+        assertEquals(1, FuzzyIndex.editDistance("colr", "color", 1));
+        assertEquals(3, FuzzyIndex.editDistance("abc", "xyz", 2)); // bound + 1 when too far
+        assertEquals(2, FuzzyIndex.editDistance("abc", "abcde", 1));
+    }
+
+    @Test
+    public void testEditDistanceMatchesFullTable() {
+        // Setup
+        Random random = new Random(18);
+
+        // Analyze
+        for (int n = 0; n < 500; ++n) {
+            String a = randomWord(random);
+            String b = randomWord(random);
+            int bound = random.nextInt(3);
+            assertEquals(Math.min(levenshtein(a, b), bound + 1), FuzzyIndex.editDistance(a, b, bound), a + " " + b);
+        }
+    }
+
+    private static String randomWord(Random random) {
+        StringBuilder word = new StringBuilder();
+        for (int length = random.nextInt(7); length > 0; --length)
+            word.append((char) ('a' + random.nextInt(3)));
+        return word.toString();
+    }
+
+    private static int levenshtein(String a, String b) {
+        int[][] distance = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); ++i)
+            for (int j = 0; j <= b.length(); ++j)
+                distance[i][j] = i == 0 ? j : j == 0 ? i
+                        : Math.min(Math.min(distance[i - 1][j] + 1, distance[i][j - 1] + 1),
+                                distance[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1));
+        return distance[a.length()][b.length()];
+    }
+}
@@ -0,0 +1,69 @@
+package com.estore.api.estoreapi.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import com.estore.api.estoreapi.model.Course;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("Persistence-tier")
+public class PriceIndexTest {
+    PriceIndex priceIndex;
+
+    @BeforeEach
+    public void setupPriceIndex() {
+        priceIndex = new PriceIndex();
+        priceIndex.add(new Course(1, "Discrete Math", 9.99, "Logic"));
+        priceIndex.add(new Course(2, "Linear Algebra", 8.99, "Matrices"));
+        priceIndex.add(new Course(3, "Painting", 12.99, "Colour"));
+        priceIndex.add(new Course(4, "Stats", 9.99, "Data"));
+    }
+
+    @Test
+    public void testRange() {
+        // Analyze
+        assertEquals(List.of(2, 1, 4, 3), priceIndex.range(null, null));
+        assertEquals(List.of(1, 4), priceIndex.range(9.0, 10.0));
+        assertEquals(List.of(2, 1, 4), priceIndex.range(null, 9.99));
+        assertEquals(List.of(3), priceIndex.range(10.0, null));
+        assertEquals(List.of(), priceIndex.range(10.0, 9.0));
+    }
+
+    @Test
+    public void testUpdate() {
+        // Invoke
+        priceIndex.add(new Course(1, "Discrete Math", 19.99, "Logic"));
+
+        // Analyze
+        assertEquals(List.of(4), priceIndex.range(9.0, 10.0));
+        assertEquals(List.of(3, 1), priceIndex.range(10.0, null));
+    }
+
+    @Test
+    public void testRemove() {
+        // Invoke
+        priceIndex.remove(2);
+        priceIndex.remove(99);
+
+        // Analyze
+        assertEquals(List.of(1, 4, 3), priceIndex.range(null, null));
+    }
+
+    @Test
+    public void testCountAndContains() {
+        // Analyze
+        assertEquals(2, priceIndex.count(9.0, 10.0, 10));
+        assertEquals(0, priceIndex.count(10.0, 9.0, 10));
+        assertTrue(priceIndex.count(null, null, 1) > 1); // stops past the cap
+        assertTrue(priceIndex.contains(1, 9.0, 10.0));
+        assertTrue(priceIndex.contains(3, null, null));
+        assertFalse(priceIndex.contains(3, null, 12.0));
+        assertFalse(priceIndex.contains(99, null, null));
+    }
+}
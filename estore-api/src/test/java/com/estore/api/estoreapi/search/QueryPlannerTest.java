@@ -0,0 +1,115 @@
+package com.estore.api.estoreapi.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.estore.api.estoreapi.model.Course;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("Persistence-tier")
+public class QueryPlannerTest {
+    QueryPlanner planner;
+    Course[] courses;
+
+    @BeforeEach
+    public void setupQueryPlanner() {
+        courses = new Course[4];
+        courses[0] = new Course(1, "Discrete Math", 9.99, "Logic, sets and graphs", Set.of("math", "logic"));
+        courses[1] = new Course(2, "Linear Algebra", 8.99, "Matrices and vectors", Set.of("math"));
+        courses[2] = new Course(3, "Graph Theory", 14.99, "Paths and trees", Set.of("math", "graphs"));
+        courses[3] = new Course(4, "Painting", 24.99, "Colour", Set.of("art"));
+
+        TextIndex textIndex = new TextIndex();
+        PriceIndex priceIndex = new PriceIndex();
+        FacetIndex facetIndex = new FacetIndex();
+        RelevanceIndex relevanceIndex = new RelevanceIndex();
+        FuzzyIndex fuzzyIndex = new FuzzyIndex();
+        for (Course course : courses) {
+            textIndex.add(course);
+            priceIndex.add(course);
+            facetIndex.add(course);
+            relevanceIndex.add(course);
+            fuzzyIndex.add(course);
+        }
+        planner = new QueryPlanner(textIndex, priceIndex, facetIndex, relevanceIndex, fuzzyIndex);
+    }
+
+    private static CourseQuery query(String text, List<String> tags, Double minPrice, Double maxPrice) {
+        CourseQuery query = new CourseQuery();
+        query.setText(text);
+        query.setTags(tags);
+        query.setMinPrice(minPrice);
+        query.setMaxPrice(maxPrice);
+        return query;
+    }
+
+    @Test
+    public void testPlanPicksRarestPredicate() {
+        // Analyze
+        assertEquals(QueryPlanner.Driver.NONE, planner.plan(query(null, null, null, null)));
+        assertEquals(QueryPlanner.Driver.TAGS, planner.plan(query("a", List.of("graphs"), null, null)));
+        assertEquals(QueryPlanner.Driver.TEXT, planner.plan(query("painting", List.of("math"), null, null)));
+        assertEquals(QueryPlanner.Driver.PRICE, planner.plan(query("a", List.of("math"), 20.0, null)));
+    }
+
+    @Test
+    public void testSearchMatchesEveryPredicate() {
+        // Setup
+        CourseQuery[] queries = { query("graph", List.of("math"), null, 12.0), query("and", null, 9.0, 15.0),
+                query(null, List.of("logic", "art"), null, null), query("a", List.of("math"), 9.0, null),
+                query("", List.of(), 0.0, 100.0) };
+        queries[2].setMatchAll(false);
+
+        // Analyze
+        for (CourseQuery query : queries) {
+            Set<Integer> expected = new HashSet<>();
+            for (Course course : courses) {
+                boolean text = !query.hasText() || course.getTitle().toLowerCase().contains(query.getText())
+                        || course.getDescription().toLowerCase().contains(query.getText());
+                boolean tags = !query.hasTags() || (query.isMatchAll() ? course.getTags().containsAll(query.getTags())
+                        : query.getTags().stream().anyMatch(course.getTags()::contains));
+                boolean price = (query.getMinPrice() == null || course.getPrice() >= query.getMinPrice())
+                        && (query.getMaxPrice() == null || course.getPrice() <= query.getMaxPrice());
+                if (text && tags && price)
+                    expected.add(course.getId());
+            }
+            assertEquals(expected, new HashSet<>(planner.search(query)), query.toString());
+        }
+        assertNull(planner.search(query(null, null, null, null)));
+    }
+
+    @Test
+    public void testRankFilters() {
+        // Invoke
+        Map<Integer, Double> scores = planner.rank(query("graph theory", List.of("math"), null, 12.0));
+
+        // Analyze
+        // course 3 is the best match but is priced out
+        assertEquals(Set.of(), scores.keySet());
+        assertEquals(Set.of(3), planner.rank(query("graph theory", List.of("math"), null, null)).keySet());
+    }
+
+    @Test
+    public void testFuzzySearch() {
+        // Setup
+        CourseQuery misspelled = query("Algerba", null, null, null);
+        misspelled.setFuzzy(true);
+        CourseQuery exact = query("Algerba", null, null, null);
+        CourseQuery priced = query("grapth", List.of("math"), 10.0, null);
+        priced.setFuzzy(true);
+        priced.setRanked(true);
+
+        // Analyze
+        assertEquals(List.of(2), List.copyOf(planner.search(misspelled)));
+        assertEquals(List.of(), List.copyOf(planner.search(exact)));
+        assertEquals(Set.of(3), planner.rank(priced).keySet());
+    }
+}
@@ -0,0 +1,86 @@
+package com.estore.api.estoreapi.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.estore.api.estoreapi.model.Course;
+import com.estore.api.estoreapi.model.Lesson;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("Persistence-tier")
+public class RelevanceIndexTest {
+    RelevanceIndex relevanceIndex;
+
+    @BeforeEach
+    public void setupRelevanceIndex() {
+        relevanceIndex = new RelevanceIndex();
+        relevanceIndex.add(new Course(1, "Linear Algebra", 8.99, "Matrices and vector spaces", Set.of("math")));
+        relevanceIndex.add(new Course(2, "Data Science", 19.99,
+                "Statistics, plotting, machine learning, and a refresher on linear algebra", Set.of("data")));
+        relevanceIndex.add(new Course(3, "Painting", 12.99, "Colour theory", Set.of("art", "visual")));
+        relevanceIndex.add(new Course(4, "Python", 5.99, "Programming basics", Set.of("code")));
+    }
+
+    @Test
+    public void testTitleOutranksDescription() {
+        // Invoke
+        Map<Integer, Double> scores = relevanceIndex.score("Linear Algebra");
+
+        // Analyze
+        assertEquals(Set.of(1, 2), scores.keySet());
+        assertTrue(scores.get(1) > scores.get(2));
+    }
+
+    @Test
+    public void testRareWordsWeighMore() {
+        // Setup
+        relevanceIndex.add(new Course(5, "Colour Mixing", 4.99, "Painting with a palette", Set.of("art")));
+
+        // Invoke
+        Map<Integer, Double> scores = relevanceIndex.score("theory art");
+
+        // Analyze
+        // only course 3 has theory, art is shared with course 5
+        assertTrue(scores.get(3) > scores.get(5));
+    }
+
+    @Test
+    public void testTagsAndLessons() {
+        // Setup
+        Course python = new Course(4, null, "Python", 5.99, "Programming basics", 0, Set.of("code"),
+                List.of(new Lesson("Loops and recursion", "loops.mp4")));
+        relevanceIndex.add(python);
+
+        // Analyze
+        assertEquals(Set.of(3), relevanceIndex.score("VISUAL").keySet());
+        assertEquals(Set.of(4), relevanceIndex.score("recursion").keySet());
+        assertEquals(Set.of(), relevanceIndex.score("zebra").keySet());
+        assertEquals(Set.of(), relevanceIndex.score("").keySet());
+    }
+
+    @Test
+    public void testUpdateAndRemove() {
+        // Invoke
+        relevanceIndex.add(new Course(1, "Calculus", 8.99, "Limits and derivatives", Set.of("math")));
+        relevanceIndex.remove(2);
+        relevanceIndex.remove(99);
+
+        // Analyze
+        assertEquals(Set.of(), relevanceIndex.score("linear").keySet());
+        assertEquals(Set.of(1), relevanceIndex.score("calculus").keySet());
+    }
+
+    @Test
+    public void testTokenize() {
+        // Analyze
+        assertEquals(List.of("c", "for", "beginners", "101"), RelevanceIndex.tokenize("C++ for Beginners: 101"));
+        assertEquals(List.of(), RelevanceIndex.tokenize(null));
+    }
+}
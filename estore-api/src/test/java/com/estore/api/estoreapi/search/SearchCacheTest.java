@@ -0,0 +1,133 @@
+package com.estore.api.estoreapi.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("Persistence-tier")
+public class SearchCacheTest {
+    SearchCache cache;
+    List<Integer> result;
+    AtomicInteger searches;
+
+    @BeforeEach
+    public void setupSearchCache() {
+        cache = new SearchCache(2);
+        result = List.of(3, 1, 2);
+        searches = new AtomicInteger();
+    }
+
+    private List<Integer> search() {
+        searches.incrementAndGet();
+        return result;
+    }
+
+    @Test
+    public void testGet() {
+        // Invoke
+        cache.get("linear", 1, this::search);
+        List<Integer> second = cache.get("linear", 1, this::search);
+
+        // Analyze
+        assertEquals(result, second);
+        // callers may not change the cached result
+        assertThrows(UnsupportedOperationException.class, () -> second.set(0, 4));
+        assertEquals(1, searches.get());
+        assertEquals(1, cache.stats().getHits());
+        assertEquals(1, cache.stats().getMisses());
+    }
+
+    @Test
+    public void testNewVersion() {
+        // Setup
+        cache.get("linear", 1, this::search);
+
+        // Invoke
+        cache.get("linear", 2, this::search);
+        cache.get("linear", 2, this::search);
+
+        // Analyze
+        assertEquals(2, searches.get());
+        assertEquals(1, cache.stats().getSize());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        // Setup
+        cache.get("a", 1, this::search);
+        cache.get("b", 1, this::search);
+        cache.get("a", 1, this::search);
+
+        // Invoke
+        cache.get("c", 1, this::search);
+        cache.get("a", 1, this::search);
+        cache.get("b", 1, this::search);
+
+        // Analyze
+        assertEquals(4, searches.get()); // b was evicted
+        assertEquals(2, cache.stats().getEvictions());
+    }
+
+    @Test
+    public void testFailureNotCached() {
+        // Invoke
+        assertThrows(IllegalStateException.class, () -> cache.get("linear", 1, () -> {
+            throw new IllegalStateException();
+        }));
+        cache.get("linear", 1, this::search);
+
+        // Analyze
+        assertEquals(1, searches.get());
+        assertEquals(2, cache.stats().getMisses());
+    }
+
+    @Test
+    public void testCoalescesConcurrentSearches() throws Exception {
+        // Setup
+        int callers = 4;
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+
+        try {
+            // Invoke
+            Future<List<Integer>> first = executor.submit(() -> cache.get("linear", 1, () -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return search();
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<?>[] waiting = new Future<?>[callers - 1];
+            for (int i = 0; i < waiting.length; ++i)
+                waiting[i] = executor.submit(() -> cache.get("linear", 1, this::search));
+            // the others find the search running, or its result once done
+            Thread.sleep(100);
+            release.countDown();
+
+            // Analyze
+            assertEquals(result, first.get(5, TimeUnit.SECONDS));
+            for (Future<?> other : waiting)
+                assertEquals(result, other.get(5, TimeUnit.SECONDS));
+            assertEquals(1, searches.get());
+            assertEquals(callers - 1, cache.stats().getHits());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
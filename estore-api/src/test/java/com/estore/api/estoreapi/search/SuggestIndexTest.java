@@ -0,0 +1,75 @@
+package com.estore.api.estoreapi.search;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import com.estore.api.estoreapi.model.Course;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("Persistence-tier")
+public class SuggestIndexTest {
+    SuggestIndex suggestIndex;
+
+    @BeforeEach
+    public void setupSuggestIndex() {
+        suggestIndex = new SuggestIndex();
+        Course linear = new Course(1, "Linear Algebra", 8.99, "Matrices", Set.of("math", "algebra"));
+        linear.setStudentsEnrolled(5);
+        suggestIndex.add(linear);
+        suggestIndex.add(new Course(2, "Discrete Math", 9.99, "Logic", Set.of("math", "logic")));
+        suggestIndex.add(new Course(3, "Lino Printing", 12.99, "Carving", Set.of("art")));
+    }
+
+    @Test
+    public void testSuggest() {
+        // Invoke
+        SuggestIndex.Snapshot snapshot = suggestIndex.snapshot();
+
+        // Analyze
+        assertArrayEquals(new String[] { "Linear Algebra", "Lino Printing" }, snapshot.suggest("LIN", 10));
+        assertArrayEquals(new String[] { "Linear Algebra", "Lino Printing", "logic" }, snapshot.suggest("l", 10));
+        // matches the start of any word, a tag on two courses outweighs a title on one
+        assertArrayEquals(new String[] { "math", "Discrete Math" }, snapshot.suggest("ma", 10));
+        assertArrayEquals(new String[] { "Linear Algebra", "algebra" }, snapshot.suggest("alg", 10));
+        assertArrayEquals(new String[] { "Linear Algebra" }, snapshot.suggest("l", 1));
+        assertArrayEquals(new String[0], snapshot.suggest("near", 10));
+        assertArrayEquals(new String[0], snapshot.suggest(" ", 10));
+    }
+
+    @Test
+    public void testChanges() {
+        // Setup
+        Course linear = new Course(1, "Linear Algebra", 8.99, "Matrices", Set.of("math", "algebra"));
+        linear.setStudentsEnrolled(6);
+
+        // Analyze
+        assertFalse(suggestIndex.add(linear)); // only the popularity changed
+        assertTrue(suggestIndex.add(new Course(1, "Linear Maps", 8.99, "Matrices", Set.of("math"))));
+        assertTrue(suggestIndex.remove(3));
+        assertFalse(suggestIndex.remove(3));
+        assertArrayEquals(new String[] { "Linear Maps" }, suggestIndex.snapshot().suggest("lin", 10));
+    }
+
+    @Test
+    public void testShortPrefixesMatchScan() {
+        // Setup
+        for (int id = 10; id < 60; ++id)
+            suggestIndex.add(new Course(id, "Course " + id, 1, "Filler", Set.of("tag" + id % 7)));
+        SuggestIndex.Snapshot snapshot = suggestIndex.snapshot();
+
+        // Analyze
+        // a worked out short prefix gives the same first suggestions as a scan
+        String[] all = snapshot.suggest("co", SuggestIndex.MAX_SUGGESTIONS);
+        assertArrayEquals(Arrays.copyOf(all, 3), snapshot.suggest("co", 3));
+        assertArrayEquals(snapshot.suggest("cou", SuggestIndex.MAX_SUGGESTIONS), all);
+        assertEquals(SuggestIndex.MAX_SUGGESTIONS, all.length);
+    }
+}
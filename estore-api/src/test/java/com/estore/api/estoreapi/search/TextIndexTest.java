@@ -0,0 +1,132 @@
+package com.estore.api.estoreapi.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import com.estore.api.estoreapi.model.Course;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("Persistence-tier")
+public class TextIndexTest {
+    TextIndex textIndex;
+    Course[] courses;
+
+    @BeforeEach
+    public void setupTextIndex() {
+        courses = new Course[3];
+        courses[0] = new Course(1, "Discrete Math", 9.99, "Logic, sets and graphs", new HashSet<>(Set.of("math")));
+        courses[1] = new Course(2, "Linear Algebra", 8.99, "Matrices and vector spaces",
+                new HashSet<>(Set.of("Math", "algebra")));
+        courses[2] = new Course(3, "Intro to Painting", 12.99, "Colour theory", new HashSet<>(Set.of("art", "visual")));
+
+        textIndex = new TextIndex();
+        for (Course course : courses)
+            textIndex.add(course);
+    }
+
+    @Test
+    public void testSearchShortText() {
+        // Analyze
+        assertEquals(Set.of(1, 2), textIndex.search("MAT"));
+        assertEquals(Set.of(1, 2, 3), textIndex.search("a"));
+        assertEquals(Set.of(), textIndex.search("zq"));
+    }
+
+    @Test
+    public void testSearchLongText() {
+        // Analyze
+        assertEquals(Set.of(1), textIndex.search("discrete m"));
+        assertEquals(Set.of(2), textIndex.search("vector spaces"));
+        assertEquals(Set.of(), textIndex.search("math discrete"));
+    }
+
+    @Test
+    public void testSearchDoesNotSpanFields() {
+        // Analyze
+        assertEquals(Set.of(), textIndex.search("mathlogic"));
+    }
+
+    @Test
+    public void testSearchTags() {
+        // Analyze
+        assertEquals(Set.of(3), textIndex.search("Visual"));
+        assertEquals(Set.of(), textIndex.search("visu")); // tags match whole
+        // a tag only matches when stored lowercase, course 1 matches by title
+        assertEquals(Set.of(1), textIndex.search("math"));
+    }
+
+    @Test
+    public void testSearchEmptyText() {
+        // Analyze
+        assertEquals(Set.of(1, 2, 3), textIndex.search(""));
+    }
+
+    @Test
+    public void testUpdate() {
+        // Setup
+        Course updated = new Course(1, "Number Theory", 9.99, "Primes");
+
+        // Invoke
+        textIndex.add(updated);
+
+        // Analyze
+        assertEquals(Set.of(2), textIndex.search("mat"));
+        assertEquals(Set.of(1), textIndex.search("primes"));
+        assertEquals(3, textIndex.size());
+    }
+
+    @Test
+    public void testRemove() {
+        // Invoke
+        textIndex.remove(2);
+        textIndex.remove(99);
+
+        // Analyze
+        assertEquals(Set.of(1), textIndex.search("mat"));
+        assertEquals(Set.of(), textIndex.search("algebra"));
+        assertEquals(Set.of(3), textIndex.search("visual"));
+        assertEquals(2, textIndex.size());
+    }
+
+    @Test
+    public void testMatchesScan() {
+        // Setup
+        String[] queries = { "m", "th", "ra", "and", "s and", "ati", "xyz", "colour theory", " ", "art", "Math" };
+
+        // Analyze
+        for (String query : queries) {
+            Set<Integer> expected = new HashSet<>();
+            for (Course course : courses) {
+                String text = query.toLowerCase();
+                if (course.getTitle().toLowerCase().contains(text)
+                        || course.getDescription().toLowerCase().contains(text)
+                        || course.getTags().contains(text))
+                    expected.add(course.getId());
+            }
+            assertEquals(expected, textIndex.search(query), query);
+        }
+    }
+
+    @Test
+    public void testEstimateAndMatches() {
+        // Setup
+        String[] queries = { "m", "th", "and", "s and", "ati", "xyz", "colour theory", "art", "Math" };
+
+        // Analyze
+        for (String query : queries) {
+            Set<Integer> found = textIndex.search(query);
+            assertTrue(textIndex.estimate(query) >= found.size(), query);
+            for (Course course : courses)
+                assertEquals(found.contains(course.getId()), textIndex.matches(course.getId(), query), query);
+        }
+        assertEquals(0, textIndex.estimate("xyzw"));
+        assertFalse(textIndex.matches(99, "m"));
+    }
+}
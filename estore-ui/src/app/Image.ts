@@ -1,3 +1,4 @@
 export interface Image {
   link: any;
+  hash?: string;
 }
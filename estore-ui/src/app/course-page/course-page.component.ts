@@ -49,11 +49,10 @@ export class CoursePageComponent implements OnInit {
         !this.user.courses.includes(course.id)
       ) {
         this.user.shoppingCart.push(course.id);
+        this.userService
+          .addToCart(this.user.userName, course.id)
+          .subscribe((userObj) => (this.user = userObj));
       }
-      console.log(this.user);
-      this.userService
-        .updateUser(this.user)
-        .subscribe((userObj) => (this.user = userObj));
     } else {
       this.router.navigate(['/account/login']);
     }
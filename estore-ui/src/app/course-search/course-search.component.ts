@@ -1,5 +1,5 @@
 import { Component, OnInit } from '@angular/core';
-import { Observable } from 'rxjs';
+import { Observable, of, switchMap } from 'rxjs';
 import { ActivatedRoute, Router } from '@angular/router';
 
 import { Course } from '../course';
@@ -34,7 +34,16 @@ export class CourseSearchComponent implements OnInit {
 
   searchCourses(): void {
     const title = String(this.route.snapshot.paramMap.get('title'));
-    this.courses$ = this.courseService.searchCourses(title);
+    // a misspelled title finds nothing, so look for close words instead
+    this.courses$ = this.courseService
+      .searchCourses(title)
+      .pipe(
+        switchMap((courses) =>
+          courses.length
+            ? of(courses)
+            : this.courseService.fuzzySearchCourses(title)
+        )
+      );
   }
 
   addCourseToCart(course: Course) {
@@ -44,11 +53,10 @@ export class CourseSearchComponent implements OnInit {
         !this.user.courses.includes(course.id)
       ) {
         this.user.shoppingCart.push(course.id);
+        this.userService
+          .addToCart(this.user.userName, course.id)
+          .subscribe((userObj) => (this.user = userObj));
       }
-      console.log(this.user);
-      this.userService
-        .updateUser(this.user)
-        .subscribe((userObj) => (this.user = userObj));
     } else {
       this.router.navigate(['/account/login']);
     }
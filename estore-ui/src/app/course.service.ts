@@ -63,6 +63,37 @@ export class CourseService {
     );
   }
 
+  /* GET courses whose words are close to those of a misspelled search term */
+  fuzzySearchCourses(term: string): Observable<Course[]> {
+    if (!term.trim()) {
+      return of([]);
+    }
+    return this.http
+      .get<Course[]>(
+        `${this.coursesUrl}/search?text=${encodeURIComponent(term)}&fuzzy=true`
+      )
+      .pipe(
+        tap((x) =>
+          x.length
+            ? CourseService.log(`found courses close to "${term}"`)
+            : CourseService.log(`no courses close to "${term}"`)
+        ),
+        catchError(this.handleError<Course[]>('fuzzySearchCourses', []))
+      );
+  }
+
+  /* GET short title and tag suggestions completing a search box prefix */
+  suggestCourses(prefix: string): Observable<string[]> {
+    if (!prefix.trim()) {
+      return of([]);
+    }
+    return this.http
+      .get<string[]>(
+        `${this.coursesUrl}/suggest?prefix=${encodeURIComponent(prefix)}`
+      )
+      .pipe(catchError(this.handleError<string[]>('suggestCourses', [])));
+  }
+
   /**
    * Adds a new course to the server
    *
@@ -61,9 +61,8 @@ export class ShoppingCartPageComponent implements OnInit {
           (c) => c !== course.id
         );
       }
-      console.log(this.user.shoppingCart);
       this.userService
-        .updateUser(this.user)
+        .removeFromCart(this.user.userName, course.id)
         .subscribe((userObj) => (this.user = userObj));
       this.getCart();
     }
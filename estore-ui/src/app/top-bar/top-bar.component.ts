@@ -1,6 +1,13 @@
 import { Component, OnInit } from '@angular/core';
 import { Router } from '@angular/router';
-import { debounceTime } from 'rxjs';
+import {
+  debounceTime,
+  distinctUntilChanged,
+  Observable,
+  Subject,
+  switchMap,
+} from 'rxjs';
+import { CourseService } from '../course.service';
 import { UserService } from '../user.service';
 
 import { User } from '../User';
@@ -12,7 +19,13 @@ import { User } from '../User';
 export class TopBarComponent implements OnInit {
   userName: string | undefined = undefined;
   userObj: User | undefined;
-  constructor(private router: Router, private userService: UserService) {
+  suggestions$!: Observable<string[]>;
+  private prefixes = new Subject<string>();
+  constructor(
+    private router: Router,
+    private userService: UserService,
+    private courseService: CourseService
+  ) {
     if (userService.getloginStatus()) {
       this.userName = localStorage.getItem('user') || '';
     }
@@ -20,10 +33,15 @@ export class TopBarComponent implements OnInit {
 
   ngOnInit(): void {
     this.getUser(); 
+    this.suggestions$ = this.prefixes.pipe(
+      debounceTime(100),
+      distinctUntilChanged(),
+      switchMap((prefix) => this.courseService.suggestCourses(prefix))
+    );
   }
 
   search(term: string): void {
-    debounceTime(500);
+    this.prefixes.next(term);
     if (term == '') {
       this.router.navigate(['']);
     } else {
@@ -123,6 +123,42 @@ export class UserService {
     return this.user;
   }
 
+  /**
+   * Adds a course to the cart of a user, sending only the change
+   * @param userName
+   * @param courseId
+   * @returns User Observable
+   */
+  addToCart(userName: string, courseId: number): Observable<User> {
+    const url = `${this.usersUrl}/${userName}/cart/${courseId}`;
+    this.http
+      .post<User>(url, null, this.httpOptions)
+      .pipe(
+        tap((_) => UserService.log(`added course id=${courseId} to cart`)),
+        catchError(this.handleError<User>('addToCart'))
+      )
+      .subscribe((user) => this.user.next(user));
+    return this.user;
+  }
+
+  /**
+   * Takes a course out of the cart of a user, sending only the change
+   * @param userName
+   * @param courseId
+   * @returns User Observable
+   */
+  removeFromCart(userName: string, courseId: number): Observable<User> {
+    const url = `${this.usersUrl}/${userName}/cart/${courseId}`;
+    this.http
+      .delete<User>(url, this.httpOptions)
+      .pipe(
+        tap((_) => UserService.log(`removed course id=${courseId} from cart`)),
+        catchError(this.handleError<User>('removeFromCart'))
+      )
+      .subscribe((user) => this.user.next(user));
+    return this.user;
+  }
+
   checkout(newCourse: User) {
     const checkoutUrl = `${this.usersUrl}/checkout`;
     this.http